@@ -39,26 +39,271 @@ CREATE TABLE IF NOT EXISTS inventory (
 CREATE INDEX IF NOT EXISTS idx_inventory_product_store
     ON inventory (product_id, store_id);
 
+-- Una fila por tienda/producto; destino de los upsert (ON CONFLICT) de entradas y transferencias.
+-- Una base de una versión anterior puede tener varias filas para la misma tienda/producto, que harían
+-- fallar el índice: antes de crearlo se fusionan en la de menor id, con la suma de las cantidades y el
+-- mayor min_stock. La tabla queda bloqueada contra escrituras hasta que el índice existe.
+DO $$
+BEGIN
+    IF to_regclass('uq_inventory_store_product') IS NULL THEN
+        LOCK TABLE inventory IN SHARE ROW EXCLUSIVE MODE;
+        WITH dup AS (
+            SELECT store_id, product_id, min(id::text)::uuid AS keep_id,
+                   sum(quantity) AS quantity, max(min_stock) AS min_stock
+            FROM inventory
+            GROUP BY store_id, product_id
+            HAVING count(*) > 1
+        ), merged AS (
+            UPDATE inventory i
+            SET quantity = dup.quantity, min_stock = dup.min_stock
+            FROM dup
+            WHERE i.id = dup.keep_id
+        )
+        DELETE FROM inventory i
+        USING dup
+        WHERE i.store_id = dup.store_id AND i.product_id = dup.product_id AND i.id <> dup.keep_id;
+        CREATE UNIQUE INDEX uq_inventory_store_product ON inventory (store_id, product_id);
+    END IF;
+END$$;
+
+-- Índice parcial: solo contiene las filas en alerta (quantity <= min_stock)
+CREATE INDEX IF NOT EXISTS idx_inventory_low_stock
+    ON inventory (store_id, product_id)
+    WHERE quantity <= min_stock;
+
+-- Total de existencias por producto, actualizado en la misma transacción que cada movimiento
+CREATE TABLE IF NOT EXISTS product_stock (
+    product_id     UUID PRIMARY KEY,
+    total_quantity INTEGER NOT NULL DEFAULT 0 CHECK (total_quantity >= 0),
+
+    CONSTRAINT fk_product_stock_product
+        FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_product_stock_total
+    ON product_stock (total_quantity, product_id);
+
+INSERT INTO product_stock (product_id, total_quantity)
+SELECT product_id, SUM(quantity)
+FROM inventory
+GROUP BY product_id
+ON CONFLICT (product_id) DO NOTHING;
+
+-- Índices de versiones anteriores, cubiertos como prefijo por los de (…, timestamp, id)
+DROP INDEX IF EXISTS idx_movement_product;
+DROP INDEX IF EXISTS idx_movement_timestamp;
+
+-- El historial se particiona por mes sobre "timestamp". Una tabla transaction sin particionar de una
+-- versión anterior no se copia: se renombra (con sus índices) y más abajo se adjunta como la partición
+-- transaction_legacy, que cubre todo lo anterior al mes siguiente al actual.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('transaction') AND relkind = 'r') THEN
+        ALTER TABLE transaction RENAME TO transaction_legacy;
+        -- La clave primaria pasa a (id, timestamp), la única que admite la tabla particionada
+        ALTER TABLE transaction_legacy DROP CONSTRAINT transaction_pkey,
+            ADD CONSTRAINT transaction_legacy_pkey PRIMARY KEY (id, "timestamp");
+        ALTER INDEX IF EXISTS idx_movement_timestamp_id RENAME TO transaction_legacy_timestamp_id_idx;
+        ALTER INDEX IF EXISTS idx_movement_product_timestamp RENAME TO transaction_legacy_product_timestamp_idx;
+        ALTER INDEX IF EXISTS idx_movement_source_timestamp RENAME TO transaction_legacy_source_timestamp_idx;
+        ALTER INDEX IF EXISTS idx_movement_target_timestamp RENAME TO transaction_legacy_target_timestamp_idx;
+    END IF;
+END $$;
+
+-- La clave primaria de una tabla particionada debe incluir la columna de partición
 CREATE TABLE IF NOT EXISTS transaction (
-    id              UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    id              UUID NOT NULL DEFAULT gen_random_uuid(),
     product_id      UUID NOT NULL,
     source_store_id VARCHAR(50),
     target_store_id VARCHAR(50),
-    quantity        INTEGER NOT NULL CHECK (quantity > 0),
+    quantity        INTEGER NOT NULL,
     "timestamp"     TIMESTAMPTZ NOT NULL DEFAULT NOW(),
     type            transaction_type NOT NULL,
 
+    CONSTRAINT transaction_quantity_check CHECK (quantity > 0),
+    CONSTRAINT transaction_pkey PRIMARY KEY (id, "timestamp"),
     CONSTRAINT fk_movement_product
         FOREIGN KEY (product_id) REFERENCES product(id)
+) PARTITION BY RANGE ("timestamp");
+
+-- Historial paginado por cursor (timestamp, id) descendente, sin filtro y por producto/tienda.
+-- Se crean en cada partición; al adjuntar transaction_legacy se reutilizan sus índices equivalentes.
+CREATE INDEX IF NOT EXISTS idx_movement_timestamp_id
+    ON transaction ("timestamp" DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_movement_product_timestamp
+    ON transaction (product_id, "timestamp" DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_movement_source_timestamp
+    ON transaction (source_store_id, "timestamp" DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_movement_target_timestamp
+    ON transaction (target_store_id, "timestamp" DESC, id DESC);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass('transaction_legacy'))
+            AND to_regclass('transaction_legacy') IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE transaction ATTACH PARTITION transaction_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                       (date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '1 month') AT TIME ZONE 'UTC');
+    END IF;
+END $$;
+
+-- Crea las particiones mensuales (transaction_yYYYYmMM, límites en UTC) que falten entre los meses de
+-- from_date y to_date; los meses ya cubiertos, p. ej. por transaction_legacy, se saltan. La aplicación
+-- la invoca a diario (TransactionPartitionManager); SECURITY DEFINER porque particionar requiere ser
+-- dueño de la tabla. Devuelve cuántas particiones creó.
+CREATE OR REPLACE FUNCTION ensure_transaction_partitions(from_date DATE, to_date DATE)
+RETURNS INTEGER
+LANGUAGE plpgsql SECURITY DEFINER SET search_path = public SET timezone = 'UTC' AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_date)::date;
+    created     INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('transaction_partitions'));
+    WHILE month_start <= to_date LOOP
+        BEGIN
+            EXECUTE format('CREATE TABLE %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+                           'transaction_y' || to_char(month_start, 'YYYY"m"MM'),
+                           month_start::timestamptz, (month_start + INTERVAL '1 month')::timestamptz);
+            created := created + 1;
+        EXCEPTION WHEN duplicate_table OR invalid_object_definition THEN
+            -- Ya existe o el rango se solapa con otra partición
+        END;
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN created;
+END $$;
+
+-- Separa (DETACH) las particiones cuyo rango termina antes de before_date y devuelve sus nombres. Las
+-- tablas separadas se conservan con sus datos; ya no aparecen en el historial.
+CREATE OR REPLACE FUNCTION detach_transaction_partitions(before_date DATE)
+RETURNS SETOF TEXT
+LANGUAGE plpgsql SECURITY DEFINER SET search_path = public SET timezone = 'UTC' AS $$
+DECLARE
+    part RECORD;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('transaction_partitions'));
+    FOR part IN
+        SELECT c.relname,
+               (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \(''([^'']+)''\)'))[1]::timestamptz AS upper_bound
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'transaction'::regclass
+        ORDER BY 2
+    LOOP
+        IF part.upper_bound <= before_date::timestamptz THEN
+            EXECUTE format('ALTER TABLE transaction DETACH PARTITION %I', part.relname);
+            RETURN NEXT part.relname;
+        END IF;
+    END LOOP;
+END $$;
+
+-- Borra una partición ya separada, una vez archivada por la aplicación (inventory.archive.*). Solo acepta
+-- tablas de partición que ya no cuelgan de transaction.
+CREATE OR REPLACE FUNCTION drop_transaction_partition(partition_name TEXT)
+RETURNS BOOLEAN
+LANGUAGE plpgsql SECURITY DEFINER SET search_path = public AS $$
+BEGIN
+    IF partition_name !~ '^transaction_(y[0-9]{4}m[0-9]{2}|legacy)$' THEN
+        RAISE EXCEPTION 'Not a transaction partition: %', partition_name;
+    END IF;
+    PERFORM pg_advisory_xact_lock(hashtext('transaction_partitions'));
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN FALSE;
+    END IF;
+    IF EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass(partition_name)) THEN
+        RAISE EXCEPTION 'Partition % is still attached', partition_name;
+    END IF;
+    EXECUTE format('DROP TABLE %I', partition_name);
+    RETURN TRUE;
+END $$;
+
+REVOKE ALL ON FUNCTION ensure_transaction_partitions(DATE, DATE) FROM PUBLIC;
+REVOKE ALL ON FUNCTION detach_transaction_partitions(DATE) FROM PUBLIC;
+REVOKE ALL ON FUNCTION drop_transaction_partition(TEXT) FROM PUBLIC;
+GRANT EXECUTE ON FUNCTION ensure_transaction_partitions(DATE, DATE) TO deacerouser1;
+GRANT EXECUTE ON FUNCTION detach_transaction_partitions(DATE) TO deacerouser1;
+GRANT EXECUTE ON FUNCTION drop_transaction_partition(TEXT) TO deacerouser1;
+
+-- Mes actual y los tres siguientes; la aplicación mantiene después el margen de meses por delante
+SELECT ensure_transaction_partitions(CURRENT_DATE, (CURRENT_DATE + INTERVAL '3 months')::date);
+
+
+-- Claves Idempotency-Key de los endpoints de movimientos: se guardan junto con la respuesta en la misma
+-- transacción que el movimiento, y se purgan al vencer inventory.idempotency.ttl.
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    operation       VARCHAR(50) NOT NULL,
+    request_hash    VARCHAR(64) NOT NULL,
+    response        JSONB,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
 );
 
-CREATE INDEX IF NOT EXISTS idx_movement_product
-    ON transaction (product_id);
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_created_at
+    ON idempotency_key (created_at);
+
+-- Registros del WAL de inventory.engine=ledger que la base rechaza de forma permanente (p. ej. producto
+-- borrado o sin partición para su fecha): se apartan aquí para que no bloqueen a los siguientes y se
+-- revisan a mano. record guarda el registro completo tal como estaba en el WAL.
+CREATE TABLE IF NOT EXISTS ledger_dead_letter (
+    id        UUID PRIMARY KEY,
+    record    JSONB NOT NULL,
+    error     TEXT NOT NULL,
+    failed_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+
+-- Fotos periódicas de las existencias para consultar el inventario de una tienda en una fecha pasada
+-- (GET /stores/{id}/inventory?asOf=): se parte de la foto más cercana y solo se aplican los movimientos
+-- entre ella y la fecha pedida. Cada foto guarda las cantidades distintas de cero en taken_at.
+CREATE TABLE IF NOT EXISTS inventory_snapshot_run (
+    taken_at   TIMESTAMPTZ PRIMARY KEY,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS inventory_snapshot (
+    taken_at   TIMESTAMPTZ NOT NULL REFERENCES inventory_snapshot_run (taken_at) ON DELETE CASCADE,
+    store_id   VARCHAR(50) NOT NULL,
+    product_id UUID NOT NULL,
+    quantity   INTEGER NOT NULL,
+    PRIMARY KEY (store_id, taken_at, product_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_inventory_snapshot_taken_at
+    ON inventory_snapshot (taken_at);
+
+
+-- Resumen diario (UTC) de movimientos por tienda, producto y tipo para reportes (GET /inventory/stats).
+-- Una transferencia suma en quantity_out de la tienda origen y en quantity_in de la destino. Lo mantiene
+-- la aplicación sumando los movimientos posteriores a high_water_mark (inventory.rollups.*).
+CREATE TABLE IF NOT EXISTS movement_daily_rollup (
+    day          DATE NOT NULL,
+    store_id     VARCHAR(50) NOT NULL,
+    product_id   UUID NOT NULL,
+    type         transaction_type NOT NULL,
+    movements    BIGINT NOT NULL,
+    quantity_in  BIGINT NOT NULL,
+    quantity_out BIGINT NOT NULL,
+    PRIMARY KEY (store_id, product_id, type, day)
+);
+
+CREATE INDEX IF NOT EXISTS idx_movement_rollup_product_day
+    ON movement_daily_rollup (product_id, day);
+
+CREATE INDEX IF NOT EXISTS idx_movement_rollup_day
+    ON movement_daily_rollup (day);
+
+CREATE TABLE IF NOT EXISTS movement_rollup_state (
+    id              BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    high_water_mark TIMESTAMPTZ
+);
 
-CREATE INDEX IF NOT EXISTS idx_movement_timestamp
-    ON transaction ("timestamp");
+INSERT INTO movement_rollup_state (id) VALUES (TRUE) ON CONFLICT DO NOTHING;
 
 
 -- Dar acceso a todas las tablas actuales
 GRANT SELECT, INSERT, UPDATE, DELETE ON ALL TABLES IN SCHEMA public TO deacerouser1;
+-- y de lectura a las que se creen después (particiones nuevas), para poder archivarlas una vez separadas
+ALTER DEFAULT PRIVILEGES IN SCHEMA public GRANT SELECT ON TABLES TO deacerouser1;
 
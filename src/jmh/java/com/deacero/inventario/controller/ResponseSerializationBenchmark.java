@@ -0,0 +1,82 @@
+package com.deacero.inventario.controller;
+
+import com.deacero.inventario.models.GenericResponse;
+import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.models.ProductResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response envelopes as the controller returns them, serialized with an ObjectMapper configured the
+ * way Spring MVC builds its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+	@Param({"20", "200"})
+	int size;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private Page<ProductResponse> products;
+	private List<InventoryItemResponse> inventory;
+
+	@Setup
+	public void setUp() {
+		List<ProductResponse> content = new ArrayList<>(size);
+		inventory = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			UUID productId = UUID.randomUUID();
+			content.add(ProductResponse.builder()
+					.id(productId)
+					.name("Product " + i)
+					.description("Benchmark product " + i)
+					.category("category-" + (i % 10))
+					.price(new BigDecimal("19.99"))
+					.sku("SKU-" + i)
+					.build());
+			inventory.add(InventoryItemResponse.builder()
+					.storeId("STORE-1")
+					.productId(productId)
+					.quantity(i)
+					.minStock(5)
+					.build());
+		}
+		products = new PageImpl<>(content, PageRequest.of(0, size), 10_000);
+	}
+
+	@Benchmark
+	public byte[] productPage() throws Exception {
+		return objectMapper.writeValueAsBytes(GenericResponse.ok(products, "Products fetched", "/deacero/api/v1/products"));
+	}
+
+	@Benchmark
+	public byte[] storeInventory() throws Exception {
+		return objectMapper.writeValueAsBytes(GenericResponse.ok(inventory, "Inventory fetched",
+				"/deacero/api/v1/stores/STORE-1/inventory"));
+	}
+}
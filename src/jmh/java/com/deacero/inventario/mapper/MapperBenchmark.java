@@ -0,0 +1,89 @@
+package com.deacero.inventario.mapper;
+
+import com.deacero.inventario.entities.Inventory;
+import com.deacero.inventario.entities.Product;
+import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.models.ProductResponse;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+	private final ProductMapper productMapper = Mappers.getMapper(ProductMapper.class);
+	private final InventoryMapper inventoryMapper = Mappers.getMapper(InventoryMapper.class);
+	private Inventory inventory;
+
+	@State(Scope.Benchmark)
+	public static class ProductPage {
+
+		@Param({"20", "200"})
+		int pageSize;
+
+		Page<Product> products;
+		Pageable pageable;
+
+		@Setup
+		public void setUp() {
+			pageable = PageRequest.of(0, pageSize);
+			List<Product> content = new ArrayList<>(pageSize);
+			for (int i = 0; i < pageSize; i++) {
+				content.add(Product.builder()
+						.id(UUID.randomUUID())
+						.name("Product " + i)
+						.description("Benchmark product " + i)
+						.category("category-" + (i % 10))
+						.price(new BigDecimal("19.99"))
+						.sku("SKU-" + i)
+						.build());
+			}
+			products = new PageImpl<>(content, pageable, 10_000);
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		inventory = Inventory.builder()
+				.id(UUID.randomUUID())
+				.productId(UUID.randomUUID())
+				.storeId("STORE-1")
+				.quantity(42)
+				.minStock(5)
+				.build();
+	}
+
+	@Benchmark
+	public Page<ProductResponse> productToResponsePage(ProductPage page) {
+		return productMapper.toResponsePage(page.products, page.pageable);
+	}
+
+	@Benchmark
+	public InventoryItemResponse inventoryToItemResponse() {
+		return inventoryMapper.toItemResponse(inventory);
+	}
+}
@@ -0,0 +1,121 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Product;
+import com.deacero.inventario.mapper.ProductMapper;
+import com.deacero.inventario.models.ProductResponse;
+import com.deacero.inventario.repository.ProductRepository;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductServiceImpl#listProducts} without a database: the repository stub resolves the
+ * specification against a no-op criteria API (so buildSpecification and the product_stock subquery
+ * are built every call) and returns a fixed page, which is then mapped. The stock filter is a SQL
+ * subquery, so there is no in-memory filtering left to measure here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListProductsBenchmark {
+
+	private static final Map<Class<?>, Object> NO_OPS = new ConcurrentHashMap<>();
+
+	@Param({"20", "200"})
+	int pageSize;
+
+	@Param({"false", "true"})
+	boolean filtered;
+
+	private ProductServiceImpl productService;
+	private Pageable pageable;
+
+	@Setup
+	public void setUp() {
+		pageable = PageRequest.of(0, pageSize);
+		List<Product> content = new ArrayList<>(pageSize);
+		for (int i = 0; i < pageSize; i++) {
+			content.add(Product.builder()
+					.id(UUID.randomUUID())
+					.name("Product " + i)
+					.description("Benchmark product " + i)
+					.category("rebar")
+					.price(new BigDecimal("19.99"))
+					.sku("SKU-" + i)
+					.build());
+		}
+		Page<Product> page = new PageImpl<>(content, pageable, 10_000);
+		Root<?> root = noOp(Root.class);
+		CriteriaQuery<?> query = noOp(CriteriaQuery.class);
+		CriteriaBuilder cb = noOp(CriteriaBuilder.class);
+		ProductRepository repository = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> {
+					if (method.getName().equals("findAll") && args != null && args.length == 2
+							&& args[0] instanceof Specification<?> spec) {
+						@SuppressWarnings("unchecked")
+						Specification<Product> productSpec = (Specification<Product>) spec;
+						@SuppressWarnings("unchecked")
+						Root<Product> productRoot = (Root<Product>) root;
+						productSpec.toPredicate(productRoot, query, cb);
+						return page;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		productService = new ProductServiceImpl(repository, Mappers.getMapper(ProductMapper.class), event -> { });
+	}
+
+	@Benchmark
+	public Page<ProductResponse> listProducts() {
+		return filtered
+				? productService.listProducts("rebar", new BigDecimal("10"), new BigDecimal("100"), 5, pageable)
+				: productService.listProducts(null, null, null, null, pageable);
+	}
+
+	// Every interface-typed call returns the shared no-op proxy of that type, enough to walk the specification
+	// lambdas without allocating on the stub side
+	private static <T> T noOp(Class<T> type) {
+		return type.cast(NO_OPS.computeIfAbsent(type, t -> Proxy.newProxyInstance(ListProductsBenchmark.class.getClassLoader(),
+				new Class<?>[]{t}, (proxy, method, args) -> {
+					Class<?> returnType = method.getReturnType();
+					if (returnType.isInterface()) {
+						return noOp(returnType);
+					}
+					if (returnType == boolean.class) {
+						return false;
+					}
+					if (returnType == int.class) {
+						return 0;
+					}
+					return null;
+				})));
+	}
+}
@@ -1,13 +1,28 @@
 package com.deacero.inventario;
 
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+// Outside the transaction interceptor, so cache puts and evictions happen after commit
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 public class InventarioApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(InventarioApplication.class, args);
 	}
 
+	// Backs the class-level @Timed on the services (inventory.service timer, tagged by class and method)
+	@Bean
+	TimedAspect timedAspect(MeterRegistry registry) {
+		return new TimedAspect(registry);
+	}
+
 }
@@ -0,0 +1,139 @@
+package com.deacero.inventario.controller;
+
+import com.deacero.inventario.models.GenericResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * With virtual threads Tomcat no longer caps concurrency at its worker pool, so API requests are
+ * admitted here instead: at most {@code permits} run at once and the rest park on the semaphore, which is
+ * cheap for a virtual thread, rather than piling up on {@code getConnection()}. By default the permits are
+ * the Hikari pool size minus {@code reserved-connections}, left for the scheduled jobs (snapshots,
+ * rollups, archiver, partitions), which take connections without going through here. Requests that
+ * cannot get a permit within {@code acquire-timeout-ms} get a 503. An async request (e.g. the history
+ * export) keeps its permit until its async processing completes. The low stock SSE stream is not
+ * limited since it holds its request open without a connection.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "inventory.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/deacero/api/";
+    private static final String ALERT_STREAM_PATH = "/inventory/alerts/stream";
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(
+            @Value("${inventory.concurrency-limit.permits:0}") int permits,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${inventory.concurrency-limit.reserved-connections:2}") int reservedConnections,
+            @Value("${inventory.concurrency-limit.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+            ObjectMapper objectMapper) {
+        if (permits <= 0) {
+            permits = Math.max(1, poolSize - reservedConnections);
+        }
+        this.permits = new Semaphore(permits, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.objectMapper = objectMapper;
+        log.info("Limiting concurrent API requests to {} permits", permits);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith(API_PREFIX) || path.endsWith(ALERT_STREAM_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            reject(request, response);
+            return;
+        }
+        Permit permit = new Permit();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                GenericResponse.error("Server busy, retry later", request.getRequestURI(), status.value(), "BUSY"));
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    // An async request can end with both onError/onTimeout and onComplete, so the permit is released once
+    private final class Permit implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Restarting async on a later dispatch removes the listener, so it is registered again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
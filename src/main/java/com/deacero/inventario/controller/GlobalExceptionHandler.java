@@ -1,9 +1,13 @@
 package com.deacero.inventario.controller;
 
 import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.exception.ConflictException;
 import com.deacero.inventario.exception.InsufficientStockException;
+import com.deacero.inventario.exception.MovementPendingException;
 import com.deacero.inventario.exception.ResourceNotFoundException;
+import com.deacero.inventario.exception.ServiceUnavailableException;
 import com.deacero.inventario.models.GenericResponse;
+import com.deacero.inventario.service.InventoryMetrics;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,11 +15,22 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+	private final InventoryMetrics inventoryMetrics;
+
+	public GlobalExceptionHandler(InventoryMetrics inventoryMetrics) {
+		this.inventoryMetrics = inventoryMetrics;
+	}
+
 	private GenericResponse<Void> build(HttpStatus status, String message, String path, String code) {
+		inventoryMetrics.recordError(code);
 		return GenericResponse.error(message, path, status.value(), code);
 	}
 
@@ -31,12 +46,39 @@ public class GlobalExceptionHandler {
 		return build(HttpStatus.BAD_REQUEST, ex.getMessage(), req.getRequest().getRequestURI(), "BAD_REQUEST");
 	}
 
+	@ResponseStatus(HttpStatus.CONFLICT)
+	@ExceptionHandler(ConflictException.class)
+	public GenericResponse<Void> handleConflict(ConflictException ex, ServletWebRequest req) {
+		return build(HttpStatus.CONFLICT, ex.getMessage(), req.getRequest().getRequestURI(), "CONFLICT");
+	}
+
+	// Not an error: the movements were accepted and may still be applied, so the caller gets their ids
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	@ExceptionHandler(MovementPendingException.class)
+	public GenericResponse<List<UUID>> handlePending(MovementPendingException ex, ServletWebRequest req) {
+		return GenericResponse.<List<UUID>>builder()
+				.success(true)
+				.message(ex.getMessage())
+				.data(ex.getMovementIds())
+				.timestamp(Instant.now())
+				.path(req.getRequest().getRequestURI())
+				.status(HttpStatus.ACCEPTED.value())
+				.code("PENDING")
+				.build();
+	}
+
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	@ExceptionHandler(InsufficientStockException.class)
 	public GenericResponse<Void> handleInsufficientStock(InsufficientStockException ex, ServletWebRequest req) {
 		return build(HttpStatus.BAD_REQUEST, ex.getMessage(), req.getRequest().getRequestURI(), "INSUFFICIENT_STOCK");
 	}
 
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	@ExceptionHandler(ServiceUnavailableException.class)
+	public GenericResponse<Void> handleUnavailable(ServiceUnavailableException ex, ServletWebRequest req) {
+		return build(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), req.getRequest().getRequestURI(), "BUSY");
+	}
+
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public GenericResponse<Void> handleValidation(MethodArgumentNotValidException ex, ServletWebRequest req) {
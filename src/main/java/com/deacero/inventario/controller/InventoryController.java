@@ -1,6 +1,17 @@
 package com.deacero.inventario.controller;
 
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.CursorPage;
+import com.deacero.inventario.models.ExportFormat;
 import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.models.MovementStatsResponse;
+import com.deacero.inventario.models.StatsGranularity;
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.models.StockImportResult;
 import com.deacero.inventario.models.ProductRequest;
 import com.deacero.inventario.models.ProductResponse;
 import com.deacero.inventario.models.LowStockProductResponse;
@@ -10,8 +21,15 @@ import com.deacero.inventario.models.TransactionResponse;
 import com.deacero.inventario.models.TransferRequest;
 import com.deacero.inventario.models.GenericResponse;
 import com.deacero.inventario.exception.ResourceNotFoundException;
+import com.deacero.inventario.service.HistoryExportService;
+import com.deacero.inventario.service.IdempotencyService;
+import com.deacero.inventario.service.InventoryMetrics;
+import com.deacero.inventario.service.InventorySnapshotService;
 import com.deacero.inventario.service.InventoryService;
+import com.deacero.inventario.service.LowStockAlertTracker;
+import com.deacero.inventario.service.MovementStatsService;
 import com.deacero.inventario.service.ProductService;
+import com.deacero.inventario.service.StockImportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -19,20 +37,32 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.List;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import java.util.UUID;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,12 +71,32 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Inventory", description = "Inventory management")
 public class InventoryController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final ProductService productService;
     private final InventoryService inventoryService;
+    private final LowStockAlertTracker lowStockAlertTracker;
+    private final StockImportService stockImportService;
+    private final HistoryExportService historyExportService;
+    private final InventorySnapshotService inventorySnapshotService;
+    private final MovementStatsService movementStatsService;
+    private final IdempotencyService idempotencyService;
+    private final InventoryMetrics inventoryMetrics;
 
-    public InventoryController(ProductService productService, InventoryService inventoryService) {
+    public InventoryController(ProductService productService, InventoryService inventoryService,
+            LowStockAlertTracker lowStockAlertTracker, StockImportService stockImportService,
+            HistoryExportService historyExportService, InventorySnapshotService inventorySnapshotService,
+            MovementStatsService movementStatsService, IdempotencyService idempotencyService,
+            InventoryMetrics inventoryMetrics) {
         this.productService = productService;
         this.inventoryService = inventoryService;
+        this.lowStockAlertTracker = lowStockAlertTracker;
+        this.stockImportService = stockImportService;
+        this.historyExportService = historyExportService;
+        this.inventorySnapshotService = inventorySnapshotService;
+        this.movementStatsService = movementStatsService;
+        this.idempotencyService = idempotencyService;
+        this.inventoryMetrics = inventoryMetrics;
     }
 
     // 1. Gestión de Productos
@@ -110,10 +160,16 @@ public class InventoryController {
     @GetMapping("/stores/{id}/inventory")
     @Operation(summary = "List inventory by store Id")
     @ApiResponse(responseCode = "200", description = "Inventory fetched")
+    @ApiResponse(responseCode = "400", description = "asOf in the future")
     @ApiResponse(responseCode = "404", description = "Store not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public GenericResponse<List<InventoryItemResponse>> listInventoryByStore(@PathVariable("id") String storeId) {
-        List<InventoryItemResponse> data = inventoryService.getInventoryByStore(storeId);
+    public GenericResponse<List<InventoryItemResponse>> listInventoryByStore(
+            @PathVariable("id") String storeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf
+    ) {
+        List<InventoryItemResponse> data = asOf == null
+                ? inventoryService.getInventoryByStore(storeId)
+                : inventorySnapshotService.getInventoryAsOf(storeId, asOf);
         return GenericResponse.ok(data, "Inventory fetched", "/deacero/api/v1/stores/" + storeId + "/inventory");
     }
 
@@ -121,9 +177,16 @@ public class InventoryController {
     @Operation(summary = "Transfer inventory between stores")
     @ApiResponse(responseCode = "200", description = "Transfer completed")
     @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "202", description = "Not yet acknowledged by the ledger engine; data holds the pending movement ids")
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key already used for a different request")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public GenericResponse<Void> transferInventory(@RequestBody TransferRequest request) {
-        inventoryService.transfer(request);
+    public GenericResponse<Void> transferInventory(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody TransferRequest request) {
+        idempotencyService.execute(idempotencyKey, "transfer", request, Void.class, () -> {
+            inventoryService.transfer(request);
+            inventoryMetrics.recordMovements(Transaction.Type.TRANSFER, 1, request.getQuantity());
+            return null;
+        });
         return GenericResponse.ok(null, "Transfer completed", "/deacero/api/v1/inventory/transfer");
     }
 
@@ -131,31 +194,68 @@ public class InventoryController {
     @Operation(summary = "List low stock alerts")
     @ApiResponse(responseCode = "200", description = "Low stock alerts fetched")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public GenericResponse<List<LowStockProductResponse>> lowStockAlerts() {
-        List<LowStockProductResponse> data = inventoryService.listLowStockAlerts();
+    public GenericResponse<Page<LowStockProductResponse>> lowStockAlerts(
+            @RequestParam(required = false) String storeId,
+            @RequestParam(required = false) String category,
+            @PageableDefault(size = 20) Pageable pageable
+    ) {
+        Page<LowStockProductResponse> data = inventoryService.listLowStockAlerts(storeId, category, pageable);
         return GenericResponse.ok(data, "Low stock alerts", "/deacero/api/v1/inventory/alerts");
     }
 
+    @GetMapping(path = "/inventory/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to low stock alerts (Server-Sent Events)")
+    @ApiResponse(responseCode = "200", description = "Snapshot event followed by alert RAISED/CLEARED events")
+    public SseEmitter streamLowStockAlerts() {
+        return lowStockAlertTracker.subscribe();
+    }
+
     // 3. Carga inicial, entradas, salidas e historial
     @PostMapping("/inventory/load")
     @Operation(summary = "Load initial stock")
     @ApiResponse(responseCode = "201", description = "Initial stock loaded")
     @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key already used for a different request")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @ResponseStatus(HttpStatus.CREATED)
-    public GenericResponse<Void> loadInitial(@Valid @RequestBody StockLoadRequest request) {
-        inventoryService.loadInitialStock(request);
+    public GenericResponse<Void> loadInitial(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody StockLoadRequest request) {
+        idempotencyService.execute(idempotencyKey, "load", request, Void.class, () -> {
+            inventoryService.loadInitialStock(request);
+            // Only a positive initial quantity is written to the ledger as an IN movement
+            inventoryMetrics.recordMovements(Transaction.Type.IN, request.getQuantity() > 0 ? 1 : 0, request.getQuantity());
+            return null;
+        });
         return GenericResponse.ok(null, "Initial stock loaded", "/deacero/api/v1/inventory/load");
     }
 
+    // The body is read straight from the request stream, never buffered whole
+    @PostMapping(path = "/inventory/load:import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Bulk load initial stock from CSV or NDJSON")
+    @ApiResponse(responseCode = "200", description = "Import finished, with loaded and rejected row counts")
+    @ApiResponse(responseCode = "415", description = "Unsupported content type")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public GenericResponse<StockImportResult> importInitialStock(HttpServletRequest request) throws IOException {
+        StockImportResult data = stockImportService.importStock(request.getInputStream(),
+                StockImportFormat.fromContentType(request.getContentType()));
+        return GenericResponse.ok(data, "Initial stock imported", "/deacero/api/v1/inventory/load:import");
+    }
+
     @PostMapping("/inventory/in")
     @Operation(summary = "Register entry into store")
     @ApiResponse(responseCode = "201", description = "Entry registered")
     @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "202", description = "Not yet acknowledged by the ledger engine; data holds the pending movement ids")
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key already used for a different request")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @ResponseStatus(HttpStatus.CREATED)
-    public GenericResponse<Void> registerEntry(@Valid @RequestBody MovementRequest request) {
-        inventoryService.registerEntry(request);
+    public GenericResponse<Void> registerEntry(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody MovementRequest request) {
+        idempotencyService.execute(idempotencyKey, "in", request, Void.class, () -> {
+            inventoryService.registerEntry(request);
+            inventoryMetrics.recordMovements(Transaction.Type.IN, 1, request.getQuantity());
+            return null;
+        });
         return GenericResponse.ok(null, "Entry registered", "/deacero/api/v1/inventory/in");
     }
 
@@ -163,13 +263,41 @@ public class InventoryController {
     @Operation(summary = "Register out from store")
     @ApiResponse(responseCode = "201", description = "Out registered")
     @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "202", description = "Not yet acknowledged by the ledger engine; data holds the pending movement ids")
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key already used for a different request")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @ResponseStatus(HttpStatus.CREATED)
-    public GenericResponse<Void> registerOut(@Valid @RequestBody MovementRequest request) {
-        inventoryService.registerOut(request);
+    public GenericResponse<Void> registerOut(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody MovementRequest request) {
+        idempotencyService.execute(idempotencyKey, "out", request, Void.class, () -> {
+            inventoryService.registerOut(request);
+            inventoryMetrics.recordMovements(Transaction.Type.OUT, 1, request.getQuantity());
+            return null;
+        });
         return GenericResponse.ok(null, "Out registered", "/deacero/api/v1/inventory/out");
     }
 
+    @PostMapping("/inventory/movements:batch")
+    @Operation(summary = "Register a batch of entries or outs in one transaction")
+    @ApiResponse(responseCode = "200", description = "Batch processed, with a result per line")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "202", description = "Not yet acknowledged by the ledger engine; data holds the pending movement ids")
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key already used for a different request")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public GenericResponse<BatchMovementResponse> registerMovements(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody BatchMovementRequest request) {
+        BatchMovementResponse data = idempotencyService.execute(idempotencyKey, "movementsBatch", request,
+                BatchMovementResponse.class, () -> {
+                    BatchMovementResponse response = inventoryService.registerMovements(request);
+                    inventoryMetrics.recordMovements(response.getType(), response.getApplied(), response.getResults().stream()
+                            .filter(r -> r.getStatus() == BatchMovementResult.Status.APPLIED)
+                            .mapToLong(BatchMovementResult::getQuantity)
+                            .sum());
+                    return response;
+                });
+        return GenericResponse.ok(data, "Batch processed", "/deacero/api/v1/inventory/movements:batch");
+    }
+
     @GetMapping("/inventory/history")
     @Operation(summary = "List history of transactions")
     @ApiResponse(responseCode = "200", description = "History of transactions fetched")
@@ -177,10 +305,77 @@ public class InventoryController {
     public GenericResponse<Page<TransactionResponse>> history(
             @RequestParam(required = false) UUID productId,
             @RequestParam(required = false) String storeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
             @PageableDefault(size = 20) Pageable pageable
     ) {
-        Page<TransactionResponse> data = inventoryService.listHistory(productId, storeId, pageable);
+        requireRange(from, to);
+        Page<TransactionResponse> data = inventoryService.listHistory(productId, storeId, from, to, pageable);
+        return GenericResponse.ok(data, "History fetched", "/deacero/api/v1/inventory/history");
+    }
+
+    // Selected instead of the offset variant whenever a cursor parameter is sent (empty for the first page)
+    @GetMapping(path = "/inventory/history", params = "cursor")
+    @Operation(summary = "List history of transactions with keyset pagination")
+    @ApiResponse(responseCode = "200", description = "History page fetched, with nextCursor when more rows exist")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or size")
+    public GenericResponse<CursorPage<TransactionResponse>> historyByCursor(
+            @RequestParam(required = false) UUID productId,
+            @RequestParam(required = false) String storeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        requireRange(from, to);
+        CursorPage<TransactionResponse> data = inventoryService.listHistoryByCursor(productId, storeId, from, to,
+                cursor, size);
         return GenericResponse.ok(data, "History fetched", "/deacero/api/v1/inventory/history");
     }
 
+    @GetMapping("/inventory/history/export")
+    @Operation(summary = "Export the full history of transactions as NDJSON or CSV")
+    @ApiResponse(responseCode = "200", description = "History streamed")
+    @ApiResponse(responseCode = "400", description = "Unsupported format or invalid range")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(required = false) UUID productId,
+            @RequestParam(required = false) String storeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        requireRange(from, to);
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = output -> historyExportService.exportHistory(productId, storeId, from, to,
+                exportFormat, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("history." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
+    @GetMapping("/inventory/stats")
+    @Operation(summary = "Movement totals per product, store and type by day, week or month")
+    @ApiResponse(responseCode = "200", description = "Stats fetched from the daily rollups")
+    @ApiResponse(responseCode = "400", description = "Unsupported granularity or invalid range")
+    public GenericResponse<Page<MovementStatsResponse>> stats(
+            @RequestParam(required = false) UUID productId,
+            @RequestParam(required = false) String storeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity,
+            @PageableDefault(size = 100) Pageable pageable
+    ) {
+        Page<MovementStatsResponse> data = movementStatsService.getStats(productId, storeId, from, to,
+                StatsGranularity.fromParam(granularity), pageable);
+        return GenericResponse.ok(data, "Stats fetched", "/deacero/api/v1/inventory/stats");
+    }
+
+    // Checked here rather than in the services so the export fails before the response is committed
+    private static void requireRange(OffsetDateTime from, OffsetDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.deacero.inventario.controller;
+
+import com.deacero.inventario.repository.QueryCounter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Opens a {@link QueryCounter} scope per API request and logs the statement count and DB time as
+ * {@code sqlStatements} / {@code sqlTimeMs} fields of the JSON log: at DEBUG for every request and at
+ * WARN once a request runs more than {@code warn-threshold} statements, which is how N+1 patterns show up.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.query-count.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/deacero/api/";
+
+    private final int warnThreshold;
+
+    public QueryCountFilter(@Value("${inventory.query-count.warn-threshold:20}") int warnThreshold) {
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryCounter.QueryCount count = QueryCounter.stop();
+            if (count.statements() > warnThreshold) {
+                log.warn("{} {} ran {} SQL statements", request.getMethod(), request.getRequestURI(), count.statements(),
+                        kv("sqlStatements", count.statements()), kv("sqlTimeMs", count.elapsedMs()));
+            } else if (log.isDebugEnabled()) {
+                log.debug("{} {} ran {} SQL statements", request.getMethod(), request.getRequestURI(), count.statements(),
+                        kv("sqlStatements", count.statements()), kv("sqlTimeMs", count.elapsedMs()));
+            }
+        }
+    }
+}
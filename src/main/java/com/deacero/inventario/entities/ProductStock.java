@@ -0,0 +1,28 @@
+package com.deacero.inventario.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "product_stock")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStock {
+
+    @Id
+    @Column(name = "product_id")
+    private java.util.UUID productId;
+
+    @Column(name = "total_quantity", nullable = false)
+    private Integer totalQuantity;
+}
@@ -0,0 +1,17 @@
+package com.deacero.inventario.exception;
+
+import java.util.List;
+import java.util.UUID;
+
+public class MovementPendingException extends RuntimeException {
+	private final List<UUID> movementIds;
+
+	public MovementPendingException(String message, List<UUID> movementIds) {
+		super(message);
+		this.movementIds = List.copyOf(movementIds);
+	}
+
+	public List<UUID> getMovementIds() {
+		return movementIds;
+	}
+}
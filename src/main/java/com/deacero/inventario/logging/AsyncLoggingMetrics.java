@@ -0,0 +1,60 @@
+package com.deacero.inventario.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.filter.Filter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.function.ToLongFunction;
+
+/**
+ * Exports the root logger's {@link MeteredAsyncAppender}s: {@code logging.events.dropped} by reason
+ * (discarded, queue_full, sampled) and the free slots left in the queue ({@code logging.queue.remaining}).
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof MeteredAsyncAppender appender) {
+                bind(registry, appender);
+            }
+        }
+    }
+
+    private static void bind(MeterRegistry registry, MeteredAsyncAppender appender) {
+        String name = appender.getName();
+        dropped(registry, name, "discarded", appender, MeteredAsyncAppender::getDiscarded);
+        dropped(registry, name, "queue_full", appender, MeteredAsyncAppender::getDropped);
+        for (Filter<ILoggingEvent> filter : appender.getCopyOfAttachedFiltersList()) {
+            if (filter instanceof SamplingFilter sampling) {
+                dropped(registry, name, "sampled", sampling, SamplingFilter::getSampledOut);
+            }
+        }
+        Gauge.builder("logging.queue.remaining", appender, MeteredAsyncAppender::getRemainingCapacity)
+                .description("Free slots in the async logging queue")
+                .tag("appender", name)
+                .register(registry);
+    }
+
+    private static <T> void dropped(MeterRegistry registry, String appender, String reason, T source,
+            ToLongFunction<T> count) {
+        FunctionCounter.builder("logging.events.dropped", source, s -> count.applyAsLong(s))
+                .description("Log events not written, by reason")
+                .tags("appender", appender, "reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,41 @@
+package com.deacero.inventario.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link AsyncAppender} that counts what it throws away: INFO and lower events discarded once the queue
+ * has less than {@code discardingThreshold} free slots, and any event dropped because the queue is full
+ * and {@code neverBlock} is set. The full-queue count is checked just before the offer, so under heavy
+ * contention a few drops can go uncounted. Exported by {@link AsyncLoggingMetrics}.
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (isStarted()) {
+            if (isQueueBelowDiscardingThreshold() && isDiscardable(event)) {
+                discarded.increment();
+                return;
+            }
+            if (isNeverBlock() && getRemainingCapacity() == 0) {
+                dropped.increment();
+                return;
+            }
+        }
+        super.append(event);
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
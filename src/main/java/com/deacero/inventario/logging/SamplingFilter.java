@@ -0,0 +1,62 @@
+package com.deacero.inventario.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one in {@code rate} INFO and lower events from the configured loggers (per-request logs such
+ * as the product listing) and lets everything else through. {@code loggerName} may be repeated or hold
+ * a comma separated list; a name also matches its child loggers.
+ */
+public class SamplingFilter extends Filter<ILoggingEvent> {
+
+    private final List<String> loggerNames = new ArrayList<>();
+    private final AtomicLong seen = new AtomicLong();
+    private final LongAdder sampledOut = new LongAdder();
+    private int rate = 1;
+
+    public void addLoggerName(String names) {
+        for (String name : names.split(",")) {
+            if (!name.isBlank()) {
+                loggerNames.add(name.trim());
+            }
+        }
+    }
+
+    public void setRate(int rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (rate == 1 || event.getLevel().toInt() > Level.INFO_INT || !matches(event.getLoggerName())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (seen.getAndIncrement() % rate == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        sampledOut.increment();
+        return FilterReply.DENY;
+    }
+
+    public long getSampledOut() {
+        return sampledOut.sum();
+    }
+
+    private boolean matches(String loggerName) {
+        for (String name : loggerNames) {
+            if (loggerName.startsWith(name)
+                    && (loggerName.length() == name.length() || loggerName.charAt(name.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.deacero.inventario.models;
+
+import com.deacero.inventario.entities.Transaction;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchMovementRequest {
+	@NotNull
+	private Transaction.Type type;
+	@NotEmpty
+	@Size(max = 1000)
+	private List<@Valid @NotNull MovementRequest> movements;
+}
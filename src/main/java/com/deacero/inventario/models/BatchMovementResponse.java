@@ -0,0 +1,22 @@
+package com.deacero.inventario.models;
+
+import com.deacero.inventario.entities.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchMovementResponse {
+	private Transaction.Type type;
+	private int applied;
+	private int rejected;
+	private List<BatchMovementResult> results;
+}
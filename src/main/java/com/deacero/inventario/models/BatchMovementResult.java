@@ -0,0 +1,47 @@
+package com.deacero.inventario.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchMovementResult {
+	public enum Status {
+		APPLIED,
+		REJECTED
+	}
+
+	public enum Reason {
+		PRODUCT_NOT_FOUND("Product not found"),
+		INSUFFICIENT_STOCK("Insufficient stock in store");
+
+		private final String message;
+
+		Reason(String message) {
+			this.message = message;
+		}
+
+		public String message() {
+			return message;
+		}
+	}
+
+	private int line;
+	private UUID productId;
+	private String storeId;
+	private Integer quantity;
+	private Status status;
+	private Integer resultingQuantity;
+	private Reason reason;
+	private String message;
+}
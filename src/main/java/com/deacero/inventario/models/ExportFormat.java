@@ -0,0 +1,31 @@
+package com.deacero.inventario.models;
+
+public enum ExportFormat {
+	NDJSON("application/x-ndjson", "ndjson"),
+	CSV("text/csv", "csv");
+
+	private final String contentType;
+	private final String extension;
+
+	ExportFormat(String contentType, String extension) {
+		this.contentType = contentType;
+		this.extension = extension;
+	}
+
+	public static ExportFormat fromParam(String value) {
+		for (ExportFormat format : values()) {
+			if (format.name().equalsIgnoreCase(value)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported export format: " + value);
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+}
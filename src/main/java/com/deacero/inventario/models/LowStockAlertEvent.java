@@ -0,0 +1,23 @@
+package com.deacero.inventario.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LowStockAlertEvent {
+	public enum Type {
+		RAISED,
+		CLEARED
+	}
+
+	private Type type;
+	private LowStockProductResponse alert;
+	private java.time.Instant timestamp;
+}
@@ -0,0 +1,26 @@
+package com.deacero.inventario.models;
+
+import com.deacero.inventario.entities.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MovementStatsResponse {
+	private LocalDate period;
+	private UUID productId;
+	private String storeId;
+	private Transaction.Type type;
+	private long movements;
+	private long quantityIn;
+	private long quantityOut;
+}
@@ -0,0 +1,16 @@
+package com.deacero.inventario.models;
+
+public enum StatsGranularity {
+	DAY,
+	WEEK,
+	MONTH;
+
+	public static StatsGranularity fromParam(String value) {
+		for (StatsGranularity granularity : values()) {
+			if (granularity.name().equalsIgnoreCase(value)) {
+				return granularity;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported granularity: " + value);
+	}
+}
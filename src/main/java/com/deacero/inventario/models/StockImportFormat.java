@@ -0,0 +1,18 @@
+package com.deacero.inventario.models;
+
+public enum StockImportFormat {
+	CSV,
+	NDJSON;
+
+	public static StockImportFormat fromContentType(String contentType) {
+		if (contentType != null && contentType.toLowerCase().contains("ndjson")) {
+			return NDJSON;
+		}
+		return CSV;
+	}
+
+	public static StockImportFormat fromFileName(String fileName) {
+		String lower = fileName.toLowerCase();
+		return lower.endsWith(".ndjson") || lower.endsWith(".jsonl") ? NDJSON : CSV;
+	}
+}
@@ -0,0 +1,23 @@
+package com.deacero.inventario.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockImportResult {
+	private long received;
+	private long loaded;
+	private long rejected;
+	private long durationMs;
+	// Capped at inventory.import.max-reported-rejections; rejected holds the full count
+	private List<StockImportRejection> rejections;
+}
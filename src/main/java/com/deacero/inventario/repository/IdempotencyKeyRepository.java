@@ -0,0 +1,34 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.entities.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // Returns 0 when the key exists. If another transaction holds it uncommitted, this waits for it to
+    // finish: a commit means the key is taken, a rollback lets this insert go through.
+    @Modifying
+    @Query(value = """
+        insert into idempotency_key (idempotency_key, operation, request_hash)
+        values (:key, :operation, :requestHash)
+        on conflict (idempotency_key) do nothing
+    """, nativeQuery = true)
+    int claim(@Param("key") String key,
+            @Param("operation") String operation,
+            @Param("requestHash") String requestHash);
+
+    @Modifying
+    @Query("update IdempotencyKey k set k.response = :response where k.key = :key")
+    int recordResponse(@Param("key") String key, @Param("response") String response);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") OffsetDateTime cutoff);
+}
@@ -1,6 +1,9 @@
 package com.deacero.inventario.repository;
 
 import com.deacero.inventario.entities.Inventory;
+import com.deacero.inventario.models.LowStockProductResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,20 +20,202 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
 
     Optional<Inventory> findByStoreIdAndProductId(String storeId, UUID productId);
 
-    @Query("""
-        select i.productId
+    // Stock changes are single conditional statements: the row lock taken by the UPDATE/upsert
+    // serializes concurrent movements on the same store/product, and the quantity check is part of
+    // the WHERE clause, so there is no window between reading and writing the quantity.
+
+    @Query(value = """
+        with moved as (
+            update inventory
+            set quantity = quantity - :quantity
+            where store_id = :storeId and product_id = :productId and quantity >= :quantity
+            returning product_id, store_id, quantity, min_stock
+        ), total as (
+            update product_stock ps
+            set total_quantity = ps.total_quantity - :quantity
+            from moved
+            where ps.product_id = moved.product_id
+        ), ledger as (
+            insert into "transaction" (product_id, source_store_id, quantity, type)
+            select product_id, store_id, :quantity, cast('OUT' as transaction_type)
+            from moved
+        )
+        select product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+        from moved
+    """, nativeQuery = true)
+    Optional<StockLevel> applyOut(@Param("storeId") String storeId,
+            @Param("productId") UUID productId,
+            @Param("quantity") int quantity);
+
+    @Query(value = """
+        with moved as (
+            insert into inventory (product_id, store_id, quantity, min_stock)
+            values (:productId, :storeId, :quantity, 0)
+            on conflict (store_id, product_id)
+            do update set quantity = inventory.quantity + excluded.quantity
+            returning product_id, store_id, quantity, min_stock
+        ), total as (
+            insert into product_stock (product_id, total_quantity)
+            select product_id, :quantity from moved
+            on conflict (product_id)
+            do update set total_quantity = product_stock.total_quantity + excluded.total_quantity
+        ), ledger as (
+            insert into "transaction" (product_id, target_store_id, quantity, type)
+            select product_id, store_id, :quantity, cast('IN' as transaction_type)
+            from moved
+        )
+        select product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+        from moved
+    """, nativeQuery = true)
+    StockLevel applyEntry(@Param("storeId") String storeId,
+            @Param("productId") UUID productId,
+            @Param("quantity") int quantity);
+
+    // Only inserts, or overwrites a row that still has quantity 0; no row back means it was already initialized
+    @Query(value = """
+        with loaded as (
+            insert into inventory (product_id, store_id, quantity, min_stock)
+            values (:productId, :storeId, :quantity, coalesce(:minStock, 0))
+            on conflict (store_id, product_id)
+            do update set quantity = excluded.quantity,
+                          min_stock = coalesce(:minStock, inventory.min_stock)
+            where inventory.quantity = 0
+            returning product_id, store_id, quantity, min_stock
+        ), total as (
+            insert into product_stock (product_id, total_quantity)
+            select product_id, :quantity from loaded
+            on conflict (product_id)
+            do update set total_quantity = product_stock.total_quantity + excluded.total_quantity
+        ), ledger as (
+            insert into "transaction" (product_id, target_store_id, quantity, type)
+            select product_id, store_id, :quantity, cast('IN' as transaction_type)
+            from loaded
+            where :quantity > 0
+        )
+        select product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+        from loaded
+    """, nativeQuery = true)
+    Optional<StockLevel> applyInitialLoad(@Param("storeId") String storeId,
+            @Param("productId") UUID productId,
+            @Param("quantity") int quantity,
+            @Param("minStock") Integer minStock);
+
+    @Query(value = """
+        update inventory
+        set quantity = quantity - :quantity
+        where store_id = :storeId and product_id = :productId and quantity >= :quantity
+        returning product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+    """, nativeQuery = true)
+    Optional<StockLevel> decreaseQuantity(@Param("storeId") String storeId,
+            @Param("productId") UUID productId,
+            @Param("quantity") int quantity);
+
+    @Query(value = """
+        insert into inventory (product_id, store_id, quantity, min_stock)
+        values (:productId, :storeId, :quantity, 0)
+        on conflict (store_id, product_id)
+        do update set quantity = inventory.quantity + excluded.quantity
+        returning product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+    """, nativeQuery = true)
+    StockLevel increaseQuantity(@Param("storeId") String storeId,
+            @Param("productId") UUID productId,
+            @Param("quantity") int quantity);
+
+    // Batch variants take one aggregated delta per store/product as parallel arrays, so a whole receipt
+    // is a single statement regardless of its number of lines. Rows are visited in store/product order,
+    // the same order transfers lock them in; store ids are compared with the "C" collation (by code point)
+    // so the order does not depend on the database's collation and matches the Java side.
+
+    @Query(value = """
+        select product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+        from inventory
+        where (store_id, product_id) in (
+            select * from unnest(cast(:storeIds as varchar[]), cast(:productIds as uuid[])))
+        order by store_id collate "C", product_id
+        for update
+    """, nativeQuery = true)
+    List<StockLevel> lockLevels(@Param("storeIds") String[] storeIds,
+            @Param("productIds") UUID[] productIds);
+
+    @Query(value = """
+        with delta as (
+            select * from unnest(cast(:storeIds as varchar[]), cast(:productIds as uuid[]), cast(:quantities as int[]))
+                as d(store_id, product_id, quantity)
+        ), moved as (
+            insert into inventory (product_id, store_id, quantity, min_stock)
+            select product_id, store_id, quantity, 0
+            from delta
+            order by store_id collate "C", product_id
+            on conflict (store_id, product_id)
+            do update set quantity = inventory.quantity + excluded.quantity
+            returning product_id, store_id, quantity, min_stock
+        ), total as (
+            insert into product_stock (product_id, total_quantity)
+            select product_id, sum(quantity) from delta group by product_id
+            on conflict (product_id)
+            do update set total_quantity = product_stock.total_quantity + excluded.total_quantity
+        )
+        select product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+        from moved
+    """, nativeQuery = true)
+    List<StockLevel> increaseQuantities(@Param("storeIds") String[] storeIds,
+            @Param("productIds") UUID[] productIds,
+            @Param("quantities") int[] quantities);
+
+    @Query(value = """
+        with delta as (
+            select * from unnest(cast(:storeIds as varchar[]), cast(:productIds as uuid[]), cast(:quantities as int[]))
+                as d(store_id, product_id, quantity)
+        ), moved as (
+            update inventory i
+            set quantity = i.quantity - delta.quantity
+            from delta
+            where i.store_id = delta.store_id and i.product_id = delta.product_id and i.quantity >= delta.quantity
+            returning i.product_id, i.store_id, i.quantity, i.min_stock, delta.quantity as moved_quantity
+        ), total as (
+            update product_stock ps
+            set total_quantity = ps.total_quantity - t.quantity
+            from (select product_id, sum(moved_quantity) as quantity from moved group by product_id) t
+            where ps.product_id = t.product_id
+        )
+        select product_id as "productId", store_id as "storeId", quantity, min_stock as "minStock"
+        from moved
+    """, nativeQuery = true)
+    List<StockLevel> decreaseQuantities(@Param("storeIds") String[] storeIds,
+            @Param("productIds") UUID[] productIds,
+            @Param("quantities") int[] quantities);
+
+    // i.quantity <= i.minStock matches the predicate of the partial index idx_inventory_low_stock
+    @Query(value = """
+        select new com.deacero.inventario.models.LowStockProductResponse(
+            p.id, p.name, p.sku, p.price, i.storeId, i.quantity, i.minStock)
         from Inventory i
-        group by i.productId
-        having sum(i.quantity) >= :minQuantity
+        join Product p on p.id = i.productId
+        where i.quantity <= i.minStock
+        and (:storeId is null or i.storeId = :storeId)
+        and (:category is null or p.category = :category)
+        order by i.storeId, p.name
+    """, countQuery = """
+        select count(i)
+        from Inventory i
+        join Product p on p.id = i.productId
+        where i.quantity <= i.minStock
+        and (:storeId is null or i.storeId = :storeId)
+        and (:category is null or p.category = :category)
     """)
-    List<UUID> findProductIdsWithTotalQuantityAtLeast(@Param("minQuantity") int minQuantity);
+    Page<LowStockProductResponse> findLowStockAlerts(
+            @Param("storeId") String storeId,
+            @Param("category") String category,
+            Pageable pageable);
 
     @Query("""
-        select i
+        select new com.deacero.inventario.models.LowStockProductResponse(
+            p.id, p.name, p.sku, p.price, i.storeId, i.quantity, i.minStock)
         from Inventory i
+        join Product p on p.id = i.productId
         where i.quantity <= i.minStock
     """)
-    List<Inventory> findLowStockItems();
+    List<LowStockProductResponse> findAllLowStockAlerts();
 }
 
 
@@ -0,0 +1,117 @@
+package com.deacero.inventario.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Snapshots of inventory quantities (inventory_snapshot in init.sql) and the per-store movement sums used
+ * to move a snapshot, or the live inventory, to another point in time. Quantities are returned as
+ * product id to quantity maps for a single store.
+ */
+@Repository
+public class InventorySnapshotRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventorySnapshotRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Serializes snapshot maintenance across replicas until the surrounding transaction ends. */
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select pg_try_advisory_xact_lock(hashtext('inventory_snapshot'))", Boolean.class));
+    }
+
+    public OffsetDateTime findLatest() {
+        return jdbcTemplate.queryForObject("select max(taken_at) from inventory_snapshot_run", OffsetDateTime.class);
+    }
+
+    public OffsetDateTime findLatestAtOrBefore(OffsetDateTime asOf) {
+        return jdbcTemplate.queryForObject(
+                "select max(taken_at) from inventory_snapshot_run where taken_at <= ?", OffsetDateTime.class, asOf);
+    }
+
+    public OffsetDateTime findEarliestAfter(OffsetDateTime asOf) {
+        return jdbcTemplate.queryForObject(
+                "select min(taken_at) from inventory_snapshot_run where taken_at > ?", OffsetDateTime.class, asOf);
+    }
+
+    public long countMovementsSince(OffsetDateTime since) {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from \"transaction\" where \"timestamp\" >= ?", Long.class, since);
+        return count == null ? 0 : count;
+    }
+
+    // The live quantities minus every movement at or after takenAt, in one statement so both sides come
+    // from the same MVCC snapshot. Working back from inventory (rather than summing the ledger forward)
+    // keeps stock loaded without ledger rows in the snapshot.
+    public int create(OffsetDateTime takenAt) {
+        jdbcTemplate.update("insert into inventory_snapshot_run (taken_at) values (?)", takenAt);
+        return jdbcTemplate.update("""
+            insert into inventory_snapshot (taken_at, store_id, product_id, quantity)
+            select ?, i.store_id, i.product_id, i.quantity - coalesce(d.delta, 0)
+            from inventory i
+            left join (
+                select store_id, product_id, sum(delta) as delta
+                from (
+                    select source_store_id as store_id, product_id, -quantity as delta
+                    from "transaction"
+                    where "timestamp" >= ? and source_store_id is not null
+                    union all
+                    select target_store_id, product_id, quantity
+                    from "transaction"
+                    where "timestamp" >= ? and target_store_id is not null
+                ) m
+                group by store_id, product_id
+            ) d on d.store_id = i.store_id and d.product_id = i.product_id
+            where i.quantity - coalesce(d.delta, 0) <> 0
+        """, takenAt, takenAt, takenAt);
+    }
+
+    public int deleteBefore(OffsetDateTime before) {
+        return jdbcTemplate.update("delete from inventory_snapshot_run where taken_at < ?", before);
+    }
+
+    public Map<UUID, Integer> findSnapshot(String storeId, OffsetDateTime takenAt) {
+        return quantities("select product_id, quantity from inventory_snapshot where store_id = ? and taken_at = ?",
+                storeId, takenAt);
+    }
+
+    public Map<UUID, Integer> findCurrent(String storeId) {
+        return quantities("select product_id, quantity from inventory where store_id = ?", storeId);
+    }
+
+    /**
+     * Net change of each product at the store from movements in [{@code from}, {@code to}); an open
+     * {@code to} takes everything from {@code from} on. One branch per store column, like the history.
+     */
+    public Map<UUID, Integer> sumMovements(String storeId, OffsetDateTime from, OffsetDateTime to) {
+        String range = to == null ? "\"timestamp\" >= ?" : "\"timestamp\" >= ? and \"timestamp\" < ?";
+        Object[] args = to == null
+                ? new Object[] {storeId, from, storeId, from}
+                : new Object[] {storeId, from, to, storeId, from, to};
+        return quantities("""
+            select product_id, sum(delta)::integer
+            from (
+                select product_id, -quantity as delta from "transaction" where source_store_id = ? and %1$s
+                union all
+                select product_id, quantity from "transaction" where target_store_id = ? and %1$s
+            ) m
+            group by product_id
+        """.formatted(range), args);
+    }
+
+    private Map<UUID, Integer> quantities(String sql, Object... args) {
+        Map<UUID, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            quantities.put(rs.getObject(1, UUID.class), rs.getInt(2));
+        }, args);
+        return quantities;
+    }
+}
@@ -0,0 +1,27 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.entities.Transaction;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One accepted stock movement of the in-memory ledger engine, as written to its WAL and later to the
+ * transaction table. {@code id} becomes the transaction id, which makes replaying a record harmless.
+ * {@code idempotency} is null unless the request carried an Idempotency-Key.
+ */
+public record LedgerRecord(long sequence, UUID id, Transaction.Type type, UUID productId,
+        String sourceStoreId, String targetStoreId, int quantity, Instant timestamp, Idempotency idempotency) {
+
+    public LedgerRecord withSequence(long sequence) {
+        return new LedgerRecord(sequence, id, type, productId, sourceStoreId, targetStoreId, quantity, timestamp,
+                idempotency);
+    }
+
+    /**
+     * The Idempotency-Key row to write with the movement. {@code response} is the stored JSON, or null
+     * when it is only known after every record of the request was decided (batches).
+     */
+    public record Idempotency(String key, String operation, String requestHash, String response) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.deacero.inventario.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes ledger records to the transaction table and applies their net effect to inventory and
+ * product_stock in one statement. Records whose id is already in the transaction table are skipped
+ * entirely, so WAL replay after a crash is idempotent. The Idempotency-Keys the records carry are written
+ * in the same transaction as their movements. Records the database rejects for good are kept in
+ * ledger_dead_letter.
+ */
+@Repository
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "ledger")
+public class LedgerRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public LedgerRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public void deadLetter(LedgerRecord record, String error) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize ledger record " + record.id(), e);
+        }
+        jdbcTemplate.update("""
+            insert into ledger_dead_letter (id, record, error) values (?, cast(? as jsonb), ?)
+            on conflict (id) do nothing
+        """, record.id(), json, error);
+    }
+
+    // An existing key was committed by the request itself, which already stored its response. A key still
+    // held by that request's open transaction makes this wait until it commits or rolls back.
+    public void recordIdempotencyKeys(List<LedgerRecord> records) {
+        Map<String, LedgerRecord.Idempotency> keys = new LinkedHashMap<>();
+        for (LedgerRecord record : records) {
+            if (record.idempotency() != null) {
+                keys.putIfAbsent(record.idempotency().key(), record.idempotency());
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+            insert into idempotency_key (idempotency_key, operation, request_hash, response)
+            values (?, ?, ?, cast(? as jsonb))
+            on conflict (idempotency_key) do nothing
+        """, keys.values().stream()
+                .map(k -> new Object[] {k.key(), k.operation(), k.requestHash(), k.response()})
+                .toList());
+    }
+
+    // Increases go through an upsert and decreases through an update: the quantity CHECK is evaluated on
+    // the proposed row before ON CONFLICT, so a negative delta can never be inserted
+    public List<StockLevel> apply(List<LedgerRecord> records) {
+        return jdbcTemplate.query(connection -> prepare(connection, records), (rs, rowNum) -> new AppliedLevel(
+                rs.getObject("product_id", UUID.class),
+                rs.getString("store_id"),
+                rs.getInt("quantity"),
+                rs.getInt("min_stock")));
+    }
+
+    private static PreparedStatement prepare(Connection connection, List<LedgerRecord> records) throws SQLException {
+        int size = records.size();
+        UUID[] ids = new UUID[size];
+        String[] types = new String[size];
+        UUID[] productIds = new UUID[size];
+        String[] sources = new String[size];
+        String[] targets = new String[size];
+        Integer[] quantities = new Integer[size];
+        Long[] micros = new Long[size];
+        for (int i = 0; i < size; i++) {
+            LedgerRecord record = records.get(i);
+            ids[i] = record.id();
+            types[i] = record.type().name();
+            productIds[i] = record.productId();
+            sources[i] = record.sourceStoreId();
+            targets[i] = record.targetStoreId();
+            quantities[i] = record.quantity();
+            micros[i] = ChronoUnit.MICROS.between(Instant.EPOCH, record.timestamp());
+        }
+        PreparedStatement ps = connection.prepareStatement("""
+            with rec as (
+                select * from unnest(cast(? as uuid[]), cast(? as varchar[]), cast(? as uuid[]),
+                                     cast(? as varchar[]), cast(? as varchar[]), cast(? as int[]), cast(? as bigint[]))
+                    as r(id, type, product_id, source_store_id, target_store_id, quantity, micros)
+            ), ledger as (
+                insert into "transaction" (id, product_id, source_store_id, target_store_id, quantity, type, "timestamp")
+                select id, product_id, source_store_id, target_store_id, quantity, cast(type as transaction_type),
+                       to_timestamp(micros / 1000000.0)
+                from rec
+                on conflict (id, "timestamp") do nothing
+                returning product_id, source_store_id, target_store_id, quantity
+            ), net as (
+                select store_id, product_id, sum(delta) as delta
+                from (
+                    select source_store_id as store_id, product_id, -quantity as delta
+                    from ledger where source_store_id is not null
+                    union all
+                    select target_store_id, product_id, quantity
+                    from ledger where target_store_id is not null
+                ) d
+                group by store_id, product_id
+            ), raised as (
+                insert into inventory (product_id, store_id, quantity, min_stock)
+                select product_id, store_id, delta, 0 from net
+                where delta > 0
+                order by store_id collate "C", product_id
+                on conflict (store_id, product_id)
+                do update set quantity = inventory.quantity + excluded.quantity
+                returning product_id, store_id, quantity, min_stock
+            ), lowered as (
+                update inventory i
+                set quantity = i.quantity + net.delta
+                from net
+                where net.delta < 0 and i.store_id = net.store_id and i.product_id = net.product_id
+                returning i.product_id, i.store_id, i.quantity, i.min_stock
+            ), product_delta as (
+                select product_id, sum(delta) as delta from net group by product_id
+            ), total_raised as (
+                insert into product_stock (product_id, total_quantity)
+                select product_id, delta from product_delta where delta > 0
+                on conflict (product_id)
+                do update set total_quantity = product_stock.total_quantity + excluded.total_quantity
+            ), total_lowered as (
+                update product_stock ps
+                set total_quantity = ps.total_quantity + product_delta.delta
+                from product_delta
+                where product_delta.delta < 0 and ps.product_id = product_delta.product_id
+            )
+            select product_id, store_id, quantity, min_stock from raised
+            union all
+            select product_id, store_id, quantity, min_stock from lowered
+        """);
+        ps.setArray(1, connection.createArrayOf("uuid", ids));
+        ps.setArray(2, connection.createArrayOf("varchar", types));
+        ps.setArray(3, connection.createArrayOf("uuid", productIds));
+        ps.setArray(4, connection.createArrayOf("varchar", sources));
+        ps.setArray(5, connection.createArrayOf("varchar", targets));
+        ps.setArray(6, connection.createArrayOf("int4", quantities));
+        ps.setArray(7, connection.createArrayOf("int8", micros));
+        return ps;
+    }
+
+    private record AppliedLevel(UUID productId, String storeId, Integer quantity, Integer minStock) implements StockLevel {
+        @Override
+        public UUID getProductId() {
+            return productId;
+        }
+
+        @Override
+        public String getStoreId() {
+            return storeId;
+        }
+
+        @Override
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public Integer getMinStock() {
+            return minStock;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.MovementStatsResponse;
+import com.deacero.inventario.models.StatsGranularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Daily movement rollups (movement_daily_rollup in init.sql) and the high-water mark up to which
+ * {@code transaction} has been added to them.
+ */
+@Repository
+public class MovementRollupRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MovementRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Locks the state row until the surrounding transaction ends; null until the first run. */
+    public OffsetDateTime lockHighWaterMark() {
+        return jdbcTemplate.queryForObject(
+                "select high_water_mark from movement_rollup_state where id for update", OffsetDateTime.class);
+    }
+
+    public void setHighWaterMark(OffsetDateTime highWaterMark) {
+        jdbcTemplate.update("update movement_rollup_state set high_water_mark = ? where id", highWaterMark);
+    }
+
+    public OffsetDateTime findHighWaterMark() {
+        return jdbcTemplate.queryForObject(
+                "select high_water_mark from movement_rollup_state where id", OffsetDateTime.class);
+    }
+
+    public OffsetDateTime findEarliestMovement() {
+        return jdbcTemplate.queryForObject("select min(\"timestamp\") from \"transaction\"", OffsetDateTime.class);
+    }
+
+    // Adds the movements in [from, to); both bounds are on the partition key, so only those partitions are read
+    public int rollUp(OffsetDateTime from, OffsetDateTime to) {
+        return jdbcTemplate.update("""
+            insert into movement_daily_rollup (day, store_id, product_id, type, movements, quantity_in, quantity_out)
+            select day, store_id, product_id, type, count(*), sum(quantity_in), sum(quantity_out)
+            from (
+                select ("timestamp" at time zone 'UTC')::date as day, target_store_id as store_id, product_id, type,
+                       quantity as quantity_in, 0 as quantity_out
+                from "transaction"
+                where "timestamp" >= ? and "timestamp" < ? and target_store_id is not null
+                union all
+                select ("timestamp" at time zone 'UTC')::date, source_store_id, product_id, type, 0, quantity
+                from "transaction"
+                where "timestamp" >= ? and "timestamp" < ? and source_store_id is not null
+            ) m
+            group by day, store_id, product_id, type
+            on conflict (store_id, product_id, type, day) do update
+            set movements = movement_daily_rollup.movements + excluded.movements,
+                quantity_in = movement_daily_rollup.quantity_in + excluded.quantity_in,
+                quantity_out = movement_daily_rollup.quantity_out + excluded.quantity_out
+        """, from, to, from, to);
+    }
+
+    public List<MovementStatsResponse> findStats(UUID productId, String storeId, LocalDate from, LocalDate to,
+            StatsGranularity granularity, long offset, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(granularity.name().toLowerCase(Locale.ROOT));
+        String where = where(productId, storeId, from, to, args);
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query("""
+            select date_trunc(?, r.day)::date as period, r.product_id, r.store_id, r.type,
+                   sum(r.movements) as movements, sum(r.quantity_in) as quantity_in, sum(r.quantity_out) as quantity_out
+            from movement_daily_rollup r
+        """ + where + """
+            group by 1, 2, 3, 4
+            order by 1, 3, 2, 4
+            limit ? offset ?
+        """, (rs, i) -> MovementStatsResponse.builder()
+                .period(rs.getObject("period", LocalDate.class))
+                .productId(rs.getObject("product_id", UUID.class))
+                .storeId(rs.getString("store_id"))
+                .type(Transaction.Type.valueOf(rs.getString("type")))
+                .movements(rs.getLong("movements"))
+                .quantityIn(rs.getLong("quantity_in"))
+                .quantityOut(rs.getLong("quantity_out"))
+                .build(), args.toArray());
+    }
+
+    public long countStats(UUID productId, String storeId, LocalDate from, LocalDate to, StatsGranularity granularity) {
+        List<Object> args = new ArrayList<>();
+        args.add(granularity.name().toLowerCase(Locale.ROOT));
+        String where = where(productId, storeId, from, to, args);
+        Long count = jdbcTemplate.queryForObject("""
+            select count(*) from (
+                select 1 from movement_daily_rollup r
+        """ + where + """
+                group by date_trunc(?, r.day), r.product_id, r.store_id, r.type
+            ) g
+        """, Long.class, shiftFirstToEnd(args));
+        return count == null ? 0 : count;
+    }
+
+    private static String where(UUID productId, String storeId, LocalDate from, LocalDate to, List<Object> args) {
+        StringBuilder where = new StringBuilder(" where r.day >= ? and r.day < ?");
+        args.add(from);
+        args.add(to);
+        if (productId != null) {
+            where.append(" and r.product_id = ?");
+            args.add(productId);
+        }
+        if (storeId != null) {
+            where.append(" and r.store_id = ?");
+            args.add(storeId);
+        }
+        return where.append('\n').toString();
+    }
+
+    // The count query binds the granularity after the filters
+    private static Object[] shiftFirstToEnd(List<Object> args) {
+        List<Object> shifted = new ArrayList<>(args.subList(1, args.size()));
+        shifted.add(args.get(0));
+        return shifted.toArray();
+    }
+}
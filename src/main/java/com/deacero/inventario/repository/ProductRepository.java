@@ -3,14 +3,21 @@ package com.deacero.inventario.repository;
 import com.deacero.inventario.entities.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpecificationExecutor<Product> {
     Optional<Product> findBySku(String sku);
+
+    @Query("select p.id from Product p where p.id in :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
 }
 
 
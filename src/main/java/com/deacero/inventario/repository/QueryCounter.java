@@ -0,0 +1,56 @@
+package com.deacero.inventario.repository;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Counts the JDBC statements executed on the current thread (and the time spent in them) while a
+ * scope opened with {@link #start()} is active. Registered as the datasource-proxy listener, so every
+ * statement counts, whether it comes from Hibernate, a native query or {@code JdbcTemplate}; a batch
+ * counts as one execution. Statements run on other threads (group commit flushers, async exports)
+ * are not attributed to the scope.
+ */
+public class QueryCounter implements QueryExecutionListener {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    public static void start() {
+        CURRENT.set(new Counts());
+    }
+
+    public static QueryCount stop() {
+        QueryCount count = current();
+        CURRENT.remove();
+        return count;
+    }
+
+    public static QueryCount current() {
+        Counts counts = CURRENT.get();
+        return counts == null ? QueryCount.NONE : new QueryCount(counts.statements, counts.elapsedMs);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+            counts.elapsedMs += execInfo.getElapsedTime();
+        }
+    }
+
+    public record QueryCount(int statements, long elapsedMs) {
+        public static final QueryCount NONE = new QueryCount(0, 0);
+    }
+
+    private static final class Counts {
+        private int statements;
+        private long elapsedMs;
+    }
+}
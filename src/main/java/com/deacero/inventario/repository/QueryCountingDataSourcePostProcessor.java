@@ -0,0 +1,29 @@
+package com.deacero.inventario.repository;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource with datasource-proxy so {@link QueryCounter} sees every statement.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.query-count.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryCountingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final QueryCounter queryCounter = new QueryCounter();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(queryCounter)
+                    .build();
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,10 @@
+package com.deacero.inventario.repository;
+
+import java.util.UUID;
+
+/**
+ * One parsed import line, written to the staging table as-is; {@code minStock} is null when the
+ * file leaves it out.
+ */
+public record StagedStockRow(long line, UUID productId, String storeId, int quantity, Integer minStock) {
+}
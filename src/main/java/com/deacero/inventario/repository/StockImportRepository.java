@@ -0,0 +1,159 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.models.StockImportRejection;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk initial-stock load through a per-transaction staging table: rows are streamed in with COPY and
+ * merged into inventory, product_stock and transaction with set-based statements. All methods must run
+ * inside the same transaction, since the staging table is dropped on commit.
+ */
+@Repository
+public class StockImportRepository {
+
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void createStaging() {
+        jdbcTemplate.execute("""
+            create temp table stock_import_staging (
+                line_no    bigint not null,
+                product_id uuid not null,
+                store_id   varchar(50) not null,
+                quantity   integer not null,
+                min_stock  integer,
+                rejection  text
+            ) on commit drop
+        """);
+    }
+
+    public long copyRows(Iterator<StagedStockRow> rows) {
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "copy stock_import_staging (line_no, product_id, store_id, quantity, min_stock) from stdin (format csv)");
+            try {
+                StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 256);
+                while (rows.hasNext()) {
+                    appendCsv(buffer, rows.next());
+                    if (buffer.length() >= COPY_BUFFER_CHARS) {
+                        write(copyIn, buffer);
+                    }
+                }
+                write(copyIn, buffer);
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    // Marks unknown products and repeated store/product lines (the first one wins), then loads the rest.
+    // Like loadInitialStock, a row only loads if it does not exist yet or still has quantity 0.
+    public StockMergeResult mergeStaged() {
+        jdbcTemplate.execute("analyze stock_import_staging");
+        jdbcTemplate.update("""
+            update stock_import_staging s
+            set rejection = 'Product not found'
+            where not exists (select 1 from product p where p.id = s.product_id)
+        """);
+        jdbcTemplate.update("""
+            update stock_import_staging s
+            set rejection = 'Duplicate store/product in file'
+            from (
+                select line_no, row_number() over (partition by store_id, product_id order by line_no) as rn
+                from stock_import_staging
+                where rejection is null
+            ) d
+            where d.line_no = s.line_no and d.rn > 1
+        """);
+        return jdbcTemplate.queryForObject("""
+            with candidates as (
+                select s.product_id, s.store_id, s.quantity, coalesce(s.min_stock, i.min_stock, 0) as min_stock
+                from stock_import_staging s
+                left join inventory i on i.store_id = s.store_id and i.product_id = s.product_id
+                where s.rejection is null
+            ), loaded as (
+                insert into inventory (product_id, store_id, quantity, min_stock)
+                select product_id, store_id, quantity, min_stock
+                from candidates
+                order by store_id collate "C", product_id
+                on conflict (store_id, product_id)
+                do update set quantity = excluded.quantity, min_stock = excluded.min_stock
+                where inventory.quantity = 0
+                returning product_id, store_id, quantity
+            ), total as (
+                insert into product_stock (product_id, total_quantity)
+                select product_id, sum(quantity) from loaded group by product_id
+                on conflict (product_id)
+                do update set total_quantity = product_stock.total_quantity + excluded.total_quantity
+            ), ledger as (
+                insert into "transaction" (product_id, target_store_id, quantity, type)
+                select product_id, store_id, quantity, cast('IN' as transaction_type)
+                from loaded
+                where quantity > 0
+            ), skipped as (
+                update stock_import_staging s
+                set rejection = 'Inventory already initialized for this store/product'
+                where s.rejection is null
+                and not exists (select 1 from loaded l where l.store_id = s.store_id and l.product_id = s.product_id)
+            )
+            select count(*), count(*) filter (where quantity > 0), coalesce(sum(quantity), 0)
+            from loaded
+        """, (rs, i) -> new StockMergeResult(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    public long countRejections() {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from stock_import_staging where rejection is not null", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public List<StockImportRejection> findRejections(int limit) {
+        return jdbcTemplate.query("""
+            select line_no, rejection from stock_import_staging
+            where rejection is not null
+            order by line_no
+            limit ?
+        """, (rs, i) -> StockImportRejection.builder()
+                .line(rs.getLong("line_no"))
+                .reason(rs.getString("rejection"))
+                .build(), limit);
+    }
+
+    private static void appendCsv(StringBuilder buffer, StagedStockRow row) {
+        buffer.append(row.line()).append(',')
+                .append(row.productId()).append(',')
+                .append('"').append(row.storeId().replace("\"", "\"\"")).append('"').append(',')
+                .append(row.quantity()).append(',');
+        if (row.minStock() != null) {
+            buffer.append(row.minStock());
+        }
+        buffer.append('\n');
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,13 @@
+package com.deacero.inventario.repository;
+
+import java.util.UUID;
+
+/**
+ * Row state returned by the atomic stock statements of {@link InventoryRepository}.
+ */
+public interface StockLevel {
+    UUID getProductId();
+    String getStoreId();
+    Integer getQuantity();
+    Integer getMinStock();
+}
@@ -0,0 +1,8 @@
+package com.deacero.inventario.repository;
+
+/**
+ * Outcome of merging the staged import rows: {@code loaded} store/product rows, of which
+ * {@code movements} had a positive quantity and were written to the ledger as IN, for {@code units}.
+ */
+public record StockMergeResult(long loaded, long movements, long units) {
+}
@@ -0,0 +1,78 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.TransactionResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and drops the monthly partitions of {@code transaction} once they have been detached (see
+ * {@code detach_transaction_partitions} and {@code drop_transaction_partition} in init.sql).
+ */
+@Repository
+public class TransactionArchiveRepository {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transaction_(y\\d{4}m\\d{2}|legacy)");
+    private static final int FETCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<String> findDetachedPartitions() {
+        return jdbcTemplate.queryForList("""
+            select c.relname
+            from pg_class c
+            join pg_namespace n on n.oid = c.relnamespace
+            where n.nspname = current_schema()
+            and c.relkind = 'r'
+            and not c.relispartition
+            and c.relname ~ '^transaction_(y[0-9]{4}m[0-9]{2}|legacy)$'
+            order by c.relname
+        """, String.class);
+    }
+
+    // Newest first, the order the history endpoints use; the cursor keeps memory flat for large partitions
+    @Transactional(readOnly = true)
+    public void streamPartition(String partition, Consumer<TransactionResponse> consumer) {
+        String sql = "select id, product_id, source_store_id, target_store_id, quantity, \"timestamp\", type from "
+                + '"' + checkName(partition) + '"' + " order by \"timestamp\" desc, id desc";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            consumer.accept(TransactionResponse.builder()
+                    .id(rs.getObject("id", UUID.class))
+                    .productId(rs.getObject("product_id", UUID.class))
+                    .sourceStoreId(rs.getString("source_store_id"))
+                    .targetStoreId(rs.getString("target_store_id"))
+                    .quantity(rs.getInt("quantity"))
+                    .timestamp(rs.getObject("timestamp", OffsetDateTime.class))
+                    .type(Transaction.Type.valueOf(rs.getString("type")))
+                    .build());
+        });
+    }
+
+    public boolean dropPartition(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select drop_transaction_partition(?)", Boolean.class, checkName(partition)));
+    }
+
+    private static String checkName(String partition) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Not a transaction partition: " + partition);
+        }
+        return partition;
+    }
+}
@@ -4,21 +4,23 @@ import com.deacero.inventario.entities.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
-	@Query("""
-					select t from Transaction t
-					where (:productId is null or t.productId = :productId)
-					and (:storeId is null or t.sourceStoreId = :storeId or t.targetStoreId = :storeId)
-					order by t.timestamp desc
-			""")
-	Page<Transaction> findHistory(
-			@Param("productId") UUID productId,
-			@Param("storeId") String storeId,
-			Pageable pageable);
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionRepositoryCustom {
+
+    // Partition DDL runs inside the SECURITY DEFINER functions of init.sql; not read-only, unlike the
+    // default for query methods
+    @Transactional
+    @Query(value = "select ensure_transaction_partitions(:from, :to)", nativeQuery = true)
+    int createPartitions(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional
+    @Query(value = "select detach_transaction_partitions(:before)", nativeQuery = true)
+    List<String> detachPartitionsBefore(@Param("before") LocalDate before);
 }
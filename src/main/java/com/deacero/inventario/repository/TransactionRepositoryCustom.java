@@ -0,0 +1,35 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.TransactionResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface TransactionRepositoryCustom {
+
+	/**
+	 * {@code from} (inclusive) and {@code to} (exclusive) are optional; when given, Postgres only scans
+	 * the monthly partitions of {@code transaction} that overlap the range. A store matches movements
+	 * where it is the source or the target.
+	 */
+	Page<Transaction> findHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+			Pageable pageable);
+
+	/**
+	 * Keyset page ordered by {@code (timestamp, id)} descending, starting strictly after the given
+	 * position, or from the newest movement when it is null. No count query is run.
+	 */
+	List<Transaction> findHistoryAfter(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+			OffsetDateTime afterTimestamp, UUID afterId, int limit);
+
+	/**
+	 * Forward-only cursor over the whole filtered history as DTOs, newest first. Must be consumed and
+	 * closed inside a transaction, otherwise the driver ignores the fetch size and buffers everything.
+	 */
+	Stream<TransactionResponse> streamHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to);
+}
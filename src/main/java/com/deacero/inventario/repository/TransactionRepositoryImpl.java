@@ -0,0 +1,220 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.TransactionResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Predicates are only added for the filters that are present: an ':param is null or ...' clause
+// leaves the planner a generic plan that cannot use the (product_id|store_id, timestamp, id) indexes.
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"));
+    private static final String SOURCE_BRANCH = "t.source_store_id = :storeId";
+    private static final String TARGET_BRANCH = "t.target_store_id = :storeId and t.source_store_id is distinct from :storeId";
+    private static final String NATIVE_ORDER = " order by t.\"timestamp\" desc, t.id desc";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Transaction> findHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            Pageable pageable) {
+        if (storeId != null && pageable.getSort().isUnsorted()) {
+            return findStoreHistory(productId, storeId, from, to, pageable);
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        String where = where(productId, storeId, from, to, params);
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : DEFAULT_SORT;
+
+        TypedQuery<Transaction> query = entityManager.createQuery(
+                QueryUtils.applySorting("select t from Transaction t" + where, sort, "t"), Transaction.class);
+        params.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Transaction> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            TypedQuery<Long> count = entityManager.createQuery("select count(t) from Transaction t" + where, Long.class);
+            params.forEach(count::setParameter);
+            return count.getSingleResult();
+        });
+    }
+
+    @Override
+    public List<Transaction> findHistoryAfter(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            OffsetDateTime afterTimestamp, UUID afterId, int limit) {
+        if (storeId != null) {
+            Map<String, Object> params = new LinkedHashMap<>();
+            Query query = entityManager.createNativeQuery(
+                    storeUnion(productId, storeId, from, to, afterTimestamp, afterId, limit, params), Transaction.class);
+            params.forEach(query::setParameter);
+            query.setMaxResults(limit);
+            return resultList(query);
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        String where = where(productId, storeId, from, to, params);
+        if (afterTimestamp != null) {
+            // Row comparison, so Postgres turns it into a single index range bound
+            where += (where.isEmpty() ? " where " : " and ") + "(t.timestamp, t.id) < (:afterTimestamp, :afterId)";
+            params.put("afterTimestamp", afterTimestamp);
+            params.put("afterId", afterId);
+        }
+        TypedQuery<Transaction> query = entityManager.createQuery(
+                "select t from Transaction t" + where + " order by t.timestamp desc, t.id desc", Transaction.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    @Override
+    public Stream<TransactionResponse> streamHistory(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to) {
+        if (storeId != null) {
+            Map<String, Object> params = new LinkedHashMap<>();
+            Query query = entityManager.createNativeQuery(
+                    storeUnion(productId, storeId, from, to, null, null, null, params), Transaction.class);
+            params.forEach(query::setParameter);
+            query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+            query.setHint(HibernateHints.HINT_READ_ONLY, true);
+            // Entities only as a row mapper: each one is detached as soon as it is converted
+            return TransactionRepositoryImpl.<Transaction>resultStream(query).map(t -> {
+                entityManager.detach(t);
+                return new TransactionResponse(t.getId(), t.getProductId(), t.getSourceStoreId(), t.getTargetStoreId(),
+                        t.getQuantity(), t.getTimestamp(), t.getType());
+            });
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        String where = where(productId, storeId, from, to, params);
+        // Constructor projection: rows are never attached to the persistence context, so memory stays flat
+        TypedQuery<TransactionResponse> query = entityManager.createQuery("""
+                select new com.deacero.inventario.models.TransactionResponse(
+                    t.id, t.productId, t.sourceStoreId, t.targetStoreId, t.quantity, t.timestamp, t.type)
+                from Transaction t""" + where + " order by t.timestamp desc, t.id desc", TransactionResponse.class);
+        params.forEach(query::setParameter);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        return query.getResultStream();
+    }
+
+    private Page<Transaction> findStoreHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            Pageable pageable) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        Integer branchLimit = pageable.isPaged() ? (int) pageable.getOffset() + pageable.getPageSize() : null;
+        Query query = entityManager.createNativeQuery(
+                storeUnion(productId, storeId, from, to, null, null, branchLimit, params), Transaction.class);
+        params.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Transaction> content = resultList(query);
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Map<String, Object> countParams = new LinkedHashMap<>();
+            String rest = nativeWhere(productId, from, to, null, null, countParams);
+            countParams.put("storeId", storeId);
+            Query count = entityManager.createNativeQuery("select (select count(*) from \"transaction\" t where "
+                    + SOURCE_BRANCH + rest + ") + (select count(*) from \"transaction\" t where " + TARGET_BRANCH + rest + ")");
+            countParams.forEach(count::setParameter);
+            return ((Number) count.getSingleResult()).longValue();
+        });
+    }
+
+    // A store matches as source or target. Written as an OR, Postgres can only filter the (timestamp, id)
+    // index, which reads the whole table for a quiet store; as UNION ALL each branch is an ordered scan of
+    // its (store, timestamp, id) index and a Merge Append keeps the overall order. The target branch
+    // skips rows the source branch already returned. Each branch stops at branchLimit rows when given.
+    private static String storeUnion(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            OffsetDateTime afterTimestamp, UUID afterId, Integer branchLimit, Map<String, Object> params) {
+        String rest = nativeWhere(productId, from, to, afterTimestamp, afterId, params);
+        params.put("storeId", storeId);
+        String limit = "";
+        if (branchLimit != null) {
+            limit = " limit :branchLimit";
+            params.put("branchLimit", branchLimit);
+        }
+        return "select * from ("
+                + "(select * from \"transaction\" t where " + SOURCE_BRANCH + rest + NATIVE_ORDER + limit + ")"
+                + " union all "
+                + "(select * from \"transaction\" t where " + TARGET_BRANCH + rest + NATIVE_ORDER + limit + ")"
+                + ") t" + NATIVE_ORDER;
+    }
+
+    private static String nativeWhere(UUID productId, OffsetDateTime from, OffsetDateTime to,
+            OffsetDateTime afterTimestamp, UUID afterId, Map<String, Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (productId != null) {
+            where.append(" and t.product_id = :productId");
+            params.put("productId", productId);
+        }
+        if (from != null) {
+            where.append(" and t.\"timestamp\" >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            where.append(" and t.\"timestamp\" < :to");
+            params.put("to", to);
+        }
+        if (afterTimestamp != null) {
+            where.append(" and (t.\"timestamp\", t.id) < (:afterTimestamp, :afterId)");
+            params.put("afterTimestamp", afterTimestamp);
+            params.put("afterId", afterId);
+        }
+        return where.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> resultList(Query query) {
+        return query.getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Stream<T> resultStream(Query query) {
+        return query.getResultStream();
+    }
+
+    private static String where(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            Map<String, Object> params) {
+        List<String> predicates = new ArrayList<>();
+        if (productId != null) {
+            predicates.add("t.productId = :productId");
+            params.put("productId", productId);
+        }
+        // Only reached with a custom sort; the default order goes through storeUnion
+        if (storeId != null) {
+            predicates.add("(t.sourceStoreId = :storeId or t.targetStoreId = :storeId)");
+            params.put("storeId", storeId);
+        }
+        // Bounds on the partition key: the planner (or the executor, for a generic plan) prunes the
+        // monthly partitions outside the range
+        if (from != null) {
+            predicates.add("t.timestamp >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            predicates.add("t.timestamp < :to");
+            params.put("to", to);
+        }
+        return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+    }
+}
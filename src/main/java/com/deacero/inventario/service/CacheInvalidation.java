@@ -0,0 +1,70 @@
+package com.deacero.inventario.service;
+
+import java.util.UUID;
+
+/**
+ * Message carried on the Postgres notification channel. Encoded as {@code origin|type|...} with the
+ * free-text store id last, well under the 8000-byte NOTIFY payload limit.
+ */
+record CacheInvalidation(String origin, Type type, UUID productId, String storeId, int quantity, int minStock) {
+
+    enum Type {
+        PRODUCT,
+        STOCK,
+        RELOAD
+    }
+
+    static CacheInvalidation product(String origin, UUID productId) {
+        return new CacheInvalidation(origin, Type.PRODUCT, productId, null, 0, 0);
+    }
+
+    static CacheInvalidation stock(String origin, StockChangedEvent event) {
+        return new CacheInvalidation(origin, Type.STOCK, event.getProductId(), event.getStoreId(),
+                event.getQuantity(), event.getMinStock());
+    }
+
+    static CacheInvalidation reload(String origin) {
+        return new CacheInvalidation(origin, Type.RELOAD, null, null, 0, 0);
+    }
+
+    String encode() {
+        return switch (type) {
+            case PRODUCT -> origin + "|P|" + productId;
+            case STOCK -> origin + "|S|" + productId + "|" + quantity + "|" + minStock + "|" + storeId;
+            case RELOAD -> origin + "|R";
+        };
+    }
+
+    static CacheInvalidation decode(String payload) {
+        String[] parts = payload.split("\\|", 6);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Malformed invalidation: " + payload);
+        }
+        return switch (parts[1]) {
+            case "P" -> {
+                requireParts(parts, 3, payload);
+                yield product(parts[0], UUID.fromString(parts[2]));
+            }
+            case "S" -> {
+                requireParts(parts, 6, payload);
+                yield new CacheInvalidation(parts[0], Type.STOCK, UUID.fromString(parts[2]), parts[5],
+                        Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+            }
+            case "R" -> {
+                requireParts(parts, 2, payload);
+                yield reload(parts[0]);
+            }
+            default -> throw new IllegalArgumentException("Unknown invalidation type: " + payload);
+        };
+    }
+
+    private static void requireParts(String[] parts, int expected, String payload) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("Malformed invalidation: " + payload);
+        }
+    }
+
+    StockChangedEvent toStockChangedEvent() {
+        return new StockChangedEvent(productId, storeId, quantity, minStock);
+    }
+}
@@ -0,0 +1,260 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.InsufficientStockException;
+import com.deacero.inventario.exception.ResourceNotFoundException;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.CursorPage;
+import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.models.LowStockProductResponse;
+import com.deacero.inventario.models.MovementRequest;
+import com.deacero.inventario.models.StockLoadRequest;
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.models.TransferRequest;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in engine ({@code inventory.engine=group-commit}) that coalesces concurrent single entries and
+ * outs into the batch path: requests wait up to {@code max-delay-ms} (or until {@code max-batch}
+ * accumulate) and are applied in one transaction, so the commit is paid once per group. Lines are
+ * decided in arrival order and each caller gets only its own outcome; a rejected line fails its own
+ * request. When the group's transaction fails, each request is retried on its own so one bad line (e.g. a
+ * store id too long for its column) fails only its caller.
+ *
+ * <p>A caller that is already in a transaction (e.g. one claiming an Idempotency-Key) is not grouped: its
+ * movement must commit or roll back with that transaction, so it runs there directly.
+ */
+@Slf4j
+@Service
+@Timed(value = "inventory.service", histogram = true)
+@Primary
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "group-commit")
+public class GroupCommitInventoryService implements InventoryService {
+
+    private final InventoryServiceImpl delegate;
+    private final Group entries;
+    private final Group outs;
+
+    public GroupCommitInventoryService(InventoryServiceImpl delegate,
+            @Value("${inventory.group-commit.max-batch:200}") int maxBatch,
+            @Value("${inventory.group-commit.max-delay-ms:5}") long maxDelayMs) {
+        this.delegate = delegate;
+        // The batch endpoint caps a request at 1000 lines; groups stay within the same limit
+        int batch = Math.max(1, Math.min(maxBatch, 1000));
+        this.entries = new Group(Transaction.Type.IN, batch, maxDelayMs);
+        this.outs = new Group(Transaction.Type.OUT, batch, maxDelayMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        entries.start();
+        outs.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        entries.stop();
+        outs.stop();
+    }
+
+    @Override
+    public void registerEntry(MovementRequest request) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            delegate.registerEntry(request);
+            return;
+        }
+        await(entries.submit(request));
+    }
+
+    @Override
+    public void registerOut(MovementRequest request) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            delegate.registerOut(request);
+            return;
+        }
+        await(outs.submit(request));
+    }
+
+    @Override
+    public List<InventoryItemResponse> getInventoryByStore(String storeId) {
+        return delegate.getInventoryByStore(storeId);
+    }
+
+    @Override
+    public void transfer(TransferRequest request) {
+        delegate.transfer(request);
+    }
+
+    @Override
+    public Page<LowStockProductResponse> listLowStockAlerts(String storeId, String category, Pageable pageable) {
+        return delegate.listLowStockAlerts(storeId, category, pageable);
+    }
+
+    @Override
+    public void loadInitialStock(StockLoadRequest request) {
+        delegate.loadInitialStock(request);
+    }
+
+    @Override
+    public BatchMovementResponse registerMovements(BatchMovementRequest request) {
+        return delegate.registerMovements(request);
+    }
+
+    @Override
+    public Page<TransactionResponse> listHistory(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to, Pageable pageable) {
+        return delegate.listHistory(productId, storeId, from, to, pageable);
+    }
+
+    @Override
+    public CursorPage<TransactionResponse> listHistoryByCursor(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to, String cursor, int size) {
+        return delegate.listHistoryByCursor(productId, storeId, from, to, cursor, size);
+    }
+
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the group commit");
+        }
+    }
+
+    private record Pending(MovementRequest request, CompletableFuture<Void> done) {
+    }
+
+    private final class Group {
+
+        private final Transaction.Type type;
+        private final int maxBatch;
+        private final long maxDelayNanos;
+        private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+        private final Thread flusher;
+        private volatile boolean running;
+
+        Group(Transaction.Type type, int maxBatch, long maxDelayMs) {
+            this.type = type;
+            this.maxBatch = maxBatch;
+            this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+            this.flusher = new Thread(this::run, "group-commit-" + type.name().toLowerCase());
+            this.flusher.setDaemon(true);
+        }
+
+        void start() {
+            running = true;
+            flusher.start();
+        }
+
+        // Submits check running under the same lock, so once it is cleared nothing new reaches the queue
+        // and the drain below completes every accepted request
+        void stop() throws InterruptedException {
+            synchronized (this) {
+                running = false;
+            }
+            flusher.interrupt();
+            flusher.join();
+            List<Pending> left = new ArrayList<>();
+            queue.drainTo(left);
+            if (!left.isEmpty()) {
+                flush(left);
+            }
+        }
+
+        synchronized CompletableFuture<Void> submit(MovementRequest request) {
+            if (!running) {
+                throw new IllegalStateException("Group commit is not accepting movements");
+            }
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            queue.add(new Pending(request, done));
+            return done;
+        }
+
+        private void run() {
+            List<Pending> group = new ArrayList<>(maxBatch);
+            while (running) {
+                try {
+                    group.add(queue.take());
+                    long deadline = System.nanoTime() + maxDelayNanos;
+                    while (group.size() < maxBatch) {
+                        queue.drainTo(group, maxBatch - group.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (group.size() >= maxBatch || remaining <= 0) {
+                            break;
+                        }
+                        Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        group.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    if (running) {
+                        continue;
+                    }
+                }
+                if (!group.isEmpty()) {
+                    flush(group);
+                    group = new ArrayList<>(maxBatch);
+                }
+            }
+        }
+
+        private void flush(List<Pending> group) {
+            BatchMovementResponse response;
+            try {
+                response = delegate.registerMovements(BatchMovementRequest.builder()
+                        .type(type)
+                        .movements(group.stream().map(Pending::request).toList())
+                        .build());
+            } catch (RuntimeException e) {
+                if (group.size() == 1) {
+                    group.get(0).done().completeExceptionally(e);
+                    return;
+                }
+                log.warn("Group commit of {} {} movements failed, applying them one by one", group.size(), type, e);
+                group.forEach(pending -> flush(List.of(pending)));
+                return;
+            }
+            List<BatchMovementResult> results = response.getResults();
+            for (int i = 0; i < group.size(); i++) {
+                BatchMovementResult result = results.get(i);
+                CompletableFuture<Void> done = group.get(i).done();
+                if (result.getStatus() == BatchMovementResult.Status.APPLIED) {
+                    done.complete(null);
+                } else if (result.getReason() == BatchMovementResult.Reason.PRODUCT_NOT_FOUND) {
+                    done.completeExceptionally(new ResourceNotFoundException(result.getMessage()));
+                } else {
+                    done.completeExceptionally(new InsufficientStockException(result.getMessage()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.TransactionResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Columnar archive of transaction rows, newest first. The uncompressed header holds the row count, the
+ * timestamp range and the store and product dictionaries, so a reader can skip a file by time, store or
+ * product without inflating anything. Each column then follows as its own deflated block:
+ * <ul>
+ *   <li>timestamp: first value in epoch micros, then the (non-negative) gap to the previous row, as varints</li>
+ *   <li>id: 16 bytes per row</li>
+ *   <li>product: varint index per row into the product dictionary</li>
+ *   <li>source and target store: varint per row, 0 for null or 1 + index into the store dictionary</li>
+ *   <li>quantity: varint per row</li>
+ *   <li>type: one byte per row</li>
+ * </ul>
+ */
+final class HistoryArchiveFile {
+
+    static final String SUFFIX = ".txa";
+
+    private static final int MAGIC = 0x54584132; // "TXA2"
+
+    // Previous format: no product dictionary in the header, it led the product block instead
+    private static final int MAGIC_V1 = 0x54584131; // "TXA1"
+
+    private HistoryArchiveFile() {
+    }
+
+    /** {@code products} is null for files written before the header carried it. */
+    record Header(int rows, OffsetDateTime minTimestamp, OffsetDateTime maxTimestamp, List<String> stores,
+            Set<UUID> products) {
+
+        boolean overlaps(OffsetDateTime from, OffsetDateTime to) {
+            return (from == null || !maxTimestamp.isBefore(from)) && (to == null || minTimestamp.isBefore(to));
+        }
+
+        boolean mayContainStore(String storeId) {
+            return storeId == null || stores.contains(storeId);
+        }
+
+        boolean mayContainProduct(UUID productId) {
+            return productId == null || products == null || products.contains(productId);
+        }
+    }
+
+    /** Rows must be ordered by timestamp and id, descending, as the history endpoints return them. */
+    static void write(Path file, List<TransactionResponse> rows) throws IOException {
+        Map<String, Integer> stores = new LinkedHashMap<>();
+        Map<UUID, Integer> products = new LinkedHashMap<>();
+        for (TransactionResponse row : rows) {
+            index(stores, row.getSourceStoreId());
+            index(stores, row.getTargetStoreId());
+            products.putIfAbsent(row.getProductId(), products.size());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows.size());
+            out.writeLong(rows.isEmpty() ? 0 : micros(rows.get(rows.size() - 1).getTimestamp()));
+            out.writeLong(rows.isEmpty() ? 0 : micros(rows.get(0).getTimestamp()));
+            out.writeInt(stores.size());
+            for (String store : stores.keySet()) {
+                out.writeUTF(store);
+            }
+            out.writeInt(products.size());
+            for (UUID product : products.keySet()) {
+                out.writeLong(product.getMostSignificantBits());
+                out.writeLong(product.getLeastSignificantBits());
+            }
+            writeBlock(out, column -> {
+                long previous = rows.isEmpty() ? 0 : micros(rows.get(0).getTimestamp());
+                for (TransactionResponse row : rows) {
+                    long current = micros(row.getTimestamp());
+                    writeVarLong(column, previous - current);
+                    previous = current;
+                }
+            });
+            writeBlock(out, column -> {
+                for (TransactionResponse row : rows) {
+                    column.writeLong(row.getId().getMostSignificantBits());
+                    column.writeLong(row.getId().getLeastSignificantBits());
+                }
+            });
+            writeBlock(out, column -> {
+                for (TransactionResponse row : rows) {
+                    writeVarLong(column, products.get(row.getProductId()));
+                }
+            });
+            writeBlock(out, column -> {
+                for (TransactionResponse row : rows) {
+                    writeVarLong(column, storeCode(stores, row.getSourceStoreId()));
+                }
+            });
+            writeBlock(out, column -> {
+                for (TransactionResponse row : rows) {
+                    writeVarLong(column, storeCode(stores, row.getTargetStoreId()));
+                }
+            });
+            writeBlock(out, column -> {
+                for (TransactionResponse row : rows) {
+                    writeVarLong(column, row.getQuantity());
+                }
+            });
+            writeBlock(out, column -> {
+                for (TransactionResponse row : rows) {
+                    column.writeByte(row.getType().ordinal());
+                }
+            });
+        }
+    }
+
+    static Header readHeader(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readHeader(in, file);
+        }
+    }
+
+    static List<TransactionResponse> readRows(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Header header = readHeader(in, file);
+            int rows = header.rows();
+            List<String> stores = header.stores();
+
+            long[] timestamps = new long[rows];
+            DataInputStream column = readBlock(in);
+            long previous = micros(header.maxTimestamp());
+            for (int i = 0; i < rows; i++) {
+                previous -= readVarLong(column);
+                timestamps[i] = previous;
+            }
+            UUID[] ids = new UUID[rows];
+            column = readBlock(in);
+            for (int i = 0; i < rows; i++) {
+                ids[i] = new UUID(column.readLong(), column.readLong());
+            }
+            UUID[] productIds = new UUID[rows];
+            column = readBlock(in);
+            UUID[] products;
+            if (header.products() != null) {
+                products = header.products().toArray(UUID[]::new);
+            } else {
+                products = new UUID[(int) readVarLong(column)];
+                for (int i = 0; i < products.length; i++) {
+                    products[i] = new UUID(column.readLong(), column.readLong());
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                productIds[i] = products[(int) readVarLong(column)];
+            }
+            String[] sources = readStores(readBlock(in), rows, stores);
+            String[] targets = readStores(readBlock(in), rows, stores);
+            int[] quantities = new int[rows];
+            column = readBlock(in);
+            for (int i = 0; i < rows; i++) {
+                quantities[i] = (int) readVarLong(column);
+            }
+            Transaction.Type[] types = Transaction.Type.values();
+            column = readBlock(in);
+            List<TransactionResponse> result = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                result.add(TransactionResponse.builder()
+                        .id(ids[i])
+                        .productId(productIds[i])
+                        .sourceStoreId(sources[i])
+                        .targetStoreId(targets[i])
+                        .quantity(quantities[i])
+                        .timestamp(timestamp(timestamps[i]))
+                        .type(types[column.readUnsignedByte()])
+                        .build());
+            }
+            return result;
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, Path file) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != MAGIC_V1) {
+            throw new IOException("Not a history archive: " + file);
+        }
+        int rows = in.readInt();
+        OffsetDateTime min = timestamp(in.readLong());
+        OffsetDateTime max = timestamp(in.readLong());
+        int storeCount = in.readInt();
+        List<String> stores = new ArrayList<>(storeCount);
+        for (int i = 0; i < storeCount; i++) {
+            stores.add(in.readUTF());
+        }
+        Set<UUID> products = null;
+        if (magic == MAGIC) {
+            int productCount = in.readInt();
+            products = new LinkedHashSet<>(productCount * 2);
+            for (int i = 0; i < productCount; i++) {
+                products.add(new UUID(in.readLong(), in.readLong()));
+            }
+            products = Collections.unmodifiableSet(products);
+        }
+        return new Header(rows, min, max, List.copyOf(stores), products);
+    }
+
+    private static String[] readStores(DataInputStream column, int rows, List<String> stores) throws IOException {
+        String[] result = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            int code = (int) readVarLong(column);
+            result[i] = code == 0 ? null : stores.get(code - 1);
+        }
+        return result;
+    }
+
+    private interface ColumnWriter {
+        void write(DataOutputStream column) throws IOException;
+    }
+
+    private static void writeBlock(DataOutputStream out, ColumnWriter writer) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream column = new DataOutputStream(new DeflaterOutputStream(block, deflater))) {
+            writer.write(column);
+        } finally {
+            deflater.end();
+        }
+        out.writeInt(block.size());
+        block.writeTo(out);
+    }
+
+    private static DataInputStream readBlock(DataInputStream in) throws IOException {
+        byte[] block = in.readNBytes(in.readInt());
+        return new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(block))));
+    }
+
+    private static void index(Map<String, Integer> stores, String store) {
+        if (store != null) {
+            stores.putIfAbsent(store, stores.size());
+        }
+    }
+
+    private static int storeCode(Map<String, Integer> stores, String store) {
+        return store == null ? 0 : stores.get(store) + 1;
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Truncated history archive column");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long micros(OffsetDateTime timestamp) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, timestamp.toInstant());
+    }
+
+    private static OffsetDateTime timestamp(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+
+    static boolean isArchive(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+}
@@ -0,0 +1,260 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.TransactionResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Directory of {@link HistoryArchiveFile}s holding the movements of partitions that were detached and
+ * dropped from {@code transaction}. Files never overlap in time (each one is a slice of a single
+ * partition), so walking them newest first yields rows in history order. Only file headers are kept
+ * in memory; they are reloaded when the directory changes, so replicas sharing the directory see the
+ * files another instance archived. The last {@code cache-files} files read are kept decoded.
+ */
+@Slf4j
+@Component
+public class HistoryArchiveStore {
+
+    private static final Comparator<Entry> NEWEST_FIRST =
+            Comparator.comparing((Entry entry) -> entry.header().maxTimestamp()).reversed();
+
+    private final Path directory;
+    private final Map<Path, List<TransactionResponse>> decoded;
+
+    private volatile List<Entry> entries = List.of();
+    private volatile FileTime loadedAt;
+
+    public HistoryArchiveStore(@Value("${inventory.archive.dir:history-archive}") String directory,
+            @Value("${inventory.archive.cache-files:8}") int cacheFiles) {
+        this.directory = Path.of(directory);
+        this.decoded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, List<TransactionResponse>> eldest) {
+                return size() > cacheFiles;
+            }
+        };
+    }
+
+    /**
+     * Writes {@code rows} (newest first) as {@code name}.txa, replacing a previous file with that name.
+     */
+    public synchronized void add(String name, List<TransactionResponse> rows) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(name + HistoryArchiveFile.SUFFIX);
+        Path tmp = directory.resolve(name + HistoryArchiveFile.SUFFIX + ".tmp");
+        HistoryArchiveFile.write(tmp, rows);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        invalidate();
+    }
+
+    /** Deletes the files whose name starts with {@code prefix}, e.g. a half-archived partition. */
+    public synchronized int removeAll(String prefix) throws IOException {
+        int removed = 0;
+        for (Entry entry : entries()) {
+            if (entry.file().getFileName().toString().startsWith(prefix)) {
+                Files.deleteIfExists(entry.file());
+                removed++;
+            }
+        }
+        invalidate();
+        return removed;
+    }
+
+    /**
+     * Archived movements matching the history filters, newest first, strictly after the
+     * ({@code afterTimestamp}, {@code afterId}) position when given, skipping {@code skip} matches.
+     */
+    public List<TransactionResponse> find(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            OffsetDateTime afterTimestamp, UUID afterId, long skip, int limit) {
+        List<TransactionResponse> result = new ArrayList<>();
+        long toSkip = skip;
+        for (Entry entry : entries()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!entry.header().overlaps(from, to) || !entry.header().mayContainStore(storeId)
+                    || !entry.header().mayContainProduct(productId)
+                    || (afterTimestamp != null && entry.header().minTimestamp().isAfter(afterTimestamp))) {
+                continue;
+            }
+            for (TransactionResponse row : rows(entry)) {
+                if (!matches(row, productId, storeId, from, to) || !isAfter(row, afterTimestamp, afterId)) {
+                    continue;
+                }
+                if (toSkip > 0) {
+                    toSkip--;
+                } else if (result.size() < limit) {
+                    result.add(row);
+                } else {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public long count(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to) {
+        long count = 0;
+        for (Entry entry : entries()) {
+            if (!entry.header().overlaps(from, to) || !entry.header().mayContainStore(storeId)
+                    || !entry.header().mayContainProduct(productId)) {
+                continue;
+            }
+            if (productId == null && storeId == null && from == null && to == null) {
+                count += entry.header().rows();
+                continue;
+            }
+            for (TransactionResponse row : rows(entry)) {
+                if (matches(row, productId, storeId, from, to)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Net change of each product at {@code storeId} from archived movements in [{@code from}, {@code to});
+     * an open {@code to} takes everything from {@code from} on. The archived counterpart of
+     * {@code InventorySnapshotRepository.sumMovements}.
+     */
+    public Map<UUID, Integer> sumMovements(String storeId, OffsetDateTime from, OffsetDateTime to) {
+        Map<UUID, Integer> deltas = new HashMap<>();
+        for (Entry entry : entries()) {
+            if (!entry.header().overlaps(from, to) || !entry.header().mayContainStore(storeId)) {
+                continue;
+            }
+            for (TransactionResponse row : rows(entry)) {
+                if (matches(row, null, storeId, from, to)) {
+                    int delta = (storeId.equals(row.getTargetStoreId()) ? row.getQuantity() : 0)
+                            - (storeId.equals(row.getSourceStoreId()) ? row.getQuantity() : 0);
+                    deltas.merge(row.getProductId(), delta, Integer::sum);
+                }
+            }
+        }
+        return deltas;
+    }
+
+    public boolean isEmpty() {
+        return entries().isEmpty();
+    }
+
+    /** Timestamp of the newest archived movement, or null when nothing is archived. */
+    public OffsetDateTime findNewestTimestamp() {
+        List<Entry> current = entries();
+        return current.isEmpty() ? null : current.get(0).header().maxTimestamp();
+    }
+
+    private static boolean matches(TransactionResponse row, UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to) {
+        return (productId == null || productId.equals(row.getProductId()))
+                && (storeId == null || storeId.equals(row.getSourceStoreId()) || storeId.equals(row.getTargetStoreId()))
+                && (from == null || !row.getTimestamp().isBefore(from))
+                && (to == null || row.getTimestamp().isBefore(to));
+    }
+
+    // Same (timestamp, id) row comparison as the database: Postgres orders uuids as unsigned bytes
+    private static boolean isAfter(TransactionResponse row, OffsetDateTime afterTimestamp, UUID afterId) {
+        if (afterTimestamp == null) {
+            return true;
+        }
+        int byTimestamp = row.getTimestamp().compareTo(afterTimestamp);
+        if (byTimestamp != 0) {
+            return byTimestamp < 0;
+        }
+        int byId = Long.compareUnsigned(row.getId().getMostSignificantBits(), afterId.getMostSignificantBits());
+        if (byId == 0) {
+            byId = Long.compareUnsigned(row.getId().getLeastSignificantBits(), afterId.getLeastSignificantBits());
+        }
+        return byId < 0;
+    }
+
+    private List<TransactionResponse> rows(Entry entry) {
+        synchronized (decoded) {
+            List<TransactionResponse> rows = decoded.get(entry.file());
+            if (rows != null) {
+                return rows;
+            }
+        }
+        try {
+            List<TransactionResponse> rows = HistoryArchiveFile.readRows(entry.file());
+            synchronized (decoded) {
+                decoded.put(entry.file(), rows);
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read history archive " + entry.file(), e);
+        }
+    }
+
+    private List<Entry> entries() {
+        FileTime modified = lastModified();
+        if (modified == null) {
+            return List.of();
+        }
+        if (!modified.equals(loadedAt)) {
+            reload(modified);
+        }
+        return entries;
+    }
+
+    private synchronized void reload(FileTime modified) {
+        if (modified.equals(loadedAt)) {
+            return;
+        }
+        List<Entry> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(HistoryArchiveFile::isArchive).toList()) {
+                try {
+                    loaded.add(new Entry(file, HistoryArchiveFile.readHeader(file)));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable history archive {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list history archive " + directory, e);
+        }
+        loaded.sort(NEWEST_FIRST);
+        entries = List.copyOf(loaded);
+        loadedAt = modified;
+        synchronized (decoded) {
+            decoded.clear();
+        }
+        log.debug("Loaded {} history archive files from {}", loaded.size(), directory);
+    }
+
+    private void invalidate() {
+        loadedAt = null;
+    }
+
+    private FileTime lastModified() {
+        try {
+            return Files.getLastModifiedTime(directory);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read history archive " + directory, e);
+        }
+    }
+
+    private record Entry(Path file, HistoryArchiveFile.Header header) {
+    }
+}
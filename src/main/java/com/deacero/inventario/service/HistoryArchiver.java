@@ -0,0 +1,93 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.repository.TransactionArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the partitions detached by {@link TransactionPartitionManager} out of Postgres: each one is
+ * written to the {@link HistoryArchiveStore} in files of {@code rows-per-file} movements and only then
+ * dropped. A failed partition is left in the database, its partial files removed, and retried on the
+ * next run. Enable it on a single instance; the archive directory is shared by every replica.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.archive.enabled", havingValue = "true")
+public class HistoryArchiver {
+
+    private final TransactionArchiveRepository archiveRepository;
+    private final HistoryArchiveStore archiveStore;
+    private final int rowsPerFile;
+
+    public HistoryArchiver(TransactionArchiveRepository archiveRepository, HistoryArchiveStore archiveStore,
+            @Value("${inventory.archive.rows-per-file:500000}") int rowsPerFile) {
+        this.archiveRepository = archiveRepository;
+        this.archiveStore = archiveStore;
+        this.rowsPerFile = Math.max(1, rowsPerFile);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${inventory.archive.cron:0 30 3 * * *}", zone = "UTC")
+    public void archive() {
+        List<String> partitions;
+        try {
+            partitions = archiveRepository.findDetachedPartitions();
+        } catch (DataAccessException e) {
+            log.warn("Cannot list detached transaction partitions", e);
+            return;
+        }
+        for (String partition : partitions) {
+            archive(partition);
+        }
+    }
+
+    void archive(String partition) {
+        String prefix = partition + "-";
+        try {
+            archiveStore.removeAll(prefix);
+            List<TransactionResponse> chunk = new ArrayList<>();
+            int[] files = {0};
+            long[] rows = {0};
+            archiveRepository.streamPartition(partition, row -> {
+                chunk.add(row);
+                rows[0]++;
+                if (chunk.size() == rowsPerFile) {
+                    write(prefix + files[0]++, chunk);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                write(prefix + files[0]++, chunk);
+            }
+            archiveRepository.dropPartition(partition);
+            log.info("Archived transaction partition {}: {} movements in {} files", partition, rows[0], files[0]);
+        } catch (IOException | UncheckedIOException | DataAccessException e) {
+            try {
+                archiveStore.removeAll(prefix);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            log.warn("Archiving transaction partition {} failed, it stays in the database", partition, e);
+        }
+    }
+
+    private void write(String name, List<TransactionResponse> chunk) {
+        try {
+            archiveStore.add(name, chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chunk.clear();
+    }
+}
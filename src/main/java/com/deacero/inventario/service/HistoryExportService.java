@@ -0,0 +1,13 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public interface HistoryExportService {
+	long exportHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to, ExportFormat format,
+			OutputStream output) throws IOException;
+}
@@ -0,0 +1,99 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.ExportFormat;
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class HistoryExportServiceImpl implements HistoryExportService {
+
+    private static final String CSV_HEADER = "id,productId,sourceStoreId,targetStoreId,quantity,timestamp,type\n";
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    public HistoryExportServiceImpl(TransactionRepository transactionRepository, ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Rows go from the JDBC cursor to the output one at a time; the read-only transaction keeps the cursor open
+    @Override
+    @Transactional(readOnly = true)
+    public long exportHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+            ExportFormat format, OutputStream output) throws IOException {
+        long started = System.currentTimeMillis();
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        try (Stream<TransactionResponse> rows = transactionRepository.streamHistory(productId,
+                storeId == null || storeId.isBlank() ? null : storeId, from, to)) {
+            Iterator<TransactionResponse> it = rows.iterator();
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                while (it.hasNext()) {
+                    writeCsv(writer, it.next());
+                    count++;
+                }
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                while (it.hasNext()) {
+                    generator.writeObject(it.next());
+                    count++;
+                }
+                generator.writeRaw('\n');
+                generator.flush();
+            }
+        }
+        writer.flush();
+        log.info("History export: {} rows as {} in {} ms", count, format, System.currentTimeMillis() - started);
+        return count;
+    }
+
+    private static void writeCsv(Writer writer, TransactionResponse row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getProductId()));
+        writer.write(',');
+        writer.write(csvField(row.getSourceStoreId()));
+        writer.write(',');
+        writer.write(csvField(row.getTargetStoreId()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getQuantity()));
+        writer.write(',');
+        writer.write(row.getTimestamp() == null ? "" : row.getTimestamp().toString());
+        writer.write(',');
+        writer.write(row.getType() == null ? "" : row.getType().name());
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,15 @@
+package com.deacero.inventario.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The Idempotency-Key claimed by the current transaction while its action runs. Engines that make a
+ * movement durable outside that transaction carry it along, so the key is written with the movement.
+ */
+record IdempotencyClaim(String key, String operation, String requestHash) {
+
+    /** Null when the running action has no Idempotency-Key. */
+    static IdempotencyClaim current() {
+        return (IdempotencyClaim) TransactionSynchronizationManager.getResource(IdempotencyClaim.class);
+    }
+}
@@ -0,0 +1,11 @@
+package com.deacero.inventario.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+	/**
+	 * Runs {@code action} once per key. A repeated key with the same request returns the stored result
+	 * without running it again. A null key just runs the action.
+	 */
+	<T> T execute(String key, String operation, Object request, Class<T> resultType, Supplier<T> action);
+}
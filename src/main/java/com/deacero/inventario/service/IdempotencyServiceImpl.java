@@ -0,0 +1,151 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.IdempotencyKey;
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.exception.ConflictException;
+import com.deacero.inventario.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * The key is claimed, the action runs and its response is stored in one transaction, together with the
+ * ledger rows the action writes. A retry either finds the committed key and replays the stored response,
+ * or, if the first attempt rolled back, runs normally. Recently seen keys are kept in memory so repeats
+ * are answered without going to the database.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final RetryingTransactionExecutor retryingExecutor;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> recent;
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+            RetryingTransactionExecutor retryingExecutor,
+            ObjectMapper objectMapper,
+            @Value("${inventory.idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${inventory.idempotency.cache-size:100000}") long cacheSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.retryingExecutor = retryingExecutor;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public <T> T execute(String key, String operation, Object request, Class<T> resultType, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(operation, request);
+        StoredResponse cached = recent.getIfPresent(key);
+        if (cached != null) {
+            return replay(key, cached, operation, requestHash, resultType);
+        }
+
+        Outcome<T> outcome = retryingExecutor.execute(operation, () -> claimOrLoad(key, operation, requestHash, action));
+        recent.put(key, outcome.stored());
+        if (outcome.replayed()) {
+            return replay(key, outcome.stored(), operation, requestHash, resultType);
+        }
+        return outcome.result();
+    }
+
+    private <T> Outcome<T> claimOrLoad(String key, String operation, String requestHash, Supplier<T> action) {
+        if (idempotencyKeyRepository.claim(key, operation, requestHash) == 1) {
+            T result;
+            TransactionSynchronizationManager.bindResource(IdempotencyClaim.class,
+                    new IdempotencyClaim(key, operation, requestHash));
+            try {
+                result = action.get();
+            } finally {
+                TransactionSynchronizationManager.unbindResource(IdempotencyClaim.class);
+            }
+            String response = toJson(result);
+            idempotencyKeyRepository.recordResponse(key, response);
+            return new Outcome<>(new StoredResponse(operation, requestHash, response), false, result);
+        }
+        IdempotencyKey existing = idempotencyKeyRepository.findById(key)
+                .orElseThrow(() -> new IllegalStateException("Idempotency key " + key + " vanished while in use"));
+        return new Outcome<>(new StoredResponse(existing.getOperation(), existing.getRequestHash(),
+                existing.getResponse()), true, null);
+    }
+
+    private <T> T replay(String key, StoredResponse stored, String operation, String requestHash, Class<T> resultType) {
+        if (!stored.operation().equals(operation) || !stored.requestHash().equals(requestHash)) {
+            throw new ConflictException("Idempotency-Key already used for a different request");
+        }
+        if (stored.response() == null) {
+            // Written by the ledger engine along with the movements of a batch whose own transaction failed
+            throw new ConflictException("Idempotency-Key already applied; its response was not stored");
+        }
+        log.info("Replaying stored response for idempotency key {}", key);
+        try {
+            return objectMapper.readValue(stored.response(), resultType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + key + " is unreadable", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${inventory.idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = idempotencyKeyRepository.deleteCreatedBefore(OffsetDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash request", e);
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response", e);
+        }
+    }
+
+    private record StoredResponse(String operation, String requestHash, String response) {
+    }
+
+    private record Outcome<T>(StoredResponse stored, boolean replayed, T result) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Business counters exported next to the service timers: movements per {@link Transaction.Type}
+ * (operations and units) and API errors per response code.
+ */
+@Component
+public class InventoryMetrics {
+
+    private final MeterRegistry registry;
+
+    public InventoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Counted once the movement is committed, so retried or rolled back attempts are not
+    public void recordMovements(Transaction.Type type, int movements, long units) {
+        if (movements <= 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incrementMovements(type, movements, units);
+                }
+            });
+        } else {
+            incrementMovements(type, movements, units);
+        }
+    }
+
+    public void recordError(String code) {
+        Counter.builder("inventory.errors")
+                .description("API requests answered with an error, by response code")
+                .tag("code", code)
+                .register(registry)
+                .increment();
+    }
+
+    private void incrementMovements(Transaction.Type type, int movements, long units) {
+        Counter.builder("inventory.movements")
+                .description("Stock movements applied")
+                .tag("type", type.name())
+                .register(registry)
+                .increment(movements);
+        Counter.builder("inventory.movement.units")
+                .description("Units moved by applied stock movements")
+                .tag("type", type.name())
+                .register(registry)
+                .increment(units);
+    }
+}
@@ -1,5 +1,8 @@
 package com.deacero.inventario.service;
 
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.CursorPage;
 import com.deacero.inventario.models.InventoryItemResponse;
 import com.deacero.inventario.models.LowStockProductResponse;
 import com.deacero.inventario.models.MovementRequest;
@@ -9,17 +12,22 @@ import com.deacero.inventario.models.TransferRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
 public interface InventoryService {
 	List<InventoryItemResponse> getInventoryByStore(String storeId);
 	void transfer(TransferRequest request);
-	List<LowStockProductResponse> listLowStockAlerts();
+	Page<LowStockProductResponse> listLowStockAlerts(String storeId, String category, Pageable pageable);
 	void loadInitialStock(StockLoadRequest request);
 	void registerEntry(MovementRequest request);
 	void registerOut(MovementRequest request);
-	Page<TransactionResponse> listHistory(UUID productId, String storeId, Pageable pageable);
+	BatchMovementResponse registerMovements(BatchMovementRequest request);
+	Page<TransactionResponse> listHistory(UUID productId, String storeId, OffsetDateTime from, OffsetDateTime to,
+			Pageable pageable);
+	CursorPage<TransactionResponse> listHistoryByCursor(UUID productId, String storeId, OffsetDateTime from,
+			OffsetDateTime to, String cursor, int size);
 }
 
 
@@ -1,9 +1,12 @@
 package com.deacero.inventario.service;
 
 import com.deacero.inventario.entities.Inventory;
-import com.deacero.inventario.entities.Product;
 import com.deacero.inventario.entities.Transaction;
 import com.deacero.inventario.mapper.InventoryMapper;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.CursorPage;
 import com.deacero.inventario.models.InventoryItemResponse;
 import com.deacero.inventario.models.LowStockProductResponse;
 import com.deacero.inventario.models.MovementRequest;
@@ -12,17 +15,29 @@ import com.deacero.inventario.models.TransactionResponse;
 import com.deacero.inventario.models.TransferRequest;
 import com.deacero.inventario.repository.InventoryRepository;
 import com.deacero.inventario.repository.ProductRepository;
+import com.deacero.inventario.repository.StockLevel;
 import com.deacero.inventario.repository.TransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import com.deacero.inventario.exception.BadRequestException;
 import com.deacero.inventario.exception.ResourceNotFoundException;
 import com.deacero.inventario.exception.InsufficientStockException;
 import com.deacero.inventario.exception.ConflictException;
@@ -30,21 +45,36 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
+@Timed(value = "inventory.service", histogram = true)
 public class InventoryServiceImpl implements InventoryService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final InventoryRepository inventoryRepository;
     private final TransactionRepository transactionRepository;
     private final ProductRepository productRepository;
+    private final ProductService productService;
     private final InventoryMapper inventoryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RetryingTransactionExecutor retryingExecutor;
+    private final HistoryArchiveStore historyArchive;
 
     public InventoryServiceImpl(InventoryRepository inventoryRepository,
             TransactionRepository transactionRepository,
             ProductRepository productRepository,
-            InventoryMapper inventoryMapper) {
+            ProductService productService,
+            InventoryMapper inventoryMapper,
+            ApplicationEventPublisher eventPublisher,
+            RetryingTransactionExecutor retryingExecutor,
+            HistoryArchiveStore historyArchive) {
         this.inventoryRepository = inventoryRepository;
         this.transactionRepository = transactionRepository;
         this.productRepository = productRepository;
+        this.productService = productService;
         this.inventoryMapper = inventoryMapper;
+        this.eventPublisher = eventPublisher;
+        this.retryingExecutor = retryingExecutor;
+        this.historyArchive = historyArchive;
     }
 
     @Override
@@ -58,163 +88,247 @@ public class InventoryServiceImpl implements InventoryService {
     }
 
     @Override
-    @Transactional
     public void transfer(TransferRequest request) {
-        UUID productId = request.getProductId();
-        // Validate product exists
-        productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-        Inventory source = inventoryRepository.findByStoreIdAndProductId(request.getSourceStoreId(), productId)
-                .orElseGet(() -> Inventory.builder()
-                        .storeId(request.getSourceStoreId())
-                        .productId(productId)
-                        .quantity(0)
-                        .minStock(0)
-                        .build());
-
-        if (source.getQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException("Insufficient stock in source store");
-        }
-
-        Inventory target = inventoryRepository.findByStoreIdAndProductId(request.getTargetStoreId(), productId)
-                .orElseGet(() -> Inventory.builder()
-                        .storeId(request.getTargetStoreId())
-                        .productId(productId)
-                        .quantity(0)
-                        .minStock(0)
-                        .build());
+        retryingExecutor.execute("transfer", () -> applyTransfer(request));
+    }
 
-        source.setQuantity(source.getQuantity() - request.getQuantity());
-        target.setQuantity(target.getQuantity() + request.getQuantity());
+    private void applyTransfer(TransferRequest request) {
+        UUID productId = request.getProductId();
+        requireProduct(productId);
 
-        inventoryRepository.save(source);
-        inventoryRepository.save(target);
+        // Both rows are always locked in store id order, so A->B and B->A transfers running at the
+        // same time queue on the same first row instead of deadlocking. It is the code point order the
+        // batch statements lock in with COLLATE "C". When the target comes first, a failed decrement
+        // still rolls back the increment with the transaction.
+        String sourceStoreId = request.getSourceStoreId();
+        String targetStoreId = request.getTargetStoreId();
+        StockLevel source;
+        StockLevel target;
+        if (compareStoreIds(sourceStoreId, targetStoreId) <= 0) {
+            source = decreaseForTransfer(sourceStoreId, productId, request.getQuantity());
+            target = inventoryRepository.increaseQuantity(targetStoreId, productId, request.getQuantity());
+        } else {
+            target = inventoryRepository.increaseQuantity(targetStoreId, productId, request.getQuantity());
+            source = decreaseForTransfer(sourceStoreId, productId, request.getQuantity());
+        }
+        publishStockChange(source);
+        publishStockChange(target);
+        // A transfer leaves the product's total stock unchanged, so product_stock is not touched
 
         Transaction tx = Transaction.builder()
                 .productId(productId)
-                .sourceStoreId(request.getSourceStoreId())
-                .targetStoreId(request.getTargetStoreId())
+                .sourceStoreId(sourceStoreId)
+                .targetStoreId(targetStoreId)
                 .quantity(request.getQuantity())
                 .type(Transaction.Type.TRANSFER)
                 .build();
         transactionRepository.save(tx);
     }
 
+    // String.compareTo orders UTF-16 units, which differs from code point order past U+FFFF
+    static int compareStoreIds(String a, String b) {
+        return Arrays.compare(a.codePoints().toArray(), b.codePoints().toArray());
+    }
+
+    private StockLevel decreaseForTransfer(String storeId, UUID productId, int quantity) {
+        return inventoryRepository.decreaseQuantity(storeId, productId, quantity)
+                .orElseThrow(() -> new InsufficientStockException("Insufficient stock in source store"));
+    }
+
     @Override
-    public List<LowStockProductResponse> listLowStockAlerts() {
-        List<Inventory> lowStock = inventoryRepository.findLowStockItems();
-        List<LowStockProductResponse> result = new ArrayList<>();
-        for (Inventory i : lowStock) {
-            Optional<Product> productOpt = i.getProductId() != null ? productRepository.findById(i.getProductId())
-                    : Optional.empty();
-            if (productOpt.isEmpty()) {
-                continue;
-            }
-            Product p = productOpt.get();
-            result.add(LowStockProductResponse.builder()
-                    .productId(p.getId())
-                    .productName(p.getName())
-                    .sku(p.getSku())
-                    .price(p.getPrice())
-                    .storeId(i.getStoreId())
-                    .quantity(i.getQuantity())
-                    .minStock(i.getMinStock())
-                    .build());
-        }
-        return result;
+    public Page<LowStockProductResponse> listLowStockAlerts(String storeId, String category, Pageable pageable) {
+        return inventoryRepository.findLowStockAlerts(blankToNull(storeId), blankToNull(category), pageable);
     }
 
     @Override
     @Transactional
     public void loadInitialStock(StockLoadRequest request) {
         UUID productId = request.getProductId();
-        productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        Optional<Inventory> existingInventory = inventoryRepository.findByStoreIdAndProductId(request.getStoreId(),
-                productId);
-
-        Inventory inv;
-        if (existingInventory.isPresent()) {
-            Inventory existing = existingInventory.get();
-            if (existing.getQuantity() != null && existing.getQuantity() > 0) {
-                throw new ConflictException("Inventory already initialized for this store/product");
-            }
-            inv = existing;
-        } else {
-            inv = Inventory.builder()
-                    .storeId(request.getStoreId())
-                    .productId(productId)
-                    .quantity(0)
-                    .minStock(0)
-                    .build();
-        }
-        inv.setQuantity(request.getQuantity());
-        if (request.getMinStock() != null) {
-            inv.setMinStock(request.getMinStock());
-        }
-        inventoryRepository.save(inv);
-        Transaction tx = Transaction.builder()
-                .productId(productId)
-                .targetStoreId(request.getStoreId())
-                .quantity(request.getQuantity())
-                .type(Transaction.Type.IN)
-                .build();
-        transactionRepository.save(tx);
-
+        requireProduct(productId);
+        StockLevel level = inventoryRepository.applyInitialLoad(request.getStoreId(), productId,
+                        request.getQuantity(), request.getMinStock())
+                .orElseThrow(() -> new ConflictException("Inventory already initialized for this store/product"));
+        publishStockChange(level);
     }
 
     @Override
     @Transactional
     public void registerEntry(MovementRequest request) {
         UUID productId = request.getProductId();
-        productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        Inventory inv = inventoryRepository.findByStoreIdAndProductId(request.getStoreId(), productId)
-                .orElseGet(() -> Inventory.builder()
-                        .storeId(request.getStoreId())
-                        .productId(productId)
-                        .quantity(0)
-                        .minStock(0)
-                        .build());
-        inv.setQuantity(inv.getQuantity() + request.getQuantity());
-        inventoryRepository.save(inv);
-        Transaction tx = Transaction.builder()
-                .productId(productId)
-                .targetStoreId(request.getStoreId())
-                .quantity(request.getQuantity())
-                .type(Transaction.Type.IN)
-                .build();
-        transactionRepository.save(tx);
+        requireProduct(productId);
+        StockLevel level = inventoryRepository.applyEntry(request.getStoreId(), productId, request.getQuantity());
+        publishStockChange(level);
     }
 
     @Override
     @Transactional
     public void registerOut(MovementRequest request) {
         UUID productId = request.getProductId();
-        productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        Inventory inv = inventoryRepository.findByStoreIdAndProductId(request.getStoreId(), productId)
-                .orElseGet(() -> Inventory.builder()
-                        .storeId(request.getStoreId())
-                        .productId(productId)
-                        .quantity(0)
-                        .minStock(0)
-                        .build());
-        if (inv.getQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException("Insufficient stock in store");
+        requireProduct(productId);
+        StockLevel level = inventoryRepository.applyOut(request.getStoreId(), productId, request.getQuantity())
+                .orElseThrow(() -> new InsufficientStockException("Insufficient stock in store"));
+        publishStockChange(level);
+    }
+
+    @Override
+    public BatchMovementResponse registerMovements(BatchMovementRequest request) {
+        Transaction.Type type = request.getType();
+        if (type != Transaction.Type.IN && type != Transaction.Type.OUT) {
+            throw new BadRequestException("Batch movements support IN and OUT only");
         }
-        inv.setQuantity(inv.getQuantity() - request.getQuantity());
-        inventoryRepository.save(inv);
-        Transaction tx = Transaction.builder()
-                .productId(productId)
-                .sourceStoreId(request.getStoreId())
-                .quantity(request.getQuantity())
-                .type(Transaction.Type.OUT)
+        return retryingExecutor.execute("movementsBatch", () -> applyMovements(type, request.getMovements()));
+    }
+
+    private BatchMovementResponse applyMovements(Transaction.Type type, List<MovementRequest> lines) {
+        boolean entry = type == Transaction.Type.IN;
+        Set<UUID> existingProducts = new HashSet<>(productRepository.findExistingIds(
+                lines.stream().map(MovementRequest::getProductId).collect(Collectors.toSet())));
+        Map<StockKey, Integer> available = entry ? Map.of() : lockAvailable(lines, existingProducts);
+
+        // Lines are decided in order against the running quantity, then applied as one delta per store/product
+        List<BatchMovementResult> results = new ArrayList<>(lines.size());
+        Map<StockKey, Integer> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            MovementRequest line = lines.get(i);
+            StockKey key = new StockKey(line.getStoreId(), line.getProductId());
+            BatchMovementResult.Reason rejection = null;
+            if (!existingProducts.contains(line.getProductId())) {
+                rejection = BatchMovementResult.Reason.PRODUCT_NOT_FOUND;
+            } else if (!entry && available.getOrDefault(key, 0) - deltas.getOrDefault(key, 0) < line.getQuantity()) {
+                rejection = BatchMovementResult.Reason.INSUFFICIENT_STOCK;
+            }
+            if (rejection == null) {
+                deltas.merge(key, line.getQuantity(), Integer::sum);
+            }
+            results.add(BatchMovementResult.builder()
+                    .line(i + 1)
+                    .productId(line.getProductId())
+                    .storeId(line.getStoreId())
+                    .quantity(line.getQuantity())
+                    .status(rejection == null ? BatchMovementResult.Status.APPLIED : BatchMovementResult.Status.REJECTED)
+                    .reason(rejection)
+                    .message(rejection == null ? null : rejection.message())
+                    .build());
+        }
+        if (deltas.isEmpty()) {
+            return toBatchResponse(type, results);
+        }
+
+        String[] storeIds = deltas.keySet().stream().map(StockKey::storeId).toArray(String[]::new);
+        UUID[] productIds = deltas.keySet().stream().map(StockKey::productId).toArray(UUID[]::new);
+        int[] quantities = deltas.values().stream().mapToInt(Integer::intValue).toArray();
+        List<StockLevel> levels = entry
+                ? inventoryRepository.increaseQuantities(storeIds, productIds, quantities)
+                : inventoryRepository.decreaseQuantities(storeIds, productIds, quantities);
+
+        Map<StockKey, Integer> running = new HashMap<>();
+        for (StockLevel level : levels) {
+            StockKey key = new StockKey(level.getStoreId(), level.getProductId());
+            int delta = deltas.get(key);
+            running.put(key, entry ? level.getQuantity() - delta : level.getQuantity() + delta);
+            publishStockChange(level);
+        }
+        List<Transaction> ledger = new ArrayList<>();
+        for (BatchMovementResult result : results) {
+            if (result.getStatus() != BatchMovementResult.Status.APPLIED) {
+                continue;
+            }
+            StockKey key = new StockKey(result.getStoreId(), result.getProductId());
+            result.setResultingQuantity(running.merge(key, entry ? result.getQuantity() : -result.getQuantity(), Integer::sum));
+            ledger.add(Transaction.builder()
+                    .productId(result.getProductId())
+                    .sourceStoreId(entry ? null : result.getStoreId())
+                    .targetStoreId(entry ? result.getStoreId() : null)
+                    .quantity(result.getQuantity())
+                    .type(type)
+                    .build());
+        }
+        // Sent as JDBC batches (hibernate.jdbc.batch_size)
+        transactionRepository.saveAll(ledger);
+        return toBatchResponse(type, results);
+    }
+
+    private Map<StockKey, Integer> lockAvailable(List<MovementRequest> lines, Set<UUID> existingProducts) {
+        Set<StockKey> keys = lines.stream()
+                .filter(line -> existingProducts.contains(line.getProductId()))
+                .map(line -> new StockKey(line.getStoreId(), line.getProductId()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        List<StockLevel> locked = inventoryRepository.lockLevels(
+                keys.stream().map(StockKey::storeId).toArray(String[]::new),
+                keys.stream().map(StockKey::productId).toArray(UUID[]::new));
+        Map<StockKey, Integer> available = new HashMap<>();
+        for (StockLevel level : locked) {
+            available.put(new StockKey(level.getStoreId(), level.getProductId()), level.getQuantity());
+        }
+        return available;
+    }
+
+    private static BatchMovementResponse toBatchResponse(Transaction.Type type, List<BatchMovementResult> results) {
+        int applied = (int) results.stream().filter(r -> r.getStatus() == BatchMovementResult.Status.APPLIED).count();
+        return BatchMovementResponse.builder()
+                .type(type)
+                .applied(applied)
+                .rejected(results.size() - applied)
+                .results(results)
                 .build();
-        transactionRepository.save(tx);
     }
 
     @Override
-    public Page<TransactionResponse> listHistory(UUID productId, String storeId, Pageable pageable) {
-        Page<Transaction> page = transactionRepository.findHistory(productId, storeId, pageable);
-        List<TransactionResponse> content = page.getContent().stream().map(t -> TransactionResponse.builder()
+    public Page<TransactionResponse> listHistory(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to, Pageable pageable) {
+        storeId = blankToNull(storeId);
+        Page<Transaction> page = transactionRepository.findHistory(productId, storeId, from, to, pageable);
+        List<TransactionResponse> content = page.getContent().stream().map(InventoryServiceImpl::toTransactionResponse).toList();
+        // Archived partitions only hold older movements, so in the default order they simply follow the
+        // database rows; a custom sort is served from the database alone
+        if (pageable.getSort().isSorted() || historyArchive.isEmpty()) {
+            return new PageImpl<>(content, pageable, page.getTotalElements());
+        }
+        long total = page.getTotalElements() + historyArchive.count(productId, storeId, from, to);
+        if (pageable.isPaged() && content.size() == pageable.getPageSize()) {
+            return new PageImpl<>(content, pageable, total);
+        }
+        long skip = pageable.isPaged() ? Math.max(0, pageable.getOffset() - page.getTotalElements()) : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() - content.size() : Integer.MAX_VALUE;
+        List<TransactionResponse> merged = new ArrayList<>(content);
+        merged.addAll(historyArchive.find(productId, storeId, from, to, null, null, skip, limit));
+        return new PageImpl<>(merged, pageable, total);
+    }
+
+    @Override
+    public CursorPage<TransactionResponse> listHistoryByCursor(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to, String cursor, int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        storeId = blankToNull(storeId);
+        HistoryCursor after = cursor == null || cursor.isBlank() ? null : HistoryCursor.decode(cursor);
+        // One extra row tells whether there is a next page without counting
+        List<TransactionResponse> rows = new ArrayList<>(transactionRepository.findHistoryAfter(productId, storeId,
+                from, to, after == null ? null : after.timestamp(), after == null ? null : after.id(), size + 1)
+                .stream().map(InventoryServiceImpl::toTransactionResponse).toList());
+        if (rows.size() <= size) {
+            // The database ran out: continue with the archived partitions from the same position
+            TransactionResponse lastRow = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            OffsetDateTime afterTimestamp = lastRow != null ? lastRow.getTimestamp() : after == null ? null : after.timestamp();
+            UUID afterId = lastRow != null ? lastRow.getId() : after == null ? null : after.id();
+            rows.addAll(historyArchive.find(productId, storeId, from, to, afterTimestamp, afterId, 0, size + 1 - rows.size()));
+        }
+        boolean hasNext = rows.size() > size;
+        List<TransactionResponse> page = hasNext ? rows.subList(0, size) : rows;
+        TransactionResponse last = hasNext ? page.get(page.size() - 1) : null;
+        return CursorPage.<TransactionResponse>builder()
+                .content(List.copyOf(page))
+                .size(page.size())
+                .nextCursor(last == null ? null : new HistoryCursor(last.getTimestamp(), last.getId()).encode())
+                .build();
+    }
+
+    private static TransactionResponse toTransactionResponse(Transaction t) {
+        return TransactionResponse.builder()
                 .id(t.getId())
                 .productId(t.getProductId())
                 .sourceStoreId(t.getSourceStoreId())
@@ -222,7 +336,20 @@ public class InventoryServiceImpl implements InventoryService {
                 .quantity(t.getQuantity())
                 .timestamp(t.getTimestamp())
                 .type(t.getType())
-                .build()).toList();
-        return new PageImpl<>(content, pageable, page.getTotalElements());
+                .build();
+    }
+
+    // Served from the product cache for hot SKUs
+    private void requireProduct(UUID productId) {
+        productService.getProduct(productId).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+    }
+
+    private void publishStockChange(StockLevel level) {
+        eventPublisher.publishEvent(new StockChangedEvent(level.getProductId(), level.getStoreId(),
+                level.getQuantity(), level.getMinStock()));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 }
@@ -0,0 +1,10 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.InventoryItemResponse;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface InventorySnapshotService {
+	List<InventoryItemResponse> getInventoryAsOf(String storeId, OffsetDateTime asOf);
+}
@@ -0,0 +1,139 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.repository.InventorySnapshotRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stock of a store at a past instant, rebuilt from the nearest inventory snapshot and the movements
+ * between the snapshot and that instant: forward from an earlier snapshot, backward from a later one
+ * or backward from the live inventory, whichever is closest. The replay is bounded by the snapshot
+ * interval, not by the length of the history. Movements of partitions moved to the
+ * {@link HistoryArchiveStore} are read from there.
+ *
+ * <p>A snapshot is taken once {@code interval} has passed or {@code every-movements} movements were
+ * recorded since the previous one. It is dated {@code settle} in the past, so movements stamped before
+ * that instant have committed by the time it is taken.
+ */
+@Slf4j
+@Service
+@Timed(value = "inventory.service", histogram = true)
+public class InventorySnapshotServiceImpl implements InventorySnapshotService {
+
+    private final InventorySnapshotRepository snapshotRepository;
+    private final HistoryArchiveStore archiveStore;
+    private final boolean enabled;
+    private final Duration interval;
+    private final long everyMovements;
+    private final Duration settle;
+    private final Duration retention;
+
+    public InventorySnapshotServiceImpl(InventorySnapshotRepository snapshotRepository,
+            HistoryArchiveStore archiveStore,
+            @Value("${inventory.snapshots.enabled:true}") boolean enabled,
+            @Value("${inventory.snapshots.interval:P1D}") Duration interval,
+            @Value("${inventory.snapshots.every-movements:100000}") long everyMovements,
+            @Value("${inventory.snapshots.settle:PT5M}") Duration settle,
+            @Value("${inventory.snapshots.retention:P0D}") Duration retention) {
+        this.snapshotRepository = snapshotRepository;
+        this.archiveStore = archiveStore;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.everyMovements = everyMovements;
+        this.settle = settle;
+        this.retention = retention;
+    }
+
+    // Repeatable read: the snapshot, the live inventory and the movement sums are read from one MVCC snapshot
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<InventoryItemResponse> getInventoryAsOf(String storeId, OffsetDateTime asOf) {
+        OffsetDateTime now = OffsetDateTime.now();
+        if (asOf.isAfter(now)) {
+            throw new BadRequestException("asOf must not be in the future");
+        }
+        OffsetDateTime before = snapshotRepository.findLatestAtOrBefore(asOf);
+        OffsetDateTime after = snapshotRepository.findEarliestAfter(asOf);
+        Duration backward = Duration.between(asOf, after != null ? after : now);
+
+        Map<UUID, Integer> quantities;
+        if (before != null && Duration.between(before, asOf).compareTo(backward) <= 0) {
+            quantities = snapshotRepository.findSnapshot(storeId, before);
+            sumMovements(storeId, before, asOf).forEach((productId, delta) ->
+                    quantities.merge(productId, delta, Integer::sum));
+        } else {
+            quantities = after != null
+                    ? snapshotRepository.findSnapshot(storeId, after)
+                    : snapshotRepository.findCurrent(storeId);
+            sumMovements(storeId, asOf, after).forEach((productId, delta) ->
+                    quantities.merge(productId, -delta, Integer::sum));
+        }
+        return quantities.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(UUID::toString)))
+                .map(e -> InventoryItemResponse.builder()
+                        .storeId(storeId)
+                        .productId(e.getKey())
+                        .quantity(e.getValue())
+                        .build())
+                .toList();
+    }
+
+    // Archived partitions are detached from transaction before they are written out, so no movement is
+    // counted on both sides
+    private Map<UUID, Integer> sumMovements(String storeId, OffsetDateTime from, OffsetDateTime to) {
+        Map<UUID, Integer> deltas = new HashMap<>(snapshotRepository.sumMovements(storeId, from, to));
+        archiveStore.sumMovements(storeId, from, to).forEach((productId, delta) ->
+                deltas.merge(productId, delta, Integer::sum));
+        return deltas;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.snapshots.check-interval-ms:300000}",
+            initialDelayString = "${inventory.snapshots.check-interval-ms:300000}")
+    @Transactional
+    public void maintain() {
+        if (enabled) {
+            maintain(OffsetDateTime.now());
+        }
+    }
+
+    void maintain(OffsetDateTime now) {
+        // Another replica is already on it
+        if (!snapshotRepository.tryLock()) {
+            return;
+        }
+        OffsetDateTime takenAt = now.minus(settle);
+        OffsetDateTime latest = snapshotRepository.findLatest();
+        OffsetDateTime archivedUntil = archiveStore.findNewestTimestamp();
+        if (archivedUntil != null && !archivedUntil.isBefore(takenAt)) {
+            // A snapshot works back from the live inventory through the movements still in the database
+            log.warn("Skipping inventory snapshot at {}: movements up to {} are already archived", takenAt, archivedUntil);
+        } else if (latest == null || !latest.plus(interval).isAfter(takenAt)
+                || (latest.isBefore(takenAt) && snapshotRepository.countMovementsSince(latest) >= everyMovements)) {
+            long started = System.currentTimeMillis();
+            int rows = snapshotRepository.create(takenAt);
+            log.info("Inventory snapshot at {}: {} rows in {} ms", takenAt, rows, System.currentTimeMillis() - started);
+        }
+        if (!retention.isZero()) {
+            int deleted = snapshotRepository.deleteBefore(now.minus(retention));
+            if (deleted > 0) {
+                log.info("Deleted {} inventory snapshots older than {}", deleted, retention);
+            }
+        }
+    }
+}
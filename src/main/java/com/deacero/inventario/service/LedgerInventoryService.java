@@ -0,0 +1,570 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Inventory;
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.exception.ConflictException;
+import com.deacero.inventario.exception.InsufficientStockException;
+import com.deacero.inventario.exception.MovementPendingException;
+import com.deacero.inventario.exception.ResourceNotFoundException;
+import com.deacero.inventario.exception.ServiceUnavailableException;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.CursorPage;
+import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.models.LowStockProductResponse;
+import com.deacero.inventario.models.MovementRequest;
+import com.deacero.inventario.models.StockLoadRequest;
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.models.TransferRequest;
+import com.deacero.inventario.repository.InventoryRepository;
+import com.deacero.inventario.repository.LedgerRecord;
+import com.deacero.inventario.repository.LedgerRepository;
+import com.deacero.inventario.repository.StockLevel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional engine ({@code inventory.engine=ledger}) for very hot SKUs. Entries, outs, transfers and
+ * batches are decided against in-memory counters owned by single-writer shards (sharded by product, so
+ * both sides of a transfer live on one shard). They are acknowledged once the record is fsynced to a
+ * local WAL. Postgres is fed asynchronously in group-committed batches, and a restart replays whatever
+ * the WAL still holds before accepting traffic. Counters are rebuilt lazily from Postgres.
+ *
+ * <p>Reads go to Postgres and may trail acknowledged movements by one apply cycle. Counters are
+ * authoritative only inside this process, so the engine must run on a single node.
+ *
+ * <p>A movement made under an Idempotency-Key carries the key in its WAL record and the key is written in
+ * the same Postgres transaction as the movement, so a key whose own transaction failed after the
+ * acknowledgement still ends up recorded. Until then a retry with that key is recognised in memory and
+ * not appended again. A movement not acknowledged within {@code ack-timeout-ms} is reported as pending,
+ * with its id, since it may still be applied.
+ *
+ * <p>A batch the database rejects (a constraint violation, e.g. a product deleted after its movement
+ * was accepted) is applied again one record at a time, and the records still rejected are moved to
+ * ledger_dead_letter so they do not hold back the ones behind them. At most {@code max-unapplied}
+ * records wait for Postgres; beyond that new movements are refused until the applier catches up.
+ */
+@Slf4j
+@Service
+@Timed(value = "inventory.service", histogram = true)
+@Primary
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "ledger")
+public class LedgerInventoryService implements InventoryService {
+
+    private static final long IDLE_PARK_NANOS = 2_000_000;
+    private static final long MAX_APPLY_BACKOFF_MS = 5_000;
+    // Stored response of the endpoints that answer without data (in, out and transfer)
+    private static final String NO_CONTENT = "null";
+
+    private final InventoryServiceImpl delegate;
+    private final InventoryRepository inventoryRepository;
+    private final ProductService productService;
+    private final LedgerRepository ledgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LedgerShard[] shards;
+    private final LedgerWal wal;
+    private final int applyBatchSize;
+    private final long ackTimeoutMs;
+    private final long maxUnapplied;
+
+    private final ConcurrentLinkedQueue<LedgerRecord> durable = new ConcurrentLinkedQueue<>();
+    private final Map<String, IdempotencyClaim> unappliedKeys = new ConcurrentHashMap<>();
+    private final AtomicLong applied = new AtomicLong();
+    private volatile boolean applying;
+    private Thread applier;
+
+    public LedgerInventoryService(InventoryServiceImpl delegate,
+            InventoryRepository inventoryRepository,
+            ProductService productService,
+            LedgerRepository ledgerRepository,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            @Value("${inventory.ledger.shards:0}") int shardCount,
+            @Value("${inventory.ledger.wal-dir:ledger-wal}") String walDir,
+            @Value("${inventory.ledger.segment-bytes:67108864}") long segmentBytes,
+            @Value("${inventory.ledger.fsync:true}") boolean fsync,
+            @Value("${inventory.ledger.apply-batch-size:1000}") int applyBatchSize,
+            @Value("${inventory.ledger.ack-timeout-ms:5000}") long ackTimeoutMs,
+            @Value("${inventory.ledger.max-unapplied:100000}") long maxUnapplied) {
+        this.delegate = delegate;
+        this.inventoryRepository = inventoryRepository;
+        this.productService = productService;
+        this.ledgerRepository = ledgerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.applyBatchSize = applyBatchSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.maxUnapplied = maxUnapplied;
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new LedgerShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new LedgerShard("ledger-shard-" + i);
+        }
+        this.wal = new LedgerWal(Path.of(walDir), segmentBytes, fsync, objectMapper, durable::addAll);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        List<LedgerRecord> recovered = wal.recover();
+        for (int from = 0; from < recovered.size(); from += applyBatchSize) {
+            applyOrDeadLetter(recovered.subList(from, Math.min(recovered.size(), from + applyBatchSize)));
+        }
+        if (!recovered.isEmpty()) {
+            wal.release(recovered.get(recovered.size() - 1).sequence());
+            log.info("Replayed {} ledger records left in the WAL", recovered.size());
+        }
+        wal.start();
+        for (LedgerShard shard : shards) {
+            shard.start();
+        }
+        applying = true;
+        applier = new Thread(this::applyLoop, "ledger-applier");
+        applier.setDaemon(true);
+        applier.start();
+        log.info("Ledger engine started with {} shards", shards.length);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        for (LedgerShard shard : shards) {
+            shard.stop();
+        }
+        wal.stop();
+        applying = false;
+        if (applier != null) {
+            LockSupport.unpark(applier);
+            applier.join();
+        }
+    }
+
+    // Every movement is appended before its counter moves, so an append the WAL refuses leaves the
+    // counter untouched
+    @Override
+    public void registerEntry(MovementRequest request) {
+        requireProduct(request.getProductId());
+        StockKey key = new StockKey(request.getStoreId(), request.getProductId());
+        IdempotencyClaim claim = IdempotencyClaim.current();
+        LedgerRecord record = record(UUID.randomUUID(), Transaction.Type.IN, key.productId(), null, key.storeId(),
+                request.getQuantity(), idempotency(claim, NO_CONTENT));
+        await(shardFor(key.productId()).submit(counters -> {
+            if (alreadyAccepted(claim)) {
+                return CompletableFuture.<LedgerRecord>completedFuture(null);
+            }
+            int resulting = current(counters, key) + request.getQuantity();
+            CompletableFuture<LedgerRecord> append = append(record, claim);
+            counters.put(key, resulting);
+            return append;
+        }).thenCompose(append -> append), List.of(record.id()));
+    }
+
+    @Override
+    public void registerOut(MovementRequest request) {
+        requireProduct(request.getProductId());
+        StockKey key = new StockKey(request.getStoreId(), request.getProductId());
+        IdempotencyClaim claim = IdempotencyClaim.current();
+        LedgerRecord record = record(UUID.randomUUID(), Transaction.Type.OUT, key.productId(), key.storeId(), null,
+                request.getQuantity(), idempotency(claim, NO_CONTENT));
+        await(shardFor(key.productId()).submit(counters -> {
+            if (alreadyAccepted(claim)) {
+                return CompletableFuture.<LedgerRecord>completedFuture(null);
+            }
+            int available = current(counters, key);
+            if (available < request.getQuantity()) {
+                throw new InsufficientStockException("Insufficient stock in store");
+            }
+            CompletableFuture<LedgerRecord> append = append(record, claim);
+            counters.put(key, available - request.getQuantity());
+            return append;
+        }).thenCompose(append -> append), List.of(record.id()));
+    }
+
+    @Override
+    public void transfer(TransferRequest request) {
+        UUID productId = request.getProductId();
+        requireProduct(productId);
+        StockKey source = new StockKey(request.getSourceStoreId(), productId);
+        StockKey target = new StockKey(request.getTargetStoreId(), productId);
+        IdempotencyClaim claim = IdempotencyClaim.current();
+        LedgerRecord record = record(UUID.randomUUID(), Transaction.Type.TRANSFER, productId, source.storeId(),
+                target.storeId(), request.getQuantity(), idempotency(claim, NO_CONTENT));
+        await(shardFor(productId).submit(counters -> {
+            if (alreadyAccepted(claim)) {
+                return CompletableFuture.<LedgerRecord>completedFuture(null);
+            }
+            int available = current(counters, source);
+            if (available < request.getQuantity()) {
+                throw new InsufficientStockException("Insufficient stock in source store");
+            }
+            current(counters, target);
+            CompletableFuture<LedgerRecord> append = append(record, claim);
+            counters.put(source, available - request.getQuantity());
+            counters.merge(target, request.getQuantity(), Integer::sum);
+            return append;
+        }).thenCompose(append -> append), List.of(record.id()));
+    }
+
+    // Lines are decided in order on the shard that owns their product; each line stands on its own, as in
+    // the database engine. The response is only known once every shard decided, so a key written with the
+    // records has none stored and a later retry is answered with a conflict instead of a replay.
+    @Override
+    public BatchMovementResponse registerMovements(BatchMovementRequest request) {
+        Transaction.Type type = request.getType();
+        if (type != Transaction.Type.IN && type != Transaction.Type.OUT) {
+            throw new BadRequestException("Batch movements support IN and OUT only");
+        }
+        boolean entry = type == Transaction.Type.IN;
+        List<MovementRequest> lines = request.getMovements();
+        IdempotencyClaim claim = IdempotencyClaim.current();
+        LedgerRecord.Idempotency idempotency = idempotency(claim, null);
+        Map<UUID, Boolean> exists = new HashMap<>();
+        Map<LedgerShard, List<Integer>> byShard = new LinkedHashMap<>();
+        UUID[] movementIds = new UUID[lines.size()];
+        List<UUID> candidateIds = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            UUID productId = lines.get(i).getProductId();
+            if (exists.computeIfAbsent(productId, id -> productService.getProduct(id).isPresent())) {
+                byShard.computeIfAbsent(shardFor(productId), s -> new ArrayList<>()).add(i);
+                movementIds[i] = UUID.randomUUID();
+                candidateIds.add(movementIds[i]);
+            }
+        }
+
+        BatchMovementResult[] results = new BatchMovementResult[lines.size()];
+        List<CompletableFuture<List<CompletableFuture<LedgerRecord>>>> decided = new ArrayList<>();
+        for (Map.Entry<LedgerShard, List<Integer>> shardLines : byShard.entrySet()) {
+            decided.add(shardLines.getKey().submit(counters -> {
+                if (alreadyAccepted(claim)) {
+                    throw new ConflictException("Idempotency-Key already applied; its response was not stored");
+                }
+                List<CompletableFuture<LedgerRecord>> appended = new ArrayList<>();
+                for (int i : shardLines.getValue()) {
+                    MovementRequest line = lines.get(i);
+                    StockKey key = new StockKey(line.getStoreId(), line.getProductId());
+                    int available = current(counters, key);
+                    if (!entry && available < line.getQuantity()) {
+                        results[i] = result(i, line, null, BatchMovementResult.Reason.INSUFFICIENT_STOCK);
+                        continue;
+                    }
+                    int resulting = entry ? available + line.getQuantity() : available - line.getQuantity();
+                    appended.add(append(record(movementIds[i], type, key.productId(), entry ? null : key.storeId(),
+                            entry ? key.storeId() : null, line.getQuantity(), idempotency), claim));
+                    counters.put(key, resulting);
+                    results[i] = result(i, line, resulting, null);
+                }
+                return appended;
+            }));
+        }
+        for (CompletableFuture<List<CompletableFuture<LedgerRecord>>> shardResult : decided) {
+            for (CompletableFuture<LedgerRecord> append : await(shardResult, candidateIds)) {
+                await(append, candidateIds);
+            }
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = result(i, lines.get(i), null, BatchMovementResult.Reason.PRODUCT_NOT_FOUND);
+            }
+        }
+        int appliedLines = (int) Arrays.stream(results)
+                .filter(r -> r.getStatus() == BatchMovementResult.Status.APPLIED).count();
+        return BatchMovementResponse.builder()
+                .type(type)
+                .applied(appliedLines)
+                .rejected(results.length - appliedLines)
+                .results(List.of(results))
+                .build();
+    }
+
+    // Initial loads are rare: the owning shard waits until Postgres has every record, lets the database
+    // engine do the load, and reloads the counter on its next use
+    @Override
+    public void loadInitialStock(StockLoadRequest request) {
+        requireProduct(request.getProductId());
+        StockKey key = new StockKey(request.getStoreId(), request.getProductId());
+        await(shardFor(key.productId()).submit(counters -> {
+            awaitApplied();
+            try {
+                delegate.loadInitialStock(request);
+            } finally {
+                counters.remove(key);
+            }
+            return null;
+        }));
+    }
+
+    // A bulk import wrote to Postgres directly; drop every counter so they are reloaded
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockImported(StockImportedEvent event) {
+        List<CompletableFuture<Object>> cleared = new ArrayList<>();
+        for (LedgerShard shard : shards) {
+            cleared.add(shard.submit(counters -> {
+                awaitApplied();
+                counters.clear();
+                return null;
+            }));
+        }
+        cleared.forEach(this::await);
+    }
+
+    @Override
+    public List<InventoryItemResponse> getInventoryByStore(String storeId) {
+        return delegate.getInventoryByStore(storeId);
+    }
+
+    @Override
+    public Page<LowStockProductResponse> listLowStockAlerts(String storeId, String category, Pageable pageable) {
+        return delegate.listLowStockAlerts(storeId, category, pageable);
+    }
+
+    @Override
+    public Page<TransactionResponse> listHistory(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to, Pageable pageable) {
+        return delegate.listHistory(productId, storeId, from, to, pageable);
+    }
+
+    @Override
+    public CursorPage<TransactionResponse> listHistoryByCursor(UUID productId, String storeId, OffsetDateTime from,
+            OffsetDateTime to, String cursor, int size) {
+        return delegate.listHistoryByCursor(productId, storeId, from, to, cursor, size);
+    }
+
+    private void applyLoop() {
+        List<LedgerRecord> batch = new ArrayList<>(applyBatchSize);
+        long backoffMs = 0;
+        while (applying || !durable.isEmpty() || !batch.isEmpty()) {
+            LedgerRecord next;
+            while (batch.size() < applyBatchSize && (next = durable.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                applyOrDeadLetter(batch);
+                for (LedgerRecord record : batch) {
+                    if (record.idempotency() != null) {
+                        unappliedKeys.remove(record.idempotency().key());
+                    }
+                }
+                applied.addAndGet(batch.size());
+                wal.release(batch.get(batch.size() - 1).sequence());
+                batch.clear();
+                backoffMs = 0;
+            } catch (RuntimeException e) {
+                if (!applying) {
+                    log.warn("Stopping with {} ledger records not yet in Postgres; they stay in the WAL", batch.size());
+                    return;
+                }
+                backoffMs = Math.min(Math.max(100, backoffMs * 2), MAX_APPLY_BACKOFF_MS);
+                log.warn("Applying {} ledger records failed, retrying in {} ms: {}", batch.size(), backoffMs, e.getMessage());
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoffMs));
+            }
+        }
+    }
+
+    // A rejected batch is retried record by record so only the records the database refuses on their own
+    // are set aside; any other failure propagates and the whole batch is retried (applying is idempotent)
+    private void applyOrDeadLetter(List<LedgerRecord> records) {
+        try {
+            applyToDatabase(records);
+        } catch (DataIntegrityViolationException e) {
+            if (records.size() == 1) {
+                deadLetter(records.get(0), e);
+                return;
+            }
+            log.warn("Postgres rejected a batch of {} ledger records, applying them one by one: {}", records.size(),
+                    e.getMostSpecificCause().getMessage());
+            for (LedgerRecord record : records) {
+                try {
+                    applyToDatabase(List.of(record));
+                } catch (DataIntegrityViolationException rejected) {
+                    deadLetter(record, rejected);
+                }
+            }
+        }
+    }
+
+    // The record's movement was acknowledged and counted in memory, so its counters are reloaded from
+    // Postgres once everything appended before them is applied
+    private void deadLetter(LedgerRecord record, DataIntegrityViolationException e) {
+        String error = e.getMostSpecificCause().getMessage();
+        ledgerRepository.deadLetter(record, error);
+        log.error("Ledger record {} ({} of {} units of product {}) was rejected by Postgres and moved to "
+                + "ledger_dead_letter: {}", record.id(), record.type(), record.quantity(), record.productId(), error);
+        shardFor(record.productId()).submit(counters -> {
+            awaitApplied();
+            counters.remove(new StockKey(record.sourceStoreId(), record.productId()));
+            counters.remove(new StockKey(record.targetStoreId(), record.productId()));
+            return null;
+        }).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                log.warn("Could not reload the counters of product {}: {}", record.productId(), failure.getMessage());
+            }
+        });
+    }
+
+    private void applyToDatabase(List<LedgerRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ledgerRepository.recordIdempotencyKeys(records);
+            for (StockLevel level : ledgerRepository.apply(records)) {
+                eventPublisher.publishEvent(new StockChangedEvent(level.getProductId(), level.getStoreId(),
+                        level.getQuantity(), level.getMinStock()));
+            }
+        });
+    }
+
+    // Runs on a shard thread, so no new record for that shard's products can appear while waiting
+    private void awaitApplied() {
+        long target = wal.appendedCount();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        while (applied.get() < target) {
+            if (wal.isFailed() || System.nanoTime() > deadline) {
+                throw new IllegalStateException("Ledger records are not reaching the database");
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private int current(Map<StockKey, Integer> counters, StockKey key) {
+        return counters.computeIfAbsent(key, k -> inventoryRepository.findByStoreIdAndProductId(k.storeId(), k.productId())
+                .map(Inventory::getQuantity)
+                .orElse(0));
+    }
+
+    private LedgerShard shardFor(UUID productId) {
+        return shards[Math.floorMod(productId.hashCode(), shards.length)];
+    }
+
+    // Refuses the record while max-unapplied records wait for Postgres, so a stalled applier cannot grow the
+    // backlog without bound. Tracks the key from the moment its record is handed to the WAL until it is in
+    // Postgres
+    private CompletableFuture<LedgerRecord> append(LedgerRecord record, IdempotencyClaim claim) {
+        if (wal.appendedCount() - applied.get() >= maxUnapplied) {
+            throw new ServiceUnavailableException("Too many movements waiting for the database, retry later");
+        }
+        if (claim == null) {
+            return wal.append(record);
+        }
+        unappliedKeys.put(claim.key(), claim);
+        try {
+            return wal.append(record).whenComplete((appended, failure) -> {
+                if (failure != null) {
+                    unappliedKeys.remove(claim.key(), claim);
+                }
+            });
+        } catch (RuntimeException e) {
+            unappliedKeys.remove(claim.key(), claim);
+            throw e;
+        }
+    }
+
+    // True for a retry whose key rolled back after an earlier attempt's record was accepted: that record
+    // writes the key when it is applied, so the movement must not be appended again
+    private boolean alreadyAccepted(IdempotencyClaim claim) {
+        if (claim == null) {
+            return false;
+        }
+        IdempotencyClaim accepted = unappliedKeys.get(claim.key());
+        if (accepted == null || accepted == claim) {
+            return false;
+        }
+        if (!accepted.operation().equals(claim.operation()) || !accepted.requestHash().equals(claim.requestHash())) {
+            throw new ConflictException("Idempotency-Key already used for a different request");
+        }
+        return true;
+    }
+
+    private static LedgerRecord.Idempotency idempotency(IdempotencyClaim claim, String response) {
+        return claim == null ? null
+                : new LedgerRecord.Idempotency(claim.key(), claim.operation(), claim.requestHash(), response);
+    }
+
+    private static LedgerRecord record(UUID id, Transaction.Type type, UUID productId, String sourceStoreId,
+            String targetStoreId, int quantity, LedgerRecord.Idempotency idempotency) {
+        return new LedgerRecord(0, id, type, productId, sourceStoreId, targetStoreId, quantity, Instant.now(),
+                idempotency);
+    }
+
+    private static BatchMovementResult result(int index, MovementRequest line, Integer resultingQuantity,
+            BatchMovementResult.Reason rejection) {
+        return BatchMovementResult.builder()
+                .line(index + 1)
+                .productId(line.getProductId())
+                .storeId(line.getStoreId())
+                .quantity(line.getQuantity())
+                .status(rejection == null ? BatchMovementResult.Status.APPLIED : BatchMovementResult.Status.REJECTED)
+                .resultingQuantity(resultingQuantity)
+                .reason(rejection)
+                .message(rejection == null ? null : rejection.message())
+                .build();
+    }
+
+    private void requireProduct(UUID productId) {
+        productService.getProduct(productId).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        return await(future, null);
+    }
+
+    // Movements that time out may still become durable and be applied, so their ids are returned to the
+    // caller as a pending outcome rather than an error
+    private <T> T await(CompletableFuture<T> future, List<UUID> movementIds) {
+        try {
+            return future.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            if (movementIds != null) {
+                throw new MovementPendingException("Movement not yet acknowledged; it may still be applied",
+                        movementIds);
+            }
+            throw new IllegalStateException("Ledger did not acknowledge the movement in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.deacero.inventario.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Single owner thread for the stock counters of a subset of products. Tasks arrive through a lock-free
+ * queue and run one at a time, so the counters are plain unsynchronized state.
+ */
+class LedgerShard {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final Map<StockKey, Integer> counters = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    LedgerShard(String name) {
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    <T> CompletableFuture<T> submit(Function<Map<StockKey, Integer>, T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mailbox.offer(() -> {
+            try {
+                result.complete(task.apply(counters));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        LockSupport.unpark(thread);
+        return result;
+    }
+
+    // Runs what is already queued, then exits
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    private void run() {
+        while (running || !mailbox.isEmpty()) {
+            Runnable task = mailbox.poll();
+            if (task == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.repository.LedgerRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only file log of accepted ledger records, one JSON line each. Appends from every shard are
+ * written by a single thread, with one write and one fsync per drained group (group commit). A record
+ * is acknowledged only once it is on disk. Segments are deleted once all their records are in
+ * Postgres. After a write error the log refuses further appends until restart, since the in-memory
+ * counters may then be ahead of what is durable.
+ */
+@Slf4j
+class LedgerWal {
+
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int MAX_GROUP = 4096;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+    private final Consumer<List<LedgerRecord>> onDurable;
+    private final ConcurrentLinkedQueue<Append> queue = new ConcurrentLinkedQueue<>();
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private final AtomicLong appended = new AtomicLong();
+
+    private FileChannel channel;
+    private Segment current;
+    private long nextSequence = 1;
+    private long nextSegment = 1;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile IOException failure;
+
+    LedgerWal(Path dir, long segmentBytes, boolean fsync, ObjectMapper objectMapper,
+            Consumer<List<LedgerRecord>> onDurable) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        this.onDurable = onDurable;
+    }
+
+    /**
+     * Reads the records left by a previous run, oldest first. Their segments are kept until
+     * {@link #release(long)} confirms they reached Postgres.
+     */
+    List<LedgerRecord> recover() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .toList();
+        }
+        List<LedgerRecord> records = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            Segment segment = new Segment(path);
+            try (BufferedReader reader = Files.newBufferedReader(path)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LedgerRecord record;
+                    try {
+                        record = objectMapper.readValue(line, LedgerRecord.class);
+                    } catch (IOException e) {
+                        // Only the tail of the newest segment can be torn by a crash mid-write
+                        if (i == segments.size() - 1 && reader.readLine() == null) {
+                            log.warn("Ignoring torn last record of {}", path);
+                            break;
+                        }
+                        throw new IllegalStateException("Corrupt ledger WAL segment " + path, e);
+                    }
+                    records.add(record);
+                    segment.lastSequence = record.sequence();
+                    nextSequence = Math.max(nextSequence, record.sequence() + 1);
+                }
+            }
+            closedSegments.add(segment);
+            nextSegment = Math.max(nextSegment, segmentNumber(path) + 1);
+        }
+        return records;
+    }
+
+    void start() throws IOException {
+        openSegment();
+        running = true;
+        writer = new Thread(this::writeLoop, "ledger-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    CompletableFuture<LedgerRecord> append(LedgerRecord record) {
+        if (failure != null || !running) {
+            throw new IllegalStateException("Ledger WAL is not accepting records", failure);
+        }
+        Append append = new Append(record, new CompletableFuture<>());
+        queue.offer(append);
+        appended.incrementAndGet();
+        LockSupport.unpark(writer);
+        return append.future();
+    }
+
+    long appendedCount() {
+        return appended.get();
+    }
+
+    boolean isFailed() {
+        return failure != null;
+    }
+
+    synchronized void release(long appliedSequence) {
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence <= appliedSequence) {
+            Path path = closedSegments.pollFirst().path;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete applied ledger WAL segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    // Writes what is already queued, then closes the current segment so release() can drop it too
+    void stop() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join();
+        }
+        if (channel != null) {
+            channel.close();
+            synchronized (this) {
+                closedSegments.add(current);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            Append next;
+            while (group.size() < MAX_GROUP && (next = queue.poll()) != null) {
+                group.add(next);
+            }
+            if (group.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            writeGroup(group);
+            group.clear();
+        }
+    }
+
+    private void writeGroup(List<Append> group) {
+        if (failure != null) {
+            group.forEach(a -> a.future().completeExceptionally(
+                    new IllegalStateException("Ledger WAL is not accepting records", failure)));
+            return;
+        }
+        List<LedgerRecord> written = new ArrayList<>(group.size());
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(group.size() * 256);
+            for (Append append : group) {
+                LedgerRecord record = append.record().withSequence(nextSequence++);
+                written.add(record);
+                out.write(objectMapper.writeValueAsBytes(record));
+                out.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            current.lastSequence = nextSequence - 1;
+            current.bytes += out.size();
+            if (current.bytes >= segmentBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            log.error("Ledger WAL write failed, refusing further movements until restart", e);
+            failure = e;
+            group.forEach(a -> a.future().completeExceptionally(
+                    new IllegalStateException("Ledger WAL write failed", e)));
+            return;
+        }
+        onDurable.accept(written);
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).future().complete(written.get(i));
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        synchronized (this) {
+            closedSegments.add(current);
+        }
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        current = new Segment(dir.resolve(SEGMENT_PREFIX + String.format("%012d", nextSegment++) + SEGMENT_SUFFIX));
+        channel = FileChannel.open(current.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private record Append(LedgerRecord record, CompletableFuture<LedgerRecord> future) {
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private long lastSequence;
+        private long bytes;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.LowStockAlertEvent;
+import com.deacero.inventario.models.LowStockProductResponse;
+import com.deacero.inventario.models.ProductResponse;
+import com.deacero.inventario.repository.InventoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the current set of low-stock alerts in memory and pushes threshold crossings to SSE
+ * subscribers. Each committed stock change costs one map lookup; only crossings into or out of
+ * {@code quantity <= minStock} change the set or notify anyone.
+ */
+@Slf4j
+@Component
+public class LowStockAlertTracker {
+
+    private final InventoryRepository inventoryRepository;
+    private final ProductService productService;
+    private final long emitterTimeoutMs;
+
+    private final Map<String, LowStockProductResponse> alerts = new ConcurrentHashMap<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService broadcaster = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "low-stock-alerts");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LowStockAlertTracker(InventoryRepository inventoryRepository,
+            ProductService productService,
+            @Value("${inventory.alerts.sse-timeout-ms:1800000}") long emitterTimeoutMs) {
+        this.inventoryRepository = inventoryRepository;
+        this.productService = productService;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    // Full reload from the partial index; also corrects drift from out-of-order commit callbacks, and
+    // subscribers get the corrections as RAISED/CLEARED events like any other crossing
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${inventory.alerts.resync-interval-ms:300000}",
+            initialDelayString = "${inventory.alerts.resync-interval-ms:300000}")
+    public void reload() {
+        List<LowStockProductResponse> current = inventoryRepository.findAllLowStockAlerts();
+        Map<String, LowStockProductResponse> fresh = new HashMap<>();
+        for (LowStockProductResponse alert : current) {
+            fresh.put(key(alert.getStoreId(), alert.getProductId()), alert);
+        }
+        for (String key : alerts.keySet()) {
+            if (!fresh.containsKey(key)) {
+                LowStockProductResponse cleared = alerts.remove(key);
+                if (cleared != null) {
+                    broadcast(LowStockAlertEvent.Type.CLEARED, cleared);
+                }
+            }
+        }
+        fresh.forEach((key, alert) -> {
+            if (alerts.put(key, alert) == null) {
+                broadcast(LowStockAlertEvent.Type.RAISED, alert);
+            }
+        });
+        log.info("Low stock alerts loaded: {}", alerts.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        String key = key(event.getStoreId(), event.getProductId());
+        if (event.getQuantity() > event.getMinStock()) {
+            // The removed object may still be in a snapshot handed out earlier, so it is never mutated
+            LowStockProductResponse cleared = alerts.remove(key);
+            if (cleared != null) {
+                broadcast(LowStockAlertEvent.Type.CLEARED, withLevel(cleared, event));
+            }
+            return;
+        }
+
+        LowStockProductResponse existing = alerts.get(key);
+        if (existing != null) {
+            alerts.put(key, withLevel(existing, event));
+            return;
+        }
+        Optional<ProductResponse> product = productService.getProduct(event.getProductId());
+        if (product.isEmpty()) {
+            return;
+        }
+        ProductResponse p = product.get();
+        LowStockProductResponse raised = LowStockProductResponse.builder()
+                .productId(p.getId())
+                .productName(p.getName())
+                .sku(p.getSku())
+                .price(p.getPrice())
+                .storeId(event.getStoreId())
+                .quantity(event.getQuantity())
+                .minStock(event.getMinStock())
+                .build();
+        if (alerts.putIfAbsent(key, raised) == null) {
+            broadcast(LowStockAlertEvent.Type.RAISED, raised);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockImported(StockImportedEvent event) {
+        if (event.getLoaded() > 0) {
+            reload();
+        }
+    }
+
+    boolean hasAlert(String storeId, java.util.UUID productId) {
+        return alerts.containsKey(key(storeId, productId));
+    }
+
+    public Collection<LowStockProductResponse> getActiveAlerts() {
+        return List.copyOf(alerts.values());
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(new ArrayList<>(alerts.values())));
+        } catch (IOException e) {
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broadcaster.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
+
+    void broadcast(LowStockAlertEvent.Type type, LowStockProductResponse alert) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        LowStockAlertEvent payload = LowStockAlertEvent.builder()
+                .type(type)
+                .alert(alert)
+                .timestamp(Instant.now())
+                .build();
+        // Sending happens off the committing thread so a slow client never delays a movement
+        broadcaster.execute(() -> {
+            for (SseEmitter emitter : subscribers) {
+                try {
+                    emitter.send(SseEmitter.event().name("alert").data(payload));
+                } catch (IOException | IllegalStateException e) {
+                    subscribers.remove(emitter);
+                }
+            }
+        });
+    }
+
+    private static LowStockProductResponse withLevel(LowStockProductResponse alert, StockChangedEvent event) {
+        return LowStockProductResponse.builder()
+                .productId(alert.getProductId())
+                .productName(alert.getProductName())
+                .sku(alert.getSku())
+                .price(alert.getPrice())
+                .storeId(alert.getStoreId())
+                .quantity(event.getQuantity())
+                .minStock(event.getMinStock())
+                .build();
+    }
+
+    private static String key(String storeId, java.util.UUID productId) {
+        return storeId + '|' + productId;
+    }
+}
@@ -0,0 +1,14 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.MovementStatsResponse;
+import com.deacero.inventario.models.StatsGranularity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface MovementStatsService {
+	Page<MovementStatsResponse> getStats(UUID productId, String storeId, LocalDate from, LocalDate to,
+			StatsGranularity granularity, Pageable pageable);
+}
@@ -0,0 +1,125 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.models.MovementStatsResponse;
+import com.deacero.inventario.models.StatsGranularity;
+import com.deacero.inventario.repository.MovementRollupRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Movement statistics served from movement_daily_rollup instead of aggregating {@code transaction}.
+ *
+ * <p>The rollup is kept up to date by adding the movements between the stored high-water mark and
+ * {@code settle} ago, at most {@code max-window} per database transaction so a first run over a long
+ * history backfills in steps. The state row stays locked while a window is added, so replicas never
+ * count the same movements twice. Movements are stamped when they are written, so {@code settle} must
+ * exceed the longest write transaction; anything committed later with an older stamp is not counted.
+ */
+@Slf4j
+@Service
+@Timed(value = "inventory.service", histogram = true)
+public class MovementStatsServiceImpl implements MovementStatsService {
+
+    private final MovementRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration settle;
+    private final Duration maxWindow;
+    private volatile OffsetDateTime highWaterMark;
+
+    public MovementStatsServiceImpl(MovementRollupRepository rollupRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${inventory.rollups.enabled:true}") boolean enabled,
+            @Value("${inventory.rollups.settle:PT5M}") Duration settle,
+            @Value("${inventory.rollups.max-window:P1D}") Duration maxWindow) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.settle = settle;
+        this.maxWindow = maxWindow;
+        Gauge.builder("inventory.rollup.lag", this, MovementStatsServiceImpl::lagSeconds)
+                .description("Age of the newest movement included in the daily rollups")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MovementStatsResponse> getStats(UUID productId, String storeId, LocalDate from, LocalDate to,
+            StatsGranularity granularity, Pageable pageable) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+        List<MovementStatsResponse> rows = rollupRepository.findStats(productId, storeId, from, to, granularity,
+                pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(rows, pageable,
+                () -> rollupRepository.countStats(productId, storeId, from, to, granularity));
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.rollups.interval-ms:60000}",
+            initialDelayString = "${inventory.rollups.interval-ms:60000}")
+    public void rollUp() {
+        if (enabled) {
+            rollUp(OffsetDateTime.now());
+        }
+    }
+
+    void rollUp(OffsetDateTime now) {
+        OffsetDateTime cutoff = now.minus(settle);
+        try {
+            boolean more = true;
+            while (more) {
+                more = Boolean.TRUE.equals(transactionTemplate.execute(status -> addWindow(cutoff)));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Movement rollup stopped at {}: {}", highWaterMark, e.getMessage());
+        }
+    }
+
+    // Returns whether there is more to add before the cutoff
+    private boolean addWindow(OffsetDateTime cutoff) {
+        OffsetDateTime from = rollupRepository.lockHighWaterMark();
+        if (from == null) {
+            from = rollupRepository.findEarliestMovement();
+            if (from == null) {
+                return false;
+            }
+        }
+        if (!from.isBefore(cutoff)) {
+            highWaterMark = from;
+            return false;
+        }
+        OffsetDateTime to = from.plus(maxWindow).isBefore(cutoff) ? from.plus(maxWindow) : cutoff;
+        long started = System.currentTimeMillis();
+        int rows = rollupRepository.rollUp(from, to);
+        rollupRepository.setHighWaterMark(to);
+        highWaterMark = to;
+        log.debug("Rolled up movements in [{}, {}): {} rows in {} ms", from, to, rows,
+                System.currentTimeMillis() - started);
+        return to.isBefore(cutoff);
+    }
+
+    private double lagSeconds() {
+        OffsetDateTime mark = highWaterMark;
+        return mark == null ? Double.NaN : Duration.between(mark, OffsetDateTime.now()).toMillis() / 1000.0;
+    }
+}
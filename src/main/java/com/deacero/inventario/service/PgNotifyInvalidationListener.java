@@ -0,0 +1,141 @@
+package com.deacero.inventario.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Listens on the invalidation channel over its own connection, outside the pool, and applies what other
+ * replicas changed: product cache evictions and low-stock alert updates. After a lost connection it
+ * cannot know what it missed, so it drops the product cache and reloads the alerts.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.invalidation.enabled", havingValue = "true")
+public class PgNotifyInvalidationListener {
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final CacheManager cacheManager;
+    private final LowStockAlertTracker lowStockAlertTracker;
+    private final String channel;
+    private final int pollTimeoutMs;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public PgNotifyInvalidationListener(DataSourceProperties dataSourceProperties,
+            CacheManager cacheManager,
+            LowStockAlertTracker lowStockAlertTracker,
+            @Value("${inventory.invalidation.channel:inventory_invalidation}") String channel,
+            @Value("${inventory.invalidation.poll-timeout-ms:1000}") int pollTimeoutMs) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.cacheManager = cacheManager;
+        this.lowStockAlertTracker = lowStockAlertTracker;
+        this.channel = channel;
+        this.pollTimeoutMs = pollTimeoutMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listen() {
+        long delay = 500;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("listen " + channel);
+                }
+                log.info("Listening for cache invalidations on channel {}", channel);
+                if (reconnecting) {
+                    invalidateAll();
+                }
+                delay = 500;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            // One bad message must not end listening and leave this replica serving stale data
+                            try {
+                                handle(notification.getParameter());
+                            } catch (RuntimeException e) {
+                                log.warn("Failed to apply invalidation {}", notification.getParameter(), e);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                reconnecting = true;
+                log.warn("Cache invalidation listener disconnected, retrying in {} ms: {}", delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    void handle(String payload) {
+        CacheInvalidation invalidation;
+        try {
+            invalidation = CacheInvalidation.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalidation message: {}", e.getMessage());
+            return;
+        }
+        if (PgNotifyInvalidationPublisher.NODE_ID.equals(invalidation.origin())) {
+            return;
+        }
+        switch (invalidation.type()) {
+            case PRODUCT -> productCache().evict(invalidation.productId());
+            case STOCK -> lowStockAlertTracker.onStockChanged(invalidation.toStockChangedEvent());
+            case RELOAD -> lowStockAlertTracker.reload();
+        }
+    }
+
+    private void invalidateAll() {
+        productCache().clear();
+        lowStockAlertTracker.reload();
+    }
+
+    private Cache productCache() {
+        return cacheManager.getCache(ProductServiceImpl.PRODUCTS_CACHE);
+    }
+}
@@ -0,0 +1,113 @@
+package com.deacero.inventario.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sends product and stock changes to the other replicas through {@code pg_notify}. Messages raised inside
+ * a transaction are sent by one statement just before it commits; Postgres only delivers notifications
+ * once the transaction commits, and drops them if it rolls back.
+ *
+ * <p>A transaction that notified takes Postgres's global notify-queue lock at commit and holds it until
+ * the commit ends, so notifying commits run one at a time. Other replicas only keep low-stock alerts from stock
+ * levels, so a stock change is sent only when its level is low, or when it may clear an alert this node
+ * holds; {@code inventory.invalidation.notify-stock-changes=false} stops stock messages altogether and
+ * leaves the replicas to their periodic alert resync.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.invalidation.enabled", havingValue = "true")
+public class PgNotifyInvalidationPublisher {
+
+    // Lets the listener skip what this node already applied locally
+    static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LowStockAlertTracker lowStockAlertTracker;
+    private final String channel;
+    private final boolean notifyStockChanges;
+
+    public PgNotifyInvalidationPublisher(JdbcTemplate jdbcTemplate,
+            LowStockAlertTracker lowStockAlertTracker,
+            @Value("${inventory.invalidation.channel:inventory_invalidation}") String channel,
+            @Value("${inventory.invalidation.notify-stock-changes:true}") boolean notifyStockChanges) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lowStockAlertTracker = lowStockAlertTracker;
+        this.channel = channel;
+        this.notifyStockChanges = notifyStockChanges;
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        publish(CacheInvalidation.product(NODE_ID, event.getProductId()));
+    }
+
+    // Runs before the local tracker sees this commit, so an alert it holds is one the change may clear
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        if (!notifyStockChanges) {
+            return;
+        }
+        if (event.getQuantity() <= event.getMinStock()
+                || lowStockAlertTracker.hasAlert(event.getStoreId(), event.getProductId())) {
+            publish(CacheInvalidation.stock(NODE_ID, event));
+        }
+    }
+
+    @EventListener
+    public void onStockImported(StockImportedEvent event) {
+        if (event.getLoaded() > 0) {
+            publish(CacheInvalidation.reload(NODE_ID));
+        }
+    }
+
+    void publish(CacheInvalidation invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(invalidation.encode()));
+            return;
+        }
+        PendingNotifications pending = (PendingNotifications) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingNotifications();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.payloads.add(invalidation.encode());
+    }
+
+    private void send(List<String> payloads) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "select pg_notify(?, payload) from unnest(?) as payload");
+            ps.setString(1, channel);
+            ps.setArray(2, connection.createArrayOf("text", payloads.toArray()));
+            return ps;
+        }, rs -> {
+        });
+    }
+
+    private class PendingNotifications implements TransactionSynchronization {
+        private final List<String> payloads = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!payloads.isEmpty()) {
+                send(payloads);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PgNotifyInvalidationPublisher.this);
+        }
+    }
+}
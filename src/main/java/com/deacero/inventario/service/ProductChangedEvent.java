@@ -0,0 +1,15 @@
+package com.deacero.inventario.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published when a product is updated or deleted, so copies cached outside this node can be dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final UUID productId;
+}
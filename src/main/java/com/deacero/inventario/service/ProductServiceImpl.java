@@ -1,19 +1,25 @@
 package com.deacero.inventario.service;
 
 import com.deacero.inventario.entities.Product;
+import com.deacero.inventario.entities.ProductStock;
 import com.deacero.inventario.mapper.ProductMapper;
 import com.deacero.inventario.models.ProductRequest;
 import com.deacero.inventario.models.ProductResponse;
-import com.deacero.inventario.repository.InventoryRepository;
 import com.deacero.inventario.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import com.deacero.inventario.exception.BadRequestException;
 import com.deacero.inventario.exception.ConflictException;
 import java.math.BigDecimal;
@@ -25,40 +31,31 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
+@Timed(value = "inventory.service", histogram = true)
 public class ProductServiceImpl implements ProductService {
 
+	static final String PRODUCTS_CACHE = "products";
+
 	private final ProductRepository productRepository;
-	private final InventoryRepository inventoryRepository;
 	private final ProductMapper productMapper;
+	private final ApplicationEventPublisher eventPublisher;
 
-	public ProductServiceImpl(ProductRepository productRepository, InventoryRepository inventoryRepository, ProductMapper productMapper) {
+	public ProductServiceImpl(ProductRepository productRepository, ProductMapper productMapper,
+			ApplicationEventPublisher eventPublisher) {
 		this.productRepository = productRepository;
-		this.inventoryRepository = inventoryRepository;
 		this.productMapper = productMapper;
+		this.eventPublisher = eventPublisher;
 	}
 
 	@Override
 	public Page<ProductResponse> listProducts(String category, BigDecimal minPrice, BigDecimal maxPrice, Integer minStock, Pageable pageable) {
 		log.info("Listing products with category: {}, minPrice: {}, maxPrice: {}, minStock: {}", category, minPrice, maxPrice, minStock);
 		Specification<Product> spec = buildSpecification(category, minPrice, maxPrice);
-		Page<Product> basePage = productRepository.findAll(spec, pageable);
-
-		if (minStock == null) {
-			return productMapper.toResponsePage(basePage, pageable);
+		if (minStock != null) {
+			spec = spec.and(stockSpecification(minStock));
 		}
-
-		
-		List<UUID> productIdsWithStock = inventoryRepository.findProductIdsWithTotalQuantityAtLeast(minStock);
-		if (productIdsWithStock.isEmpty()) {
-			return Page.empty(pageable);
-		}
-
-		List<Product> filtered = basePage.getContent().stream()
-				.filter(p -> productIdsWithStock.contains(p.getId()))
-				.toList();
-
-		Page<Product> filteredPage = new PageImpl<>(filtered, pageable, basePage.getTotalElements());
-		return productMapper.toResponsePage(filteredPage, pageable);
+		Page<Product> page = productRepository.findAll(spec, pageable);
+		return productMapper.toResponsePage(page, pageable);
 	}
 
 	private Specification<Product> buildSpecification(String category, BigDecimal minPrice, BigDecimal maxPrice) {
@@ -77,13 +74,28 @@ public class ProductServiceImpl implements ProductService {
 		};
 	}
 
+	// product_stock is kept up to date by every stock movement, so the filter stays inside the
+	// paged query and totalElements matches the filtered result
+	private Specification<Product> stockSpecification(int minStock) {
+		return (root, query, cb) -> {
+			Subquery<UUID> stocked = query.subquery(UUID.class);
+			Root<ProductStock> stock = stocked.from(ProductStock.class);
+			stocked.select(stock.get("productId"))
+					.where(cb.greaterThanOrEqualTo(stock.get("totalQuantity"), minStock));
+			return root.get("id").in(stocked);
+		};
+	}
+
+	// Misses are not cached, so a product is visible as soon as it is created
 	@Override
+	@Cacheable(cacheNames = PRODUCTS_CACHE, key = "#id", unless = "#result == null")
 	public Optional<ProductResponse> getProduct(UUID id) {
 		return productRepository.findById(id).map(productMapper::toResponse);
 	}
 
 	@Override
 	@Transactional
+	@CachePut(cacheNames = PRODUCTS_CACHE, key = "#result.id")
 	public ProductResponse createProduct(ProductRequest product) {
 		validateCreateRequest(product);
 		productRepository.findBySku(product.getSku()).ifPresent(p -> {
@@ -109,6 +121,7 @@ public class ProductServiceImpl implements ProductService {
 
 	@Override
 	@Transactional
+	@CachePut(cacheNames = PRODUCTS_CACHE, key = "#id", unless = "#result == null")
 	public Optional<ProductResponse> updateProduct(UUID id, ProductRequest product) {
 		return productRepository.findById(id).map(existing -> {
 			if (product.getSku() != null) {
@@ -120,14 +133,17 @@ public class ProductServiceImpl implements ProductService {
 			}
 			productMapper.updateEntityFromRequest(product, existing);
 			Product saved = productRepository.save(existing);
+			eventPublisher.publishEvent(new ProductChangedEvent(id));
 			return productMapper.toResponse(saved);
 		});
 	}
 
 	@Override
 	@Transactional
+	@CacheEvict(cacheNames = PRODUCTS_CACHE, key = "#id")
 	public void deleteProduct(UUID id) {
 		productRepository.deleteById(id);
+		eventPublisher.publishEvent(new ProductChangedEvent(id));
 	}
 }
 
@@ -0,0 +1,133 @@
+package com.deacero.inventario.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and re-runs it when the database aborts it with a
+ * deadlock (40P01), serialization (40001) or lock-acquisition failure, with bounded, jittered
+ * exponential backoff.
+ */
+@Slf4j
+@Component
+public class RetryingTransactionExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Map<String, RetryStats> stats = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RetryingTransactionExecutor(PlatformTransactionManager transactionManager,
+            @Value("${inventory.retry.max-attempts:5}") int maxAttempts,
+            @Value("${inventory.retry.initial-backoff-ms:5}") long initialBackoffMs,
+            @Value("${inventory.retry.max-backoff-ms:200}") long maxBackoffMs,
+            MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // The caller owns the transaction and a failed statement aborts all of it, so only the
+            // outermost boundary can retry
+            return action.get();
+        }
+        RetryStats operationStats = stats.computeIfAbsent(operation, this::register);
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            operationStats.attempts.increment();
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    operationStats.exhausted.increment();
+                    log.warn("{} failed after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                operationStats.retries.increment();
+                log.debug("{} attempt {} aborted by the database, retrying: {}", operation, attempt, e.getMessage());
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    public void execute(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public Map<String, RetryStats> getStats() {
+        return Map.copyOf(stats);
+    }
+
+    // inventory.retry.attempts / retries / exhausted, tagged by operation
+    private RetryStats register(String operation) {
+        RetryStats operationStats = new RetryStats();
+        FunctionCounter.builder("inventory.retry.attempts", operationStats, RetryStats::getAttempts)
+                .description("Transaction attempts, including the first")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.retry.retries", operationStats, RetryStats::getRetries)
+                .description("Attempts aborted by the database and retried")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.retry.exhausted", operationStats, RetryStats::getExhausted)
+                .description("Operations that failed after the last attempt")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return operationStats;
+    }
+
+    private static void sleep(long backoffMs) {
+        if (backoffMs <= 0) {
+            return;
+        }
+        // Jitter keeps the two sides of a deadlock from retrying in lockstep
+        long delay = ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    public static class RetryStats {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+
+        public long getAttempts() {
+            return attempts.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getExhausted() {
+            return exhausted.sum();
+        }
+    }
+}
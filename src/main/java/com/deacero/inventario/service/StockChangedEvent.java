@@ -0,0 +1,18 @@
+package com.deacero.inventario.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published by every stock mutation with the resulting quantity of one store/product row.
+ */
+@Getter
+@AllArgsConstructor
+public class StockChangedEvent {
+    private final UUID productId;
+    private final String storeId;
+    private final int quantity;
+    private final int minStock;
+}
@@ -0,0 +1,209 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.models.StockImportRejection;
+import com.deacero.inventario.models.StockLoadRequest;
+import com.deacero.inventario.repository.StagedStockRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Reads CSV ({@code productId,storeId,quantity[,minStock]}, optional header) or NDJSON
+ * ({@link StockLoadRequest} per line) one line at a time. Invalid lines are counted and reported,
+ * never buffered, so memory stays flat regardless of the file size.
+ */
+@Slf4j
+public class StockImportParser implements Iterator<StagedStockRow> {
+
+    private static final int STORE_ID_MAX_LENGTH = 50;
+
+    private final BufferedReader reader;
+    private final StockImportFormat format;
+    private final ObjectMapper objectMapper;
+    private final int maxReportedRejections;
+    private final long progressInterval;
+
+    private final List<StockImportRejection> rejections = new ArrayList<>();
+    private long lineNo;
+    private long received;
+    private long rejected;
+    private StagedStockRow next;
+    private boolean finished;
+
+    public StockImportParser(BufferedReader reader, StockImportFormat format, ObjectMapper objectMapper,
+            int maxReportedRejections, long progressInterval) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.maxReportedRejections = maxReportedRejections;
+        this.progressInterval = progressInterval;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            String line = readLine();
+            if (line == null) {
+                finished = true;
+                break;
+            }
+            lineNo++;
+            if (line.isBlank() || (lineNo == 1 && isCsvHeader(line))) {
+                continue;
+            }
+            received++;
+            if (progressInterval > 0 && received % progressInterval == 0) {
+                log.info("Stock import: {} rows read, {} rejected", received, rejected);
+            }
+            try {
+                next = format == StockImportFormat.NDJSON ? parseJson(line) : parseCsv(line);
+            } catch (IllegalArgumentException e) {
+                reject(lineNo, e.getMessage());
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public StagedStockRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        StagedStockRow row = next;
+        next = null;
+        return row;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<StockImportRejection> getRejections() {
+        return rejections;
+    }
+
+    private StagedStockRow parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 3 || fields.size() > 4) {
+            throw new IllegalArgumentException("Expected productId,storeId,quantity[,minStock]");
+        }
+        String minStock = fields.size() == 4 ? fields.get(3) : "";
+        return validated(parseUuid(fields.get(0)), fields.get(1),
+                parseInt(fields.get(2), "quantity"),
+                minStock.isEmpty() ? null : parseInt(minStock, "minStock"));
+    }
+
+    private StagedStockRow parseJson(String line) {
+        StockLoadRequest request;
+        try {
+            request = objectMapper.readValue(line, StockLoadRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        return validated(request.getProductId(), request.getStoreId(), request.getQuantity(), request.getMinStock());
+    }
+
+    // Same rules as the @Valid constraints on StockLoadRequest
+    private StagedStockRow validated(UUID productId, String storeId, Integer quantity, Integer minStock) {
+        if (productId == null) {
+            throw new IllegalArgumentException("productId is required");
+        }
+        if (storeId == null || storeId.isBlank()) {
+            throw new IllegalArgumentException("storeId is required");
+        }
+        if (storeId.length() > STORE_ID_MAX_LENGTH) {
+            throw new IllegalArgumentException("storeId is longer than " + STORE_ID_MAX_LENGTH + " characters");
+        }
+        if (quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("quantity must be zero or greater");
+        }
+        if (minStock != null && minStock < 0) {
+            throw new IllegalArgumentException("minStock must be zero or greater");
+        }
+        return new StagedStockRow(lineNo, productId, storeId, quantity, minStock);
+    }
+
+    private void reject(long line, String reason) {
+        rejected++;
+        if (rejections.size() < maxReportedRejections) {
+            rejections.add(StockImportRejection.builder().line(line).reason(reason).build());
+        }
+    }
+
+    private boolean isCsvHeader(String line) {
+        return format == StockImportFormat.CSV && splitCsv(line).get(0).equalsIgnoreCase("productId");
+    }
+
+    private String readLine() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // RFC 4180 fields on a single line: commas inside double quotes, "" for a literal quote
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid productId: " + value);
+        }
+    }
+
+    private static Integer parseInt(String value, String field) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+}
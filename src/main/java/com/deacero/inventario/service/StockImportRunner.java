@@ -0,0 +1,53 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.models.StockImportResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports {@code inventory.import.file} at startup; combine with
+ * {@code --spring.main.web-application-type=none} to run it as a one-off command.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.import.file")
+public class StockImportRunner implements ApplicationRunner {
+
+    private final StockImportService stockImportService;
+    private final ApplicationContext applicationContext;
+    private final Path file;
+
+    public StockImportRunner(StockImportService stockImportService,
+            ApplicationContext applicationContext,
+            @Value("${inventory.import.file}") String file) {
+        this.stockImportService = stockImportService;
+        this.applicationContext = applicationContext;
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        log.info("Importing initial stock from {}", file);
+        try (InputStream input = Files.newInputStream(file)) {
+            StockImportResult result = stockImportService.importStock(input,
+                    StockImportFormat.fromFileName(file.getFileName().toString()));
+            result.getRejections().forEach(r -> log.warn("Line {} rejected: {}", r.getLine(), r.getReason()));
+        }
+        if (!(applicationContext instanceof WebServerApplicationContext)) {
+            // One-off command: the scheduler threads would otherwise keep the JVM alive
+            System.exit(SpringApplication.exit(applicationContext));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.models.StockImportResult;
+
+import java.io.InputStream;
+
+public interface StockImportService {
+	StockImportResult importStock(InputStream input, StockImportFormat format);
+}
@@ -0,0 +1,84 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.models.StockImportRejection;
+import com.deacero.inventario.models.StockImportResult;
+import com.deacero.inventario.repository.StockImportRepository;
+import com.deacero.inventario.repository.StockMergeResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Slf4j
+@Service
+public class StockImportServiceImpl implements StockImportService {
+
+    private final StockImportRepository stockImportRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryMetrics inventoryMetrics;
+    private final int maxReportedRejections;
+    private final long progressInterval;
+
+    public StockImportServiceImpl(StockImportRepository stockImportRepository,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            InventoryMetrics inventoryMetrics,
+            @Value("${inventory.import.max-reported-rejections:1000}") int maxReportedRejections,
+            @Value("${inventory.import.progress-interval:50000}") long progressInterval) {
+        this.stockImportRepository = stockImportRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.inventoryMetrics = inventoryMetrics;
+        this.maxReportedRejections = maxReportedRejections;
+        this.progressInterval = progressInterval;
+    }
+
+    @Override
+    @Transactional
+    public StockImportResult importStock(InputStream input, StockImportFormat format) {
+        long started = System.currentTimeMillis();
+        StockImportParser parser = new StockImportParser(
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)),
+                format, objectMapper, maxReportedRejections, progressInterval);
+
+        stockImportRepository.createStaging();
+        long staged = stockImportRepository.copyRows(parser);
+        log.info("Stock import: {} rows staged, {} rejected while parsing", staged, parser.getRejected());
+        StockMergeResult merged = stockImportRepository.mergeStaged();
+        long loaded = merged.loaded();
+        long mergeRejected = stockImportRepository.countRejections();
+
+        List<StockImportRejection> rejections = new ArrayList<>(parser.getRejections());
+        int remaining = maxReportedRejections - rejections.size();
+        if (remaining > 0 && mergeRejected > 0) {
+            rejections.addAll(stockImportRepository.findRejections(remaining));
+            rejections.sort(Comparator.comparingLong(StockImportRejection::getLine));
+        }
+        eventPublisher.publishEvent(new StockImportedEvent(loaded));
+        inventoryMetrics.recordMovements(Transaction.Type.IN, Math.toIntExact(merged.movements()), merged.units());
+
+        StockImportResult result = StockImportResult.builder()
+                .received(parser.getReceived())
+                .loaded(loaded)
+                .rejected(parser.getRejected() + mergeRejected)
+                .durationMs(System.currentTimeMillis() - started)
+                .rejections(rejections)
+                .build();
+        log.info("Stock import finished: {} received, {} loaded, {} rejected in {} ms",
+                result.getReceived(), result.getLoaded(), result.getRejected(), result.getDurationMs());
+        return result;
+    }
+}
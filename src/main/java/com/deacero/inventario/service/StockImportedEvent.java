@@ -0,0 +1,13 @@
+package com.deacero.inventario.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published once per bulk import instead of one {@link StockChangedEvent} per loaded row.
+ */
+@Getter
+@AllArgsConstructor
+public class StockImportedEvent {
+    private final long loaded;
+}
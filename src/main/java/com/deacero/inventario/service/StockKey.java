@@ -0,0 +1,6 @@
+package com.deacero.inventario.service;
+
+import java.util.UUID;
+
+record StockKey(String storeId, UUID productId) {
+}
@@ -0,0 +1,69 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of {@code transaction} ahead of the clock: at startup and once a day it
+ * creates the partitions up to {@code months-ahead} months from now and, when {@code retention-months}
+ * is set, detaches the ones that ended before that many months ago. Both steps are idempotent and
+ * serialized in the database, so every replica can run them.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionPartitionManager {
+
+    private final TransactionRepository transactionRepository;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public TransactionPartitionManager(TransactionRepository transactionRepository,
+            @Value("${inventory.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${inventory.partitions.retention-months:0}") int retentionMonths) {
+        this.transactionRepository = transactionRepository;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = retentionMonths;
+    }
+
+    // Before the other startup listeners, so HistoryArchiver sees the partitions detached here
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Scheduled(cron = "${inventory.partitions.cron:0 15 3 * * *}", zone = "UTC")
+    public void maintain() {
+        maintain(LocalDate.now(ZoneOffset.UTC));
+    }
+
+    void maintain(LocalDate today) {
+        LocalDate month = today.withDayOfMonth(1);
+        try {
+            int created = transactionRepository.createPartitions(month, month.plusMonths(monthsAhead));
+            if (created > 0) {
+                log.info("Created {} transaction partitions up to {}", created, month.plusMonths(monthsAhead));
+            }
+            if (retentionMonths > 0) {
+                LocalDate cutoff = month.minusMonths(retentionMonths);
+                List<String> detached = transactionRepository.detachPartitionsBefore(cutoff);
+                if (!detached.isEmpty()) {
+                    log.info("Detached transaction partitions older than {}: {}", cutoff, detached);
+                }
+            }
+        } catch (DataAccessException e) {
+            // Movements still land in the partitions created earlier; the next run tries again
+            log.warn("Transaction partition maintenance failed", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.deacero.inventario;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded Postgres with the schema of init.sql, for tests that need the real database. Each call starts
+ * its own server; it is stopped with the JVM.
+ */
+public final class EmbeddedInventoryDatabase {
+
+	private EmbeddedInventoryDatabase() {
+	}
+
+	public static void register(DynamicPropertyRegistry registry) throws IOException, SQLException {
+		EmbeddedPostgres postgres = EmbeddedPostgres.start();
+		try (Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute("create database deacero_inventory_db");
+		}
+		try (Connection connection = postgres.getDatabase("postgres", "deacero_inventory_db").getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(Files.readString(Path.of("init.sql")));
+		}
+		registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "deacero_inventory_db"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "postgres");
+	}
+}
@@ -0,0 +1,64 @@
+package com.deacero.inventario;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InitSqlUpgradeTest {
+
+	@Test
+	void initSql_mergesDuplicateInventoryRowsOfAnOlderDatabase() throws Exception {
+		try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+				Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute("create database deacero_inventory_db");
+			try (Connection db = postgres.getDatabase("postgres", "deacero_inventory_db").getConnection();
+					Statement sql = db.createStatement()) {
+				// Schema of a version without the unique index, with two rows for S1
+				sql.execute("""
+					create table product (
+					    id uuid primary key, name varchar(255) not null, description text, category varchar(100),
+					    price numeric(12,2) not null, sku varchar(100) not null unique);
+					create table inventory (
+					    id uuid primary key, product_id uuid not null references product(id),
+					    store_id varchar(50) not null, quantity integer not null default 0,
+					    min_stock integer not null default 0);
+					insert into product values ('00000000-0000-0000-0000-000000000001', 'Bolt', null, null, 1, 'B-1');
+					insert into inventory values
+					    ('00000000-0000-0000-0000-0000000000a1', '00000000-0000-0000-0000-000000000001', 'S1', 5, 2),
+					    ('00000000-0000-0000-0000-0000000000a2', '00000000-0000-0000-0000-000000000001', 'S1', 7, 4),
+					    ('00000000-0000-0000-0000-0000000000a3', '00000000-0000-0000-0000-000000000001', 'S2', 1, 0);
+				""");
+
+				sql.execute(Files.readString(Path.of("init.sql")));
+
+				List<String> rows = new ArrayList<>();
+				try (ResultSet rs = sql.executeQuery(
+						"select id, store_id, quantity, min_stock from inventory order by store_id")) {
+					while (rs.next()) {
+						rows.add(rs.getString(1).substring(34) + " " + rs.getString(2) + " " + rs.getInt(3) + " " + rs.getInt(4));
+					}
+				}
+				assertEquals(List.of("a1 S1 12 4", "a3 S2 1 0"), rows);
+				try (ResultSet rs = sql.executeQuery(
+						"select total_quantity from product_stock where product_id = '00000000-0000-0000-0000-000000000001'")) {
+					assertTrue(rs.next());
+					assertEquals(13, rs.getInt(1));
+				}
+				try (ResultSet rs = sql.executeQuery(
+						"select 1 from pg_indexes where indexname = 'uq_inventory_store_product'")) {
+					assertTrue(rs.next());
+				}
+			}
+		}
+	}
+}
@@ -3,9 +3,15 @@ package com.deacero.inventario;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.deacero.inventario.repository.IdempotencyKeyRepository;
 import com.deacero.inventario.repository.ProductRepository;
 import com.deacero.inventario.repository.InventoryRepository;
+import com.deacero.inventario.repository.InventorySnapshotRepository;
+import com.deacero.inventario.repository.MovementRollupRepository;
+import com.deacero.inventario.repository.StockImportRepository;
+import com.deacero.inventario.repository.TransactionArchiveRepository;
 import com.deacero.inventario.repository.TransactionRepository;
 
 @SpringBootTest(properties = {
@@ -20,6 +26,18 @@ class InventarioApplicationTests {
 	private InventoryRepository inventoryRepository;
 	@MockBean
 	private TransactionRepository transactionRepository;
+	@MockBean
+	private StockImportRepository stockImportRepository;
+	@MockBean
+	private TransactionArchiveRepository transactionArchiveRepository;
+	@MockBean
+	private InventorySnapshotRepository inventorySnapshotRepository;
+	@MockBean
+	private MovementRollupRepository movementRollupRepository;
+	@MockBean
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+	@MockBean
+	private PlatformTransactionManager transactionManager;
 
 	@Test
 	void contextLoads() {
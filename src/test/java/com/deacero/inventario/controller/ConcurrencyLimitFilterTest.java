@@ -0,0 +1,100 @@
+package com.deacero.inventario.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+	private static MockHttpServletRequest request(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+		request.setRequestURI(path);
+		return request;
+	}
+
+	@Test
+	void rejectsWith503WhenNoPermitFreesUpInTime() throws Exception {
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 10, 2, 50, new ObjectMapper().findAndRegisterModules());
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		FilterChain blocking = (req, res) -> {
+			inside.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Thread holder = new Thread(() -> {
+			try {
+				filter.doFilter(request("/deacero/api/v1/inventory/in"), new MockHttpServletResponse(), blocking);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		holder.start();
+		assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		filter.doFilter(request("/deacero/api/v1/inventory/out"), rejected, (req, res) -> fail("should not run"));
+		assertEquals(503, rejected.getStatus());
+		assertTrue(rejected.getContentAsString().contains("\"code\":\"BUSY\""));
+
+		release.countDown();
+		holder.join();
+		assertEquals(1, filter.availablePermits());
+	}
+
+	@Test
+	void asyncRequest_keepsItsPermitUntilTheAsyncWorkCompletes() throws Exception {
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 10, 2, 50, new ObjectMapper().findAndRegisterModules());
+		MockHttpServletRequest export = request("/deacero/api/v1/inventory/history/export");
+		export.setAsyncSupported(true);
+		AsyncContext[] async = new AsyncContext[1];
+
+		filter.doFilter(export, new MockHttpServletResponse(), (req, res) -> async[0] = req.startAsync());
+
+		assertEquals(0, filter.availablePermits());
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		filter.doFilter(request("/deacero/api/v1/inventory/in"), rejected, (req, res) -> fail("should not run"));
+		assertEquals(503, rejected.getStatus());
+
+		async[0].complete();
+		assertEquals(1, filter.availablePermits());
+	}
+
+	@Test
+	void defaultPermits_leaveTheReservedConnectionsToBackgroundJobs() {
+		ObjectMapper objectMapper = new ObjectMapper();
+
+		assertEquals(8, new ConcurrencyLimitFilter(0, 10, 2, 50, objectMapper).availablePermits());
+		assertEquals(1, new ConcurrencyLimitFilter(0, 2, 2, 50, objectMapper).availablePermits());
+		assertEquals(12, new ConcurrencyLimitFilter(12, 10, 2, 50, objectMapper).availablePermits());
+	}
+
+	@Test
+	void doesNotLimitTheAlertStreamOrNonApiPaths() throws Exception {
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 10, 2, 50, new ObjectMapper().findAndRegisterModules());
+		int[] calls = {0};
+		FilterChain nested = (req, res) -> {
+			calls[0]++;
+			if (calls[0] == 1) {
+				filter.doFilter(request("/deacero/api/v1/inventory/alerts/stream"), new MockHttpServletResponse(), (r, s) -> calls[0]++);
+				filter.doFilter(request("/actuator/health"), new MockHttpServletResponse(), (r, s) -> calls[0]++);
+			}
+		};
+
+		filter.doFilter(request("/deacero/api/v1/products"), new MockHttpServletResponse(), nested);
+
+		assertEquals(3, calls[0]);
+		assertEquals(1, filter.availablePermits());
+	}
+}
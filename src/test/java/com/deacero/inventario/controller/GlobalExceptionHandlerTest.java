@@ -1,9 +1,12 @@
 package com.deacero.inventario.controller;
 
 import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.exception.ConflictException;
 import com.deacero.inventario.exception.InsufficientStockException;
 import com.deacero.inventario.exception.ResourceNotFoundException;
 import com.deacero.inventario.models.GenericResponse;
+import com.deacero.inventario.service.InventoryMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.validation.BindingResult;
@@ -15,9 +18,11 @@ import static org.mockito.Mockito.*;
 
 class GlobalExceptionHandlerTest {
 
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
 	@Test
 	void mapsNotFound() {
-		GlobalExceptionHandler h = new GlobalExceptionHandler();
+		GlobalExceptionHandler h = new GlobalExceptionHandler(new InventoryMetrics(registry));
 		ServletWebRequest req = mock(ServletWebRequest.class, RETURNS_DEEP_STUBS);
 		when(req.getRequest().getRequestURI()).thenReturn("/x");
 		GenericResponse<Void> r = h.handleNotFound(new ResourceNotFoundException("nf"), req);
@@ -27,7 +32,7 @@ class GlobalExceptionHandlerTest {
 
 	@Test
 	void mapsBadRequest() {
-		GlobalExceptionHandler h = new GlobalExceptionHandler();
+		GlobalExceptionHandler h = new GlobalExceptionHandler(new InventoryMetrics(registry));
 		ServletWebRequest req = mock(ServletWebRequest.class, RETURNS_DEEP_STUBS);
 		when(req.getRequest().getRequestURI()).thenReturn("/x");
 		GenericResponse<Void> r = h.handleBadRequest(new BadRequestException("b"), req);
@@ -35,19 +40,31 @@ class GlobalExceptionHandlerTest {
 		assertEquals(400, r.getStatus());
 	}
 
+	@Test
+	void mapsConflict() {
+		GlobalExceptionHandler h = new GlobalExceptionHandler(new InventoryMetrics(registry));
+		ServletWebRequest req = mock(ServletWebRequest.class, RETURNS_DEEP_STUBS);
+		when(req.getRequest().getRequestURI()).thenReturn("/x");
+		GenericResponse<Void> r = h.handleConflict(new ConflictException("c"), req);
+		assertEquals("CONFLICT", r.getCode());
+		assertEquals(409, r.getStatus());
+		assertEquals(1.0, registry.get("inventory.errors").tag("code", "CONFLICT").counter().count());
+	}
+
 	@Test
 	void mapsInsufficient() {
-		GlobalExceptionHandler h = new GlobalExceptionHandler();
+		GlobalExceptionHandler h = new GlobalExceptionHandler(new InventoryMetrics(registry));
 		ServletWebRequest req = mock(ServletWebRequest.class, RETURNS_DEEP_STUBS);
 		when(req.getRequest().getRequestURI()).thenReturn("/x");
 		GenericResponse<Void> r = h.handleInsufficientStock(new InsufficientStockException("i"), req);
 		assertEquals("INSUFFICIENT_STOCK", r.getCode());
 		assertEquals(400, r.getStatus());
+		assertEquals(1.0, registry.get("inventory.errors").tag("code", "INSUFFICIENT_STOCK").counter().count());
 	}
 
 	@Test
 	void mapsGeneric() {
-		GlobalExceptionHandler h = new GlobalExceptionHandler();
+		GlobalExceptionHandler h = new GlobalExceptionHandler(new InventoryMetrics(registry));
 		ServletWebRequest req = mock(ServletWebRequest.class, RETURNS_DEEP_STUBS);
 		when(req.getRequest().getRequestURI()).thenReturn("/x");
 		GenericResponse<Void> r = h.handleGeneric(new RuntimeException("e"), req);
@@ -57,7 +74,7 @@ class GlobalExceptionHandlerTest {
 
 	@Test
 	void mapsValidation() {
-		GlobalExceptionHandler h = new GlobalExceptionHandler();
+		GlobalExceptionHandler h = new GlobalExceptionHandler(new InventoryMetrics(registry));
 		ServletWebRequest req = mock(ServletWebRequest.class, RETURNS_DEEP_STUBS);
 		when(req.getRequest().getRequestURI()).thenReturn("/x");
 		BindingResult bindingResult = mock(BindingResult.class);
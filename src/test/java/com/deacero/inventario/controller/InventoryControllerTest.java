@@ -1,9 +1,20 @@
 package com.deacero.inventario.controller;
 
+import com.deacero.inventario.entities.Transaction;
 import com.deacero.inventario.models.*;
+import com.deacero.inventario.service.HistoryExportService;
+import com.deacero.inventario.service.IdempotencyService;
+import com.deacero.inventario.service.InventoryMetrics;
+import com.deacero.inventario.service.InventorySnapshotService;
 import com.deacero.inventario.service.InventoryService;
+import com.deacero.inventario.service.LowStockAlertTracker;
+import com.deacero.inventario.service.MovementStatsService;
 import com.deacero.inventario.service.ProductService;
+import com.deacero.inventario.service.StockImportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -16,13 +27,19 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -51,6 +68,27 @@ class InventoryControllerTest {
 	@Autowired
 	private InventoryService inventoryService;
 
+	@Autowired
+	private LowStockAlertTracker lowStockAlertTracker;
+
+	@Autowired
+	private StockImportService stockImportService;
+
+	@Autowired
+	private HistoryExportService historyExportService;
+
+	@Autowired
+	private InventorySnapshotService inventorySnapshotService;
+
+	@Autowired
+	private MovementStatsService movementStatsService;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@TestConfiguration
 	static class TestConfig {
 		@Bean
@@ -63,6 +101,48 @@ class InventoryControllerTest {
 		InventoryService inventoryService() {
 			return Mockito.mock(InventoryService.class);
 		}
+		@Bean
+		@Primary
+		LowStockAlertTracker lowStockAlertTracker() {
+			return Mockito.mock(LowStockAlertTracker.class);
+		}
+		@Bean
+		@Primary
+		StockImportService stockImportService() {
+			return Mockito.mock(StockImportService.class);
+		}
+		@Bean
+		@Primary
+		HistoryExportService historyExportService() {
+			return Mockito.mock(HistoryExportService.class);
+		}
+		@Bean
+		@Primary
+		InventorySnapshotService inventorySnapshotService() {
+			return Mockito.mock(InventorySnapshotService.class);
+		}
+		@Bean
+		@Primary
+		MovementStatsService movementStatsService() {
+			return Mockito.mock(MovementStatsService.class);
+		}
+		@Bean
+		@Primary
+		IdempotencyService idempotencyService() {
+			IdempotencyService mock = Mockito.mock(IdempotencyService.class);
+			Mockito.when(mock.execute(any(), any(), any(), any(), any()))
+					.thenAnswer(inv -> inv.<Supplier<?>>getArgument(4).get());
+			return mock;
+		}
+		@Bean
+		@Primary
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+		@Bean
+		InventoryMetrics inventoryMetrics(MeterRegistry meterRegistry) {
+			return new InventoryMetrics(meterRegistry);
+		}
 	}
 
 	@Test
@@ -154,6 +234,45 @@ class InventoryControllerTest {
 				.andExpect(jsonPath("$.data[0].storeId", is("S1")));
 	}
 
+	@Test
+	void inventoryByStore_asOf_usesSnapshots() throws Exception {
+		OffsetDateTime asOf = OffsetDateTime.parse("2025-03-01T12:00:00Z");
+		Mockito.when(inventorySnapshotService.getInventoryAsOf("S1", asOf))
+				.thenReturn(List.of(InventoryItemResponse.builder().storeId("S1").productId(UUID.randomUUID()).quantity(7).build()));
+
+		mvc.perform(get("/deacero/api/v1/stores/S1/inventory").param("asOf", "2025-03-01T12:00:00Z"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data[0].quantity", is(7)));
+	}
+
+	@Test
+	void stats_weekly_readsRollups() throws Exception {
+		UUID productId = UUID.randomUUID();
+		Mockito.when(movementStatsService.getStats(eq(productId), isNull(), eq(LocalDate.parse("2025-03-01")),
+						eq(LocalDate.parse("2025-04-01")), eq(StatsGranularity.WEEK), any()))
+				.thenReturn(new PageImpl<>(List.of(MovementStatsResponse.builder()
+						.period(LocalDate.parse("2025-03-03")).productId(productId).storeId("S1")
+						.type(Transaction.Type.OUT).movements(4).quantityOut(12).build())));
+
+		mvc.perform(get("/deacero/api/v1/inventory/stats")
+						.param("productId", productId.toString())
+						.param("from", "2025-03-01")
+						.param("to", "2025-04-01")
+						.param("granularity", "week"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.content[0].period", is("2025-03-03")))
+				.andExpect(jsonPath("$.data.content[0].quantityOut", is(12)));
+	}
+
+	@Test
+	void stats_unknownGranularity_badRequest() throws Exception {
+		mvc.perform(get("/deacero/api/v1/inventory/stats")
+						.param("from", "2025-03-01")
+						.param("to", "2025-04-01")
+						.param("granularity", "hour"))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void transfer_ok() throws Exception {
 		mvc.perform(post("/deacero/api/v1/inventory/transfer")
@@ -163,14 +282,162 @@ class InventoryControllerTest {
 				.andExpect(jsonPath("$.success", is(true)));
 	}
 
+	@Test
+	void out_withIdempotencyKey_passesKeyAndRequest() throws Exception {
+		mvc.perform(post("/deacero/api/v1/inventory/out")
+						.header("Idempotency-Key", "scan-42")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"productId\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\",\"storeId\":\"S1\",\"quantity\":2}"))
+				.andExpect(status().isCreated());
+
+		Mockito.verify(idempotencyService).execute(eq("scan-42"), eq("out"), ArgumentMatchers.any(MovementRequest.class), eq(Void.class), any());
+	}
+
+	@Test
+	void transfer_keyReusedForOtherRequest_conflict() throws Exception {
+		Mockito.doThrow(new com.deacero.inventario.exception.ConflictException("Idempotency-Key already used for a different request"))
+				.when(idempotencyService).execute(eq("reused"), any(), any(), any(), any());
+
+		mvc.perform(post("/deacero/api/v1/inventory/transfer")
+						.header("Idempotency-Key", "reused")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"productId\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\",\"sourceStoreId\":\"A\",\"targetStoreId\":\"B\",\"quantity\":1}"))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.code", is("CONFLICT")));
+	}
+
 	@Test
 	void alerts_ok() throws Exception {
-		Mockito.when(inventoryService.listLowStockAlerts())
-				.thenReturn(List.of(LowStockProductResponse.builder().productName("X").build()));
+		Mockito.when(inventoryService.listLowStockAlerts(eq("S1"), any(), any()))
+				.thenReturn(new PageImpl<>(List.of(LowStockProductResponse.builder().productName("X").build())));
+
+		mvc.perform(get("/deacero/api/v1/inventory/alerts").param("storeId", "S1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.content[0].productName", is("X")));
+	}
+
+	@Test
+	void alertsStream_startsAsyncSse() throws Exception {
+		Mockito.when(lowStockAlertTracker.subscribe()).thenReturn(new SseEmitter());
+
+		mvc.perform(get("/deacero/api/v1/inventory/alerts/stream").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted());
+	}
+
+	@Test
+	void movementsBatch_returnsPerLineResults() throws Exception {
+		Mockito.when(inventoryService.registerMovements(any())).thenReturn(BatchMovementResponse.builder()
+				.type(Transaction.Type.IN)
+				.applied(1)
+				.rejected(1)
+				.results(List.of(
+						BatchMovementResult.builder().line(1).quantity(5).status(BatchMovementResult.Status.APPLIED).build(),
+						BatchMovementResult.builder().line(2).quantity(7).status(BatchMovementResult.Status.REJECTED).build()))
+				.build());
+		double movementsBefore = meterRegistry.counter("inventory.movements", "type", "IN").count();
+		double unitsBefore = meterRegistry.counter("inventory.movement.units", "type", "IN").count();
+
+		mvc.perform(post("/deacero/api/v1/inventory/movements:batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"type\":\"IN\",\"movements\":[{\"productId\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\",\"storeId\":\"S1\",\"quantity\":5}]}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.results[0].status", is("APPLIED")));
+
+		assertEquals(1.0, meterRegistry.counter("inventory.movements", "type", "IN").count() - movementsBefore);
+		assertEquals(5.0, meterRegistry.counter("inventory.movement.units", "type", "IN").count() - unitsBefore);
+	}
+
+	@Test
+	void load_countsInMovementOnlyForPositiveQuantity() throws Exception {
+		double movementsBefore = meterRegistry.counter("inventory.movements", "type", "IN").count();
+		double unitsBefore = meterRegistry.counter("inventory.movement.units", "type", "IN").count();
+
+		mvc.perform(post("/deacero/api/v1/inventory/load")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"productId\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\",\"storeId\":\"S1\",\"quantity\":8}"))
+				.andExpect(status().isCreated());
+		mvc.perform(post("/deacero/api/v1/inventory/load")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"productId\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\",\"storeId\":\"S2\",\"quantity\":0}"))
+				.andExpect(status().isCreated());
+
+		assertEquals(1.0, meterRegistry.counter("inventory.movements", "type", "IN").count() - movementsBefore);
+		assertEquals(8.0, meterRegistry.counter("inventory.movement.units", "type", "IN").count() - unitsBefore);
+	}
+
+	@Test
+	void movementsBatch_invalidLine_badRequest() throws Exception {
+		mvc.perform(post("/deacero/api/v1/inventory/movements:batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"type\":\"OUT\",\"movements\":[{\"storeId\":\"S1\",\"quantity\":0}]}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void importInitialStock_ndjson_usesNdjsonFormat() throws Exception {
+		Mockito.when(stockImportService.importStock(any(), eq(StockImportFormat.NDJSON)))
+				.thenReturn(StockImportResult.builder().received(1).loaded(1).rejections(List.of()).build());
+
+		mvc.perform(post("/deacero/api/v1/inventory/load:import")
+						.contentType("application/x-ndjson")
+						.content("{\"productId\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\",\"storeId\":\"S1\",\"quantity\":10}\n"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.loaded", is(1)));
+	}
+
+	@Test
+	void history_withCursorParam_usesKeysetPagination() throws Exception {
+		Mockito.when(inventoryService.listHistoryByCursor(any(), eq("S1"), eq(OffsetDateTime.parse("2025-01-01T00:00:00Z")),
+						eq(OffsetDateTime.parse("2025-01-02T00:00:00Z")), eq(""), eq(50)))
+				.thenReturn(CursorPage.<TransactionResponse>builder()
+						.content(List.of(TransactionResponse.builder().build()))
+						.size(1)
+						.nextCursor("abc")
+						.build());
+
+		mvc.perform(get("/deacero/api/v1/inventory/history").param("storeId", "S1").param("cursor", "").param("size", "50")
+						.param("from", "2025-01-01T00:00:00Z").param("to", "2025-01-02T00:00:00Z"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.nextCursor", is("abc")))
+				.andExpect(jsonPath("$.data.totalElements").doesNotExist());
+	}
+
+	@Test
+	void historyExport_streamsCsv() throws Exception {
+		Mockito.when(historyExportService.exportHistory(any(), eq("S1"), eq(OffsetDateTime.parse("2025-01-01T00:00:00Z")), ArgumentMatchers.isNull(),
+				eq(ExportFormat.CSV), any())).thenAnswer(inv -> {
+			java.io.OutputStream out = inv.getArgument(5);
+			out.write("id\n".getBytes());
+			return 0L;
+		});
 
-		mvc.perform(get("/deacero/api/v1/inventory/alerts"))
+		MvcResult result = mvc.perform(get("/deacero/api/v1/inventory/history/export").param("storeId", "S1").param("format", "csv")
+						.param("from", "2025-01-01T00:00:00Z"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(result))
 				.andExpect(status().isOk())
-				.andExpect(jsonPath("$.data[0].productName", is("X")));
+				.andExpect(header().string("Content-Disposition", containsString("history.csv")))
+				.andExpect(content().contentTypeCompatibleWith("text/csv"))
+				.andExpect(content().string("id\n"));
+	}
+
+	@Test
+	void history_fromNotBeforeTo_badRequest() throws Exception {
+		mvc.perform(get("/deacero/api/v1/inventory/history")
+						.param("from", "2025-01-02T00:00:00Z").param("to", "2025-01-01T00:00:00Z"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/deacero/api/v1/inventory/history/export")
+						.param("from", "2025-01-01T00:00:00Z").param("to", "2025-01-01T00:00:00Z"))
+				.andExpect(status().isBadRequest());
+		Mockito.verify(inventoryService, Mockito.never()).listHistory(any(), any(), eq(OffsetDateTime.parse("2025-01-02T00:00:00Z")),
+				any(), any());
+	}
+
+	@Test
+	void historyExport_unknownFormat_badRequest() throws Exception {
+		mvc.perform(get("/deacero/api/v1/inventory/history/export").param("format", "xml"))
+				.andExpect(status().isBadRequest());
 	}
 
 	@Test
@@ -192,7 +459,7 @@ class InventoryControllerTest {
 				.andExpect(status().isCreated());
 		// history
 		Page<TransactionResponse> page = new PageImpl<>(List.of(TransactionResponse.builder().build()));
-		Mockito.when(inventoryService.listHistory(any(), any(), any())).thenReturn(page);
+		Mockito.when(inventoryService.listHistory(any(), any(), any(), any(), any())).thenReturn(page);
 		mvc.perform(get("/deacero/api/v1/inventory/history"))
 				.andExpect(status().isOk())
 				.andExpect(jsonPath("$.success", is(true)));
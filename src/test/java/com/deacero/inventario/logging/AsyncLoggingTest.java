@@ -0,0 +1,109 @@
+package com.deacero.inventario.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLoggingTest {
+
+	private final LoggerContext context = new LoggerContext();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final CountDownLatch taken = new CountDownLatch(1);
+	private MeteredAsyncAppender appender;
+
+	@BeforeEach
+	void setUp() {
+		context.setMDCAdapter(new LogbackMDCAdapter());
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		if (appender != null) {
+			appender.stop();
+		}
+	}
+
+	@Test
+	void appender_countsDiscardedInfoAndDroppedEventsWithoutBlocking() throws InterruptedException {
+		appender = new MeteredAsyncAppender();
+		appender.setContext(context);
+		appender.setQueueSize(4);
+		appender.setDiscardingThreshold(2);
+		appender.setNeverBlock(true);
+		appender.addAppender(blockingAppender());
+		appender.start();
+
+		// The worker takes the first event and blocks on it; then the queue fills up
+		appender.doAppend(event(Level.WARN));
+		assertTrue(taken.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 9; i++) {
+			appender.doAppend(event(Level.WARN));
+		}
+		appender.doAppend(event(Level.INFO));
+
+		assertEquals(1, appender.getDiscarded());
+		assertTrue(appender.getDropped() >= 5, "dropped " + appender.getDropped());
+		assertEquals(0, appender.getRemainingCapacity());
+	}
+
+	@Test
+	void samplingFilter_keepsOneInRateForConfiguredLoggersOnly() {
+		SamplingFilter filter = new SamplingFilter();
+		filter.addLoggerName("com.example.Hot, com.example.pkg");
+		filter.setRate(3);
+
+		int kept = 0;
+		for (int i = 0; i < 9; i++) {
+			if (filter.decide(event("com.example.Hot", Level.INFO)) == FilterReply.NEUTRAL) {
+				kept++;
+			}
+		}
+
+		assertEquals(3, kept);
+		assertEquals(6, filter.getSampledOut());
+		for (int i = 0; i < 3; i++) {
+			filter.decide(event("com.example.pkg.Child", Level.INFO));
+		}
+		assertEquals(8, filter.getSampledOut());
+		assertEquals(FilterReply.NEUTRAL, filter.decide(event("com.example.Hot", Level.WARN)));
+		assertEquals(FilterReply.NEUTRAL, filter.decide(event("com.example.HotOther", Level.INFO)));
+	}
+
+	private AppenderBase<ILoggingEvent> blockingAppender() {
+		AppenderBase<ILoggingEvent> blocking = new AppenderBase<>() {
+			@Override
+			protected void append(ILoggingEvent event) {
+				taken.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		blocking.setContext(context);
+		blocking.start();
+		return blocking;
+	}
+
+	private LoggingEvent event(Level level) {
+		return event("com.example.Test", level);
+	}
+
+	private LoggingEvent event(String loggerName, Level level) {
+		return new LoggingEvent(AsyncLoggingTest.class.getName(), context.getLogger(loggerName), level, "message", null, null);
+	}
+}
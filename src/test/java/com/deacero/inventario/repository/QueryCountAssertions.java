@@ -0,0 +1,30 @@
+package com.deacero.inventario.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pins the number of SQL statements an operation runs, e.g.
+ * {@code QueryCountAssertions.assertStatements(2, () -> service.listLowStockAlerts(...))}.
+ * Only statements going through a DataSource proxied by {@link QueryCountingDataSourcePostProcessor}
+ * (or built the same way) are counted.
+ */
+public final class QueryCountAssertions {
+
+	private QueryCountAssertions() {
+	}
+
+	public static QueryCounter.QueryCount countStatements(Runnable action) {
+		QueryCounter.start();
+		try {
+			action.run();
+			return QueryCounter.current();
+		} finally {
+			QueryCounter.stop();
+		}
+	}
+
+	public static void assertStatements(int expected, Runnable action) {
+		QueryCounter.QueryCount count = countStatements(action);
+		assertEquals(expected, count.statements(), "SQL statements executed");
+	}
+}
@@ -0,0 +1,121 @@
+package com.deacero.inventario.repository;
+
+import com.deacero.inventario.EmbeddedInventoryDatabase;
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.MovementRequest;
+import com.deacero.inventario.models.TransferRequest;
+import com.deacero.inventario.service.InventoryService;
+import com.deacero.inventario.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.deacero.inventario.repository.QueryCountAssertions.assertStatements;
+
+/**
+ * Pins the SQL statements run by the hot service paths against a real Postgres built from init.sql, with
+ * the production settings (JDBC batching included), so an N+1 or an extra round trip fails the build.
+ * Product lookups are warmed first, as in steady state.
+ */
+@SpringBootTest(properties = {
+		"spring.autoconfigure.exclude=",
+		"springdoc.api-docs.enabled=false",
+		"springdoc.swagger-ui.enabled=false",
+		"inventory.snapshots.enabled=false",
+		"inventory.rollups.enabled=false",
+		// The JPA settings of the main application.properties, which the test one replaces
+		"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+		"spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+		"spring.jpa.properties.hibernate.type.preferred_enum_type=postgres_enum",
+		"spring.jpa.properties.hibernate.jdbc.batch_size=50",
+		"spring.jpa.properties.hibernate.order_inserts=true",
+		"spring.jpa.properties.hibernate.order_updates=true",
+		"spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=true"
+})
+@DirtiesContext
+class QueryCountIntegrationTest {
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private UUID productId;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) throws IOException, SQLException {
+		EmbeddedInventoryDatabase.register(registry);
+	}
+
+	@BeforeEach
+	void setUp() {
+		productId = UUID.randomUUID();
+		jdbcTemplate.update("insert into product (id, name, category, price, sku) values (?, 'Product', 'Tools', 1.00, ?)",
+				productId, productId.toString());
+		jdbcTemplate.update("insert into inventory (product_id, store_id, quantity, min_stock) values (?, 'A', 100, 0), (?, 'B', 100, 0)",
+				productId, productId);
+		jdbcTemplate.update("insert into product_stock (product_id, total_quantity) values (?, 200)", productId);
+		productService.getProduct(productId);
+	}
+
+	@Test
+	void registerEntry() {
+		assertStatements(1, () -> inventoryService.registerEntry(movement("A", 5)));
+	}
+
+	@Test
+	void registerOut() {
+		assertStatements(1, () -> inventoryService.registerOut(movement("A", 5)));
+	}
+
+	// One update per store, in store order, and the ledger insert
+	@Test
+	void transfer() {
+		assertStatements(3, () -> inventoryService.transfer(TransferRequest.builder()
+				.productId(productId).sourceStoreId("A").targetStoreId("B").quantity(5).build()));
+	}
+
+	// Product check, row locks (OUT only), one aggregated update and one JDBC batch of ledger inserts
+	@Test
+	void batch_sameStatementsForOneOrManyLines() {
+		assertStatements(4, () -> inventoryService.registerMovements(batch(Transaction.Type.OUT, 1)));
+		assertStatements(4, () -> inventoryService.registerMovements(batch(Transaction.Type.OUT, 50)));
+		assertStatements(3, () -> inventoryService.registerMovements(batch(Transaction.Type.IN, 1)));
+		assertStatements(3, () -> inventoryService.registerMovements(batch(Transaction.Type.IN, 50)));
+	}
+
+	@Test
+	void lowStockAlerts() {
+		assertStatements(1, () -> inventoryService.listLowStockAlerts(null, null, PageRequest.of(0, 20)));
+		assertStatements(1, () -> inventoryService.listLowStockAlerts("A", "Tools", PageRequest.of(0, 20)));
+	}
+
+	private MovementRequest movement(String storeId, int quantity) {
+		return MovementRequest.builder().productId(productId).storeId(storeId).quantity(quantity).build();
+	}
+
+	// Spread over both stores, so the batch touches more than one row
+	private BatchMovementRequest batch(Transaction.Type type, int lines) {
+		List<MovementRequest> movements = IntStream.range(0, lines)
+				.mapToObj(i -> movement(i % 2 == 0 ? "A" : "B", 1))
+				.toList();
+		return BatchMovementRequest.builder().type(type).movements(movements).build();
+	}
+}
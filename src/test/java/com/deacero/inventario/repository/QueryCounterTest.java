@@ -0,0 +1,78 @@
+package com.deacero.inventario.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static com.deacero.inventario.repository.QueryCountAssertions.assertStatements;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class QueryCounterTest {
+
+	private DataSource dataSource;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		DataSource target = Mockito.mock(DataSource.class);
+		Connection connection = Mockito.mock(Connection.class);
+		PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+		when(target.getConnection()).thenReturn(connection);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		dataSource = (DataSource) new QueryCountingDataSourcePostProcessor()
+				.postProcessAfterInitialization(target, "dataSource");
+	}
+
+	@Test
+	void countsEveryStatementInsideTheScope() {
+		assertStatements(3, () -> {
+			run("select 1");
+			run("select 2");
+			runBatch("insert into t values (?)", 5);
+		});
+	}
+
+	@Test
+	void ignoresStatementsOutsideAScope() {
+		run("select 1");
+
+		assertSame(QueryCounter.QueryCount.NONE, QueryCounter.current());
+		assertStatements(0, () -> {
+		});
+	}
+
+	@Test
+	void postProcessor_leavesOtherBeansAlone() {
+		Object bean = new Object();
+
+		assertSame(bean, new QueryCountingDataSourcePostProcessor().postProcessAfterInitialization(bean, "other"));
+	}
+
+	private void run(String sql) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.execute();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void runBatch(String sql, int rows) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(sql)) {
+			for (int i = 0; i < rows; i++) {
+				statement.setInt(1, i);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
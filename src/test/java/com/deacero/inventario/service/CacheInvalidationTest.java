@@ -0,0 +1,44 @@
+package com.deacero.inventario.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheInvalidationTest {
+
+	@Test
+	void stock_roundTrips_storeIdWithSeparator() {
+		UUID productId = UUID.randomUUID();
+		CacheInvalidation sent = CacheInvalidation.stock("node-1", new StockChangedEvent(productId, "S|1", 3, 5));
+
+		CacheInvalidation received = CacheInvalidation.decode(sent.encode());
+
+		assertEquals(sent, received);
+		assertEquals("S|1", received.toStockChangedEvent().getStoreId());
+	}
+
+	@Test
+	void product_and_reload_roundTrip() {
+		CacheInvalidation product = CacheInvalidation.product("node-1", UUID.randomUUID());
+		CacheInvalidation reload = CacheInvalidation.reload("node-1");
+
+		assertEquals(product, CacheInvalidation.decode(product.encode()));
+		assertEquals(reload, CacheInvalidation.decode(reload.encode()));
+	}
+
+	@Test
+	void decode_rejectsUnknownType() {
+		assertThrows(IllegalArgumentException.class, () -> CacheInvalidation.decode("node-1|X"));
+	}
+
+	@Test
+	void decode_rejectsTruncatedOrPaddedMessages() {
+		UUID productId = UUID.randomUUID();
+		for (String payload : new String[] {"node-1|P", "node-1|S|" + productId + "|3", "node-1|S|" + productId + "|3|5",
+				"node-1|P|" + productId + "|extra", "node-1|R|extra", "node-1|S|" + productId + "|x|5|S1"}) {
+			assertThrows(IllegalArgumentException.class, () -> CacheInvalidation.decode(payload), payload);
+		}
+	}
+}
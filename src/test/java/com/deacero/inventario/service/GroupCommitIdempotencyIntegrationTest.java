@@ -0,0 +1,104 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.EmbeddedInventoryDatabase;
+import com.deacero.inventario.models.MovementRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The group-commit engine against a real Postgres: a movement made under an Idempotency-Key must commit
+ * with the key, so a retry after a failed commit applies it once.
+ */
+@SpringBootTest(properties = {
+		"spring.autoconfigure.exclude=",
+		"springdoc.api-docs.enabled=false",
+		"springdoc.swagger-ui.enabled=false",
+		"inventory.snapshots.enabled=false",
+		"inventory.rollups.enabled=false",
+		"inventory.engine=group-commit",
+		"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+		"spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+		"spring.jpa.properties.hibernate.type.preferred_enum_type=postgres_enum"
+})
+@DirtiesContext
+class GroupCommitIdempotencyIntegrationTest {
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private UUID productId;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) throws IOException, SQLException {
+		EmbeddedInventoryDatabase.register(registry);
+	}
+
+	@BeforeEach
+	void setUp() {
+		productId = UUID.randomUUID();
+		jdbcTemplate.update("insert into product (id, name, category, price, sku) values (?, 'Product', 'Tools', 1.00, ?)",
+				productId, productId.toString());
+		jdbcTemplate.update("insert into inventory (product_id, store_id, quantity, min_stock) values (?, 'A', 100, 0)",
+				productId);
+		jdbcTemplate.update("insert into product_stock (product_id, total_quantity) values (?, 100)", productId);
+	}
+
+	@Test
+	void entryUnderIdempotencyKey_failedCommitThenRetry_appliesOnce() {
+		assertInstanceOf(GroupCommitInventoryService.class, inventoryService);
+		MovementRequest request = MovementRequest.builder().productId(productId).storeId("A").quantity(5).build();
+		String key = "entry-" + productId;
+
+		IllegalStateException failure = assertThrows(IllegalStateException.class,
+				() -> idempotencyService.execute(key, "in", request, Void.class, () -> {
+					inventoryService.registerEntry(request);
+					TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+						@Override
+						public void beforeCommit(boolean readOnly) {
+							throw new IllegalStateException("commit failed");
+						}
+					});
+					return null;
+				}));
+		assertEquals("commit failed", failure.getMessage());
+		assertEquals(100, quantity());
+
+		idempotencyService.execute(key, "in", request, Void.class, () -> {
+			inventoryService.registerEntry(request);
+			return null;
+		});
+		idempotencyService.execute(key, "in", request, Void.class, () -> {
+			inventoryService.registerEntry(request);
+			return null;
+		});
+
+		assertEquals(105, quantity());
+		assertEquals(1, jdbcTemplate.queryForObject(
+				"select count(*) from \"transaction\" where product_id = ?", Integer.class, productId));
+	}
+
+	private int quantity() {
+		return jdbcTemplate.queryForObject("select quantity from inventory where product_id = ? and store_id = 'A'",
+				Integer.class, productId);
+	}
+}
@@ -0,0 +1,153 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.InsufficientStockException;
+import com.deacero.inventario.exception.ResourceNotFoundException;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.MovementRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GroupCommitInventoryServiceTest {
+
+	private InventoryServiceImpl delegate;
+	private GroupCommitInventoryService engine;
+	private final ExecutorService callers = Executors.newFixedThreadPool(4);
+	private final UUID productId = UUID.randomUUID();
+	private final UUID missingProductId = UUID.randomUUID();
+
+	@BeforeEach
+	void setUp() {
+		delegate = Mockito.mock(InventoryServiceImpl.class);
+		// Lines over 5 units are rejected for stock, lines for the missing product as not found
+		when(delegate.registerMovements(any())).thenAnswer(inv -> {
+			BatchMovementRequest request = inv.getArgument(0);
+			List<BatchMovementResult> results = new ArrayList<>();
+			for (MovementRequest line : request.getMovements()) {
+				BatchMovementResult.Reason rejection = missingProductId.equals(line.getProductId())
+						? BatchMovementResult.Reason.PRODUCT_NOT_FOUND
+						: line.getQuantity() > 5 ? BatchMovementResult.Reason.INSUFFICIENT_STOCK : null;
+				results.add(BatchMovementResult.builder()
+						.line(results.size() + 1)
+						.productId(line.getProductId())
+						.storeId(line.getStoreId())
+						.quantity(line.getQuantity())
+						.status(rejection == null ? BatchMovementResult.Status.APPLIED : BatchMovementResult.Status.REJECTED)
+						.reason(rejection)
+						.message(rejection == null ? null : rejection.message())
+						.build());
+			}
+			return BatchMovementResponse.builder().type(request.getType()).results(results).build();
+		});
+		engine = new GroupCommitInventoryService(delegate, 4, 5_000);
+		engine.start();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		engine.stop();
+		callers.shutdownNow();
+	}
+
+	private CompletableFuture<Void> out(UUID product, int quantity) {
+		return CompletableFuture.runAsync(() -> engine.registerOut(MovementRequest.builder()
+				.productId(product).storeId("S1").quantity(quantity).build()), callers);
+	}
+
+	@Test
+	void registerOut_coalescesConcurrentRequests_andIsolatesRejectedLines() {
+		CompletableFuture<Void> ok1 = out(productId, 1);
+		CompletableFuture<Void> tooMany = out(productId, 9);
+		CompletableFuture<Void> missing = out(missingProductId, 1);
+		CompletableFuture<Void> ok2 = out(productId, 2);
+
+		assertDoesNotThrow(ok1::join);
+		assertDoesNotThrow(ok2::join);
+		CompletionException stock = assertThrows(CompletionException.class, tooMany::join);
+		assertInstanceOf(InsufficientStockException.class, stock.getCause());
+		CompletionException notFound = assertThrows(CompletionException.class, missing::join);
+		assertInstanceOf(ResourceNotFoundException.class, notFound.getCause());
+
+		ArgumentCaptor<BatchMovementRequest> captor = ArgumentCaptor.forClass(BatchMovementRequest.class);
+		verify(delegate, times(1)).registerMovements(captor.capture());
+		assertEquals(Transaction.Type.OUT, captor.getValue().getType());
+		assertEquals(4, captor.getValue().getMovements().size());
+	}
+
+	@Test
+	void registerEntry_retriesAFailedGroupOneByOne_soOnlyTheBadRequestFails() {
+		BatchMovementResponse applied = BatchMovementResponse.builder().type(Transaction.Type.IN)
+				.results(List.of(BatchMovementResult.builder().status(BatchMovementResult.Status.APPLIED).build()))
+				.build();
+		reset(delegate);
+		when(delegate.registerMovements(any())).thenAnswer(inv -> {
+			BatchMovementRequest request = inv.getArgument(0);
+			if (request.getMovements().stream().anyMatch(line -> line.getStoreId().length() > 50)) {
+				throw new DataIntegrityViolationException("value too long for type character varying(50)");
+			}
+			return applied;
+		});
+		List<CompletableFuture<Void>> calls = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			String storeId = i == 2 ? "S".repeat(51) : "S1";
+			calls.add(CompletableFuture.runAsync(() -> engine.registerEntry(MovementRequest.builder()
+					.productId(productId).storeId(storeId).quantity(1).build()), callers));
+		}
+
+		for (int i = 0; i < calls.size(); i++) {
+			if (i == 2) {
+				CompletionException e = assertThrows(CompletionException.class, calls.get(i)::join);
+				assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+			} else {
+				assertDoesNotThrow(calls.get(i)::join);
+			}
+		}
+		// The group of four, then each request on its own
+		verify(delegate, times(5)).registerMovements(any());
+	}
+
+	@Test
+	void registerEntry_rejectsMovementsAfterStop() throws Exception {
+		engine.stop();
+
+		assertThrows(IllegalStateException.class, () -> engine.registerEntry(MovementRequest.builder()
+				.productId(productId).storeId("S1").quantity(1).build()));
+		verify(delegate, never()).registerMovements(any());
+	}
+
+	@Test
+	void registerEntry_failsEveryCallerOfAFailedGroup() {
+		reset(delegate);
+		when(delegate.registerMovements(any())).thenThrow(new DataAccessResourceFailureException("down"));
+		List<CompletableFuture<Void>> calls = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			calls.add(CompletableFuture.runAsync(() -> engine.registerEntry(MovementRequest.builder()
+					.productId(productId).storeId("S1").quantity(1).build()), callers));
+		}
+
+		for (CompletableFuture<Void> call : calls) {
+			CompletionException e = assertThrows(CompletionException.class, call::join);
+			assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+		}
+		verify(delegate, times(5)).registerMovements(argThat(r -> r.getType() == Transaction.Type.IN));
+	}
+}
@@ -0,0 +1,148 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.TransactionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryArchiveStoreTest {
+
+	private static final OffsetDateTime JAN = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+	private static final OffsetDateTime FEB = OffsetDateTime.parse("2024-02-01T00:00:00Z");
+	private static final UUID PRODUCT_A = UUID.randomUUID();
+	private static final UUID PRODUCT_B = UUID.randomUUID();
+
+	@TempDir
+	Path dir;
+
+	private HistoryArchiveStore store;
+	private List<TransactionResponse> january;
+	private List<TransactionResponse> february;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		store = new HistoryArchiveStore(dir.toString(), 2);
+		january = month(JAN);
+		february = month(FEB);
+		store.add("transaction_y2024m01-0", january);
+		store.add("transaction_y2024m02-0", february);
+	}
+
+	@Test
+	void roundTripKeepsEveryColumn() {
+		List<TransactionResponse> all = store.find(null, null, null, null, null, null, 0, Integer.MAX_VALUE);
+
+		List<TransactionResponse> expected = new ArrayList<>(february);
+		expected.addAll(january);
+		assertEquals(fields(expected), fields(all));
+		assertEquals(expected.size(), store.count(null, null, null, null));
+	}
+
+	@Test
+	void filtersByProductStoreAndRange() {
+		List<TransactionResponse> rows = store.find(PRODUCT_B, "S2", FEB, null, null, null, 0, 100);
+
+		assertFalse(rows.isEmpty());
+		assertTrue(rows.stream().allMatch(r -> r.getProductId().equals(PRODUCT_B) && !r.getTimestamp().isBefore(FEB)
+				&& ("S2".equals(r.getSourceStoreId()) || "S2".equals(r.getTargetStoreId()))));
+		assertEquals(rows.size(), store.count(PRODUCT_B, "S2", FEB, null));
+		assertTrue(store.find(null, "S9", null, null, null, null, 0, 100).isEmpty());
+	}
+
+	@Test
+	void resumesAfterPositionAcrossFiles() {
+		TransactionResponse lastOfFebruary = february.get(february.size() - 1);
+
+		List<TransactionResponse> rows = store.find(null, null, null, null,
+				lastOfFebruary.getTimestamp(), lastOfFebruary.getId(), 0, 3);
+
+		assertEquals(fields(january.subList(0, 3)), fields(rows));
+		assertEquals(fields(january.subList(2, 5)), fields(store.find(null, null, null, null, null, null, february.size() + 2, 3)));
+	}
+
+	@Test
+	void productFilterSkipsFilesWithoutTheProduct() throws Exception {
+		UUID productC = UUID.randomUUID();
+		TransactionResponse march = TransactionResponse.builder()
+				.id(new UUID(0, 1))
+				.productId(productC)
+				.targetStoreId("S2")
+				.quantity(7)
+				.timestamp(OffsetDateTime.parse("2024-03-01T00:00:00Z"))
+				.type(Transaction.Type.IN)
+				.build();
+		store.add("transaction_y2024m03-0", List.of(march));
+		// Only the headers of the older files stay readable, so decoding either one would fail
+		truncateToHeader(dir.resolve("transaction_y2024m01-0" + HistoryArchiveFile.SUFFIX));
+		truncateToHeader(dir.resolve("transaction_y2024m02-0" + HistoryArchiveFile.SUFFIX));
+
+		assertEquals(fields(List.of(march)), fields(store.find(productC, null, null, null, null, null, 0, 100)));
+		assertEquals(1, store.count(productC, null, null, null));
+	}
+
+	@Test
+	void removeAllDeletesFilesOfPartition() throws Exception {
+		assertEquals(1, store.removeAll("transaction_y2024m02-"));
+
+		assertEquals(fields(january), fields(store.find(null, null, null, null, null, null, 0, Integer.MAX_VALUE)));
+		try (var files = Files.list(dir)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	void missingDirectoryIsEmpty() {
+		HistoryArchiveStore empty = new HistoryArchiveStore(dir.resolve("missing").toString(), 2);
+
+		assertTrue(empty.isEmpty());
+		assertEquals(0, empty.count(null, null, null, null));
+	}
+
+	// Newest first, mixing products, stores and transfers
+	private static List<TransactionResponse> month(OffsetDateTime start) {
+		List<TransactionResponse> rows = new ArrayList<>();
+		for (int i = 20; i > 0; i--) {
+			boolean transfer = i % 3 == 0;
+			rows.add(TransactionResponse.builder()
+					.id(new UUID(0, 100 - i))
+					.productId(i % 2 == 0 ? PRODUCT_A : PRODUCT_B)
+					.sourceStoreId(transfer ? "S1" : null)
+					.targetStoreId(i % 4 == 0 ? "S3" : "S2")
+					.quantity(i * 1000)
+					.timestamp(start.plusHours(i / 2).plusNanos(i % 2 * 1000))
+					.type(transfer ? Transaction.Type.TRANSFER : Transaction.Type.IN)
+					.build());
+		}
+		return rows;
+	}
+
+	// magic, rows, min and max timestamp, then both dictionaries
+	private static void truncateToHeader(Path file) throws Exception {
+		HistoryArchiveFile.Header header = HistoryArchiveFile.readHeader(file);
+		int length = 4 + 4 + 8 + 8 + 4 + 4 + 16 * header.products().size();
+		for (String storeId : header.stores()) {
+			length += 2 + storeId.length();
+		}
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, length));
+	}
+
+	static List<String> fields(List<TransactionResponse> rows) {
+		return rows.stream()
+				.map(r -> String.join("|", String.valueOf(r.getId()), String.valueOf(r.getProductId()),
+						String.valueOf(r.getSourceStoreId()), String.valueOf(r.getTargetStoreId()),
+						String.valueOf(r.getQuantity()), String.valueOf(r.getTimestamp().toInstant()), String.valueOf(r.getType())))
+				.toList();
+	}
+}
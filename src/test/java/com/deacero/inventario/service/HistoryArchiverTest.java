@@ -0,0 +1,85 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.repository.TransactionArchiveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HistoryArchiverTest {
+
+	@TempDir
+	Path dir;
+
+	private TransactionArchiveRepository archiveRepository;
+	private HistoryArchiveStore store;
+	private HistoryArchiver archiver;
+
+	@BeforeEach
+	void setUp() {
+		archiveRepository = Mockito.mock(TransactionArchiveRepository.class);
+		store = new HistoryArchiveStore(dir.toString(), 4);
+		archiver = new HistoryArchiver(archiveRepository, store, 2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void archive_writesChunksThenDropsPartition() {
+		List<TransactionResponse> rows = rows(5);
+		when(archiveRepository.findDetachedPartitions()).thenReturn(List.of("transaction_y2024m01"));
+		doAnswer(invocation -> {
+			rows.forEach(invocation.<Consumer<TransactionResponse>>getArgument(1));
+			return null;
+		}).when(archiveRepository).streamPartition(eq("transaction_y2024m01"), any(Consumer.class));
+
+		archiver.archive();
+
+		assertEquals(HistoryArchiveStoreTest.fields(rows), HistoryArchiveStoreTest.fields(store.find(null, null, null, null, null, null, 0, 100)));
+		verify(archiveRepository).dropPartition("transaction_y2024m01");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void archive_failedPartitionIsKeptAndItsFilesRemoved() {
+		List<TransactionResponse> rows = rows(3);
+		when(archiveRepository.findDetachedPartitions()).thenReturn(List.of("transaction_y2024m01"));
+		doAnswer(invocation -> {
+			rows.forEach(invocation.<Consumer<TransactionResponse>>getArgument(1));
+			throw new DataAccessResourceFailureException("connection lost");
+		}).when(archiveRepository).streamPartition(eq("transaction_y2024m01"), any(Consumer.class));
+
+		archiver.archive();
+
+		assertTrue(store.isEmpty());
+		verify(archiveRepository, never()).dropPartition(any());
+	}
+
+	private static List<TransactionResponse> rows(int count) {
+		OffsetDateTime start = OffsetDateTime.parse("2024-01-31T00:00:00Z");
+		return IntStream.range(0, count)
+				.mapToObj(i -> TransactionResponse.builder()
+						.id(UUID.randomUUID())
+						.productId(UUID.randomUUID())
+						.targetStoreId("S1")
+						.quantity(i + 1)
+						.timestamp(start.minusHours(i))
+						.type(Transaction.Type.IN)
+						.build())
+				.toList();
+	}
+}
@@ -0,0 +1,71 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.models.ExportFormat;
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HistoryExportServiceImplTest {
+
+	private static final UUID ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+	private static final UUID PRODUCT = UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6");
+
+	private TransactionRepository transactionRepository;
+	private HistoryExportServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		transactionRepository = Mockito.mock(TransactionRepository.class);
+		service = new HistoryExportServiceImpl(transactionRepository, new ObjectMapper().registerModule(new JavaTimeModule()));
+	}
+
+	@Test
+	void exportHistory_csv_writesHeaderAndQuotesFields() throws Exception {
+		AtomicBoolean closed = new AtomicBoolean();
+		when(transactionRepository.streamHistory(PRODUCT, null, null, null)).thenReturn(Stream.of(TransactionResponse.builder()
+				.id(ID).productId(PRODUCT).sourceStoreId("S,1").targetStoreId("S2").quantity(3)
+				.timestamp(OffsetDateTime.parse("2025-01-10T10:15:30Z")).type(Transaction.Type.TRANSFER)
+				.build()).onClose(() -> closed.set(true)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long count = service.exportHistory(PRODUCT, " ", null, null, ExportFormat.CSV, out);
+
+		assertEquals(1, count);
+		assertEquals("""
+				id,productId,sourceStoreId,targetStoreId,quantity,timestamp,type
+				11111111-1111-1111-1111-111111111111,3fa85f64-5717-4562-b3fc-2c963f66afa6,"S,1",S2,3,2025-01-10T10:15:30Z,TRANSFER
+				""", out.toString(StandardCharsets.UTF_8));
+		assertTrue(closed.get());
+	}
+
+	@Test
+	void exportHistory_ndjson_writesOneObjectPerLine() throws Exception {
+		when(transactionRepository.streamHistory(null, "S1", null, null)).thenReturn(Stream.of(
+				TransactionResponse.builder().id(ID).quantity(1).type(Transaction.Type.IN).build(),
+				TransactionResponse.builder().id(ID).quantity(2).type(Transaction.Type.OUT).build()));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long count = service.exportHistory(null, "S1", null, null, ExportFormat.NDJSON, out);
+
+		assertEquals(2, count);
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].startsWith("{") && lines[0].contains("\"quantity\":1"));
+		assertTrue(lines[1].contains("\"type\":\"OUT\""));
+	}
+}
@@ -0,0 +1,132 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.IdempotencyKey;
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.exception.ConflictException;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.MovementRequest;
+import com.deacero.inventario.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceImplTest {
+
+	private IdempotencyKeyRepository repository;
+	private IdempotencyServiceImpl service;
+	private final MovementRequest request = MovementRequest.builder()
+			.productId(UUID.randomUUID()).storeId("S1").quantity(2).build();
+
+	@BeforeEach
+	void setUp() {
+		repository = Mockito.mock(IdempotencyKeyRepository.class);
+		RetryingTransactionExecutor executor = new RetryingTransactionExecutor(
+				Mockito.mock(PlatformTransactionManager.class), 3, 0, 0, new SimpleMeterRegistry());
+		service = new IdempotencyServiceImpl(repository, executor, new ObjectMapper(), Duration.ofHours(24), 100);
+	}
+
+	@Test
+	void execute_withoutKey_runsAction() {
+		assertEquals("ok", service.execute(null, "out", request, String.class, () -> "ok"));
+		verifyNoInteractions(repository);
+	}
+
+	@Test
+	void execute_newKey_runsActionAndStoresResponse() {
+		when(repository.claim(eq("k1"), eq("out"), anyString())).thenReturn(1);
+
+		BatchMovementResponse result = service.execute("k1", "out", request, BatchMovementResponse.class,
+				() -> BatchMovementResponse.builder().applied(1).build());
+
+		assertEquals(1, result.getApplied());
+		ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+		verify(repository).recordResponse(eq("k1"), stored.capture());
+		assertTrue(stored.getValue().contains("\"applied\":1"));
+	}
+
+	@Test
+	void execute_repeatedKey_replaysFromMemoryWithoutRunningAgain() {
+		when(repository.claim(eq("k1"), eq("out"), anyString())).thenReturn(1);
+		AtomicInteger runs = new AtomicInteger();
+
+		service.execute("k1", "out", request, Void.class, () -> {
+			runs.incrementAndGet();
+			return null;
+		});
+		Object replayed = service.execute("k1", "out", request, Void.class, () -> {
+			runs.incrementAndGet();
+			return null;
+		});
+
+		assertNull(replayed);
+		assertEquals(1, runs.get());
+		verify(repository, times(1)).claim(any(), any(), any());
+	}
+
+	@Test
+	void execute_keyCommittedByOtherNode_replaysStoredResponse() {
+		ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+		when(repository.claim(eq("k1"), eq("movementsBatch"), hash.capture())).thenReturn(0);
+		when(repository.findById("k1")).thenAnswer(inv -> Optional.of(IdempotencyKey.builder()
+				.key("k1").operation("movementsBatch").requestHash(hash.getValue())
+				.response("{\"applied\":3,\"rejected\":0}").build()));
+
+		BatchMovementResponse result = service.execute("k1", "movementsBatch", request, BatchMovementResponse.class,
+				() -> fail("must not run again"));
+
+		assertEquals(3, result.getApplied());
+		verify(repository, never()).recordResponse(any(), any());
+	}
+
+	@Test
+	void execute_newKey_exposesClaimToTheActionOnly() {
+		when(repository.claim(eq("k1"), eq("out"), anyString())).thenReturn(1);
+
+		IdempotencyClaim claim = service.execute("k1", "out", request, IdempotencyClaim.class, IdempotencyClaim::current);
+
+		assertEquals("k1", claim.key());
+		assertEquals("out", claim.operation());
+		assertNull(IdempotencyClaim.current());
+	}
+
+	// The ledger engine writes a batch's key with its movements, before the response is known
+	@Test
+	void execute_keyStoredWithoutResponse_conflict() {
+		ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+		when(repository.claim(eq("k1"), eq("movementsBatch"), hash.capture())).thenReturn(0);
+		when(repository.findById("k1")).thenAnswer(inv -> Optional.of(IdempotencyKey.builder()
+				.key("k1").operation("movementsBatch").requestHash(hash.getValue()).build()));
+
+		assertThrows(ConflictException.class, () -> service.execute("k1", "movementsBatch", request,
+				BatchMovementResponse.class, () -> fail("must not run again")));
+	}
+
+	@Test
+	void execute_sameKeyDifferentRequest_conflict() {
+		when(repository.claim(eq("k1"), eq("out"), anyString())).thenReturn(1);
+		service.execute("k1", "out", request, Void.class, () -> null);
+
+		MovementRequest other = MovementRequest.builder()
+				.productId(request.getProductId()).storeId("S1").quantity(5).build();
+		assertThrows(ConflictException.class, () -> service.execute("k1", "out", other, Void.class, () -> null));
+	}
+
+	@Test
+	void execute_rejectsOversizedKey() {
+		String key = "k".repeat(IdempotencyServiceImpl.MAX_KEY_LENGTH + 1);
+		assertThrows(BadRequestException.class, () -> service.execute(key, "out", request, Void.class, () -> null));
+	}
+}
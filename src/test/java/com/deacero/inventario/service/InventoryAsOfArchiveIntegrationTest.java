@@ -0,0 +1,111 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.EmbeddedInventoryDatabase;
+import com.deacero.inventario.models.InventoryItemResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stock as of a past date once the partition holding part of the replayed movements has been archived:
+ * the archived movements must still be counted, backward from the live inventory and forward from a
+ * snapshot. One test, since archiving the same month again replaces its files.
+ */
+@SpringBootTest(properties = {
+		"spring.autoconfigure.exclude=",
+		"springdoc.api-docs.enabled=false",
+		"springdoc.swagger-ui.enabled=false",
+		"inventory.snapshots.enabled=false",
+		"inventory.rollups.enabled=false",
+		"inventory.archive.enabled=true",
+		"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+		"spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+		"spring.jpa.properties.hibernate.type.preferred_enum_type=postgres_enum"
+})
+@DirtiesContext
+class InventoryAsOfArchiveIntegrationTest {
+
+	private static final OffsetDateTime JANUARY = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+
+	@Autowired
+	private InventorySnapshotService snapshotService;
+
+	@Autowired
+	private HistoryArchiver archiver;
+
+	@Autowired
+	private HistoryArchiveStore archiveStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private UUID productId;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) throws IOException, SQLException {
+		EmbeddedInventoryDatabase.register(registry);
+		String archiveDir = Files.createTempDirectory("history-archive").toString();
+		registry.add("inventory.archive.dir", () -> archiveDir);
+	}
+
+	// 100 in store A now, after +30 on 10 January, -10 on 10 February and +5 an hour ago; January is archived
+	@Test
+	void asOf_acrossArchivedPartition_countsArchivedMovements() {
+		productId = UUID.randomUUID();
+		jdbcTemplate.update("insert into product (id, name, category, price, sku) values (?, 'Product', 'Tools', 1.00, ?)",
+				productId, productId.toString());
+		jdbcTemplate.update("insert into inventory (product_id, store_id, quantity, min_stock) values (?, 'A', 100, 0)",
+				productId);
+		jdbcTemplate.queryForObject("select ensure_transaction_partitions('2024-01-01', '2024-02-01')", Integer.class);
+		movement("IN", null, "A", 30, JANUARY.plusDays(9));
+		movement("OUT", "A", null, 10, JANUARY.plusMonths(1).plusDays(9));
+		movement("IN", null, "A", 5, OffsetDateTime.now().minusHours(1));
+
+		jdbcTemplate.queryForList("select detach_transaction_partitions('2024-02-01')", String.class);
+		archiver.archive();
+
+		assertFalse(archiveStore.isEmpty());
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"select count(*) from \"transaction\" where \"timestamp\" < '2024-02-01'", Integer.class));
+
+		// Backward from the live inventory
+		assertEquals(75, quantityAsOf(JANUARY));
+		assertEquals(105, quantityAsOf(JANUARY.plusDays(20)));
+		assertEquals(95, quantityAsOf(JANUARY.plusMonths(1).plusDays(20)));
+
+		// Forward from a snapshot taken before the archived partition
+		OffsetDateTime takenAt = JANUARY.minusDays(1);
+		jdbcTemplate.update("insert into inventory_snapshot_run (taken_at) values (?)", takenAt);
+		jdbcTemplate.update("insert into inventory_snapshot (taken_at, store_id, product_id, quantity) values (?, 'A', ?, 75)",
+				takenAt, productId);
+		assertEquals(105, quantityAsOf(JANUARY.plusDays(20)));
+	}
+
+	private int quantityAsOf(OffsetDateTime asOf) {
+		List<InventoryItemResponse> items = snapshotService.getInventoryAsOf("A", asOf);
+		return items.stream()
+				.filter(item -> item.getProductId().equals(productId))
+				.mapToInt(InventoryItemResponse::getQuantity)
+				.sum();
+	}
+
+	private void movement(String type, String source, String target, int quantity, OffsetDateTime timestamp) {
+		jdbcTemplate.update("""
+				insert into "transaction" (id, product_id, source_store_id, target_store_id, quantity, type, "timestamp")
+				values (?, ?, ?, ?, ?, cast(? as transaction_type), ?)
+				""", UUID.randomUUID(), productId, source, target, quantity, type, timestamp);
+	}
+}
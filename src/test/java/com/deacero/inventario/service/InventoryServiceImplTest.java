@@ -1,32 +1,45 @@
 package com.deacero.inventario.service;
 
 import com.deacero.inventario.entities.Inventory;
-import com.deacero.inventario.entities.Product;
 import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.BadRequestException;
 import com.deacero.inventario.exception.ConflictException;
 import com.deacero.inventario.exception.InsufficientStockException;
 import com.deacero.inventario.mapper.InventoryMapper;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.CursorPage;
 import com.deacero.inventario.models.InventoryItemResponse;
 import com.deacero.inventario.models.LowStockProductResponse;
 import com.deacero.inventario.models.MovementRequest;
+import com.deacero.inventario.models.ProductResponse;
 import com.deacero.inventario.models.StockLoadRequest;
 import com.deacero.inventario.models.TransactionResponse;
 import com.deacero.inventario.models.TransferRequest;
 import com.deacero.inventario.repository.InventoryRepository;
 import com.deacero.inventario.repository.ProductRepository;
+import com.deacero.inventario.repository.StockLevel;
 import com.deacero.inventario.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -35,7 +48,10 @@ class InventoryServiceImplTest {
 	private InventoryRepository inventoryRepository;
 	private TransactionRepository transactionRepository;
 	private ProductRepository productRepository;
+	private ProductService productService;
 	private InventoryMapper inventoryMapper;
+	private ApplicationEventPublisher eventPublisher;
+	private HistoryArchiveStore historyArchive;
 
 	private InventoryServiceImpl service;
 
@@ -44,13 +60,19 @@ class InventoryServiceImplTest {
 		inventoryRepository = Mockito.mock(InventoryRepository.class);
 		transactionRepository = Mockito.mock(TransactionRepository.class);
 		productRepository = Mockito.mock(ProductRepository.class);
+		productService = Mockito.mock(ProductService.class);
 		inventoryMapper = inv -> InventoryItemResponse.builder()
 				.productId(inv.getProductId())
 				.storeId(inv.getStoreId())
 				.quantity(inv.getQuantity())
 				.minStock(inv.getMinStock())
 				.build();
-		service = new InventoryServiceImpl(inventoryRepository, transactionRepository, productRepository, inventoryMapper);
+		eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+		historyArchive = Mockito.mock(HistoryArchiveStore.class);
+		RetryingTransactionExecutor retryingExecutor = new RetryingTransactionExecutor(
+				Mockito.mock(PlatformTransactionManager.class), 3, 0, 0, new SimpleMeterRegistry());
+		service = new InventoryServiceImpl(inventoryRepository, transactionRepository, productRepository, productService, inventoryMapper,
+				eventPublisher, retryingExecutor, historyArchive);
 	}
 
 	@Test
@@ -65,13 +87,11 @@ class InventoryServiceImplTest {
 	}
 
 	@Test
-	void transfer_happyPath_savesTwoInventoriesAndTransaction() {
+	void transfer_happyPath_movesStockAndSavesTransaction() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId))
-				.thenReturn(Optional.of(Inventory.builder().storeId("S1").productId(productId).quantity(10).minStock(0).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S2", productId))
-				.thenReturn(Optional.of(Inventory.builder().storeId("S2").productId(productId).quantity(2).minStock(0).build()));
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.decreaseQuantity("S1", productId, 3)).thenReturn(Optional.of(level(productId, "S1", 7, 0)));
+		when(inventoryRepository.increaseQuantity("S2", productId, 3)).thenReturn(level(productId, "S2", 5, 0));
 
 		service.transfer(TransferRequest.builder()
 				.productId(productId)
@@ -79,55 +99,157 @@ class InventoryServiceImplTest {
 				.targetStoreId("S2")
 				.quantity(3)
 				.build());
+
+		verify(transactionRepository).save(argThat(tx -> tx.getType() == Transaction.Type.TRANSFER && tx.getQuantity() == 3));
+		verify(eventPublisher, times(2)).publishEvent(any(StockChangedEvent.class));
 	}
 
 	@Test
 	void transfer_insufficientStock_throws() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId))
-				.thenReturn(Optional.of(Inventory.builder().storeId("S1").productId(productId).quantity(1).minStock(0).build()));
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.decreaseQuantity("S1", productId, 3)).thenReturn(Optional.empty());
 
 		assertThrows(InsufficientStockException.class, () -> service.transfer(TransferRequest.builder()
 				.productId(productId).sourceStoreId("S1").targetStoreId("S2").quantity(3).build()));
+		verify(inventoryRepository, never()).increaseQuantity(any(), any(), anyInt());
+		verify(transactionRepository, never()).save(any());
+	}
+
+	@Test
+	void transfer_towardsLowerStoreId_locksTargetFirst() {
+		UUID productId = UUID.randomUUID();
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.increaseQuantity("S1", productId, 3)).thenReturn(level(productId, "S1", 5, 0));
+		when(inventoryRepository.decreaseQuantity("S2", productId, 3)).thenReturn(Optional.of(level(productId, "S2", 7, 0)));
+
+		service.transfer(TransferRequest.builder()
+				.productId(productId).sourceStoreId("S2").targetStoreId("S1").quantity(3).build());
+
+		InOrder inOrder = inOrder(inventoryRepository);
+		inOrder.verify(inventoryRepository).increaseQuantity("S1", productId, 3);
+		inOrder.verify(inventoryRepository).decreaseQuantity("S2", productId, 3);
+		verify(transactionRepository).save(any(Transaction.class));
+	}
+
+	@Test
+	void transfer_locksStoresInCodePointOrder_likeCollateC() {
+		// U+FF21 sorts after the surrogate pair of U+1F600 in UTF-16 but before it by code point
+		String fullwidth = "\uFF21";
+		String emoji = "\uD83D\uDE00";
+		UUID productId = UUID.randomUUID();
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.increaseQuantity(fullwidth, productId, 3)).thenReturn(level(productId, fullwidth, 5, 0));
+		when(inventoryRepository.decreaseQuantity(emoji, productId, 3)).thenReturn(Optional.of(level(productId, emoji, 7, 0)));
+
+		service.transfer(TransferRequest.builder()
+				.productId(productId).sourceStoreId(emoji).targetStoreId(fullwidth).quantity(3).build());
+
+		InOrder inOrder = inOrder(inventoryRepository);
+		inOrder.verify(inventoryRepository).increaseQuantity(fullwidth, productId, 3);
+		inOrder.verify(inventoryRepository).decreaseQuantity(emoji, productId, 3);
 	}
 
 	@Test
-	void registerEntry_createsOrUpdatesAndAddsTransaction() {
+	void registerEntry_appliesSingleUpsertStatement() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId)).thenReturn(Optional.empty());
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.applyEntry("S1", productId, 5)).thenReturn(level(productId, "S1", 5, 0));
 
 		service.registerEntry(MovementRequest.builder().productId(productId).storeId("S1").quantity(5).build());
+
+		verify(inventoryRepository).applyEntry("S1", productId, 5);
+		verify(eventPublisher).publishEvent(any(StockChangedEvent.class));
 	}
 
 	@Test
-	void registerOut_checksStockAndSavesTransaction() {
+	void registerOut_appliesConditionalDecrement() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId))
-				.thenReturn(Optional.of(Inventory.builder().storeId("S1").productId(productId).quantity(5).minStock(0).build()));
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.applyOut("S1", productId, 3)).thenReturn(Optional.of(level(productId, "S1", 2, 0)));
 
 		service.registerOut(MovementRequest.builder().productId(productId).storeId("S1").quantity(3).build());
+
+		ArgumentCaptor<StockChangedEvent> event = ArgumentCaptor.forClass(StockChangedEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertEquals("S1", event.getValue().getStoreId());
+		assertEquals(2, event.getValue().getQuantity());
 	}
 
 	@Test
 	void registerOut_insufficient_throws() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId))
-				.thenReturn(Optional.of(Inventory.builder().storeId("S1").productId(productId).quantity(2).minStock(0).build()));
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.applyOut("S1", productId, 3)).thenReturn(Optional.empty());
 
 		assertThrows(InsufficientStockException.class, () ->
 				service.registerOut(MovementRequest.builder().productId(productId).storeId("S1").quantity(3).build()));
+		verifyNoInteractions(eventPublisher);
+	}
+
+	@Test
+	void registerMovements_in_appliesOneStatementAndBatchesLedger() {
+		UUID productId = UUID.randomUUID();
+		UUID missing = UUID.randomUUID();
+		when(productRepository.findExistingIds(any())).thenReturn(List.of(productId));
+		when(inventoryRepository.increaseQuantities(any(), any(), any()))
+				.thenReturn(List.of(level(productId, "S1", 9, 0)));
+
+		BatchMovementResponse response = service.registerMovements(BatchMovementRequest.builder()
+				.type(Transaction.Type.IN)
+				.movements(List.of(
+						MovementRequest.builder().productId(productId).storeId("S1").quantity(5).build(),
+						MovementRequest.builder().productId(missing).storeId("S1").quantity(1).build(),
+						MovementRequest.builder().productId(productId).storeId("S1").quantity(3).build()))
+				.build());
+
+		assertEquals(2, response.getApplied());
+		assertEquals(1, response.getRejected());
+		assertEquals(6, response.getResults().get(0).getResultingQuantity());
+		assertEquals(BatchMovementResult.Status.REJECTED, response.getResults().get(1).getStatus());
+		assertEquals(9, response.getResults().get(2).getResultingQuantity());
+		verify(inventoryRepository).increaseQuantities(aryEq(new String[]{"S1"}), aryEq(new UUID[]{productId}), aryEq(new int[]{8}));
+		verify(transactionRepository).saveAll(argThat(txs -> ((Collection<Transaction>) txs).size() == 2));
+	}
+
+	@Test
+	void registerMovements_out_rejectsLinesBeyondLockedStock() {
+		UUID productId = UUID.randomUUID();
+		when(productRepository.findExistingIds(any())).thenReturn(List.of(productId));
+		when(inventoryRepository.lockLevels(any(), any())).thenReturn(List.of(level(productId, "S1", 5, 0)));
+		when(inventoryRepository.decreaseQuantities(any(), any(), any()))
+				.thenReturn(List.of(level(productId, "S1", 1, 0)));
+
+		BatchMovementResponse response = service.registerMovements(BatchMovementRequest.builder()
+				.type(Transaction.Type.OUT)
+				.movements(List.of(
+						MovementRequest.builder().productId(productId).storeId("S1").quantity(4).build(),
+						MovementRequest.builder().productId(productId).storeId("S1").quantity(2).build(),
+						MovementRequest.builder().productId(productId).storeId("S2").quantity(1).build()))
+				.build());
+
+		assertEquals(1, response.getApplied());
+		assertEquals(1, response.getResults().get(0).getResultingQuantity());
+		assertEquals("Insufficient stock in store", response.getResults().get(1).getMessage());
+		assertEquals(BatchMovementResult.Reason.INSUFFICIENT_STOCK, response.getResults().get(1).getReason());
+		assertEquals("Insufficient stock in store", response.getResults().get(2).getMessage());
+		verify(inventoryRepository).decreaseQuantities(aryEq(new String[]{"S1"}), aryEq(new UUID[]{productId}), aryEq(new int[]{4}));
+	}
+
+	@Test
+	void registerMovements_transferType_badRequest() {
+		assertThrows(BadRequestException.class, () -> service.registerMovements(BatchMovementRequest.builder()
+				.type(Transaction.Type.TRANSFER)
+				.movements(List.of(MovementRequest.builder().productId(UUID.randomUUID()).storeId("S1").quantity(1).build()))
+				.build()));
+		verifyNoInteractions(inventoryRepository);
 	}
 
 	@Test
 	void loadInitialStock_blocksWhenAlreadyInitialized() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId))
-				.thenReturn(Optional.of(Inventory.builder().storeId("S1").productId(productId).quantity(1).minStock(0).build()));
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.applyInitialLoad("S1", productId, 10, null)).thenReturn(Optional.empty());
 
 		assertThrows(ConflictException.class, () ->
 				service.loadInitialStock(StockLoadRequest.builder().productId(productId).storeId("S1").quantity(10).build()));
@@ -136,25 +258,29 @@ class InventoryServiceImplTest {
 	@Test
 	void loadInitialStock_initializesAndCreatesInTransaction() {
 		UUID productId = UUID.randomUUID();
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder().id(productId).build()));
-		when(inventoryRepository.findByStoreIdAndProductId("S1", productId)).thenReturn(Optional.empty());
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.applyInitialLoad("S1", productId, 10, 2)).thenReturn(Optional.of(level(productId, "S1", 10, 2)));
 
 		service.loadInitialStock(StockLoadRequest.builder()
 				.productId(productId).storeId("S1").quantity(10).minStock(2).build());
 
+		verify(inventoryRepository).applyInitialLoad("S1", productId, 10, 2);
 	}
 
 	@Test
-	void listLowStockAlerts_mapsResults() {
+	void listLowStockAlerts_usesSingleProjectionQuery() {
 		UUID productId = UUID.randomUUID();
-		when(inventoryRepository.findLowStockItems()).thenReturn(List.of(Inventory.builder()
-				.productId(productId).storeId("S1").quantity(1).minStock(2).build()));
-		when(productRepository.findById(productId)).thenReturn(Optional.of(Product.builder()
-				.id(productId).name("Product Name").sku("SKU").price(new BigDecimal("9.99")).build()));
+		Pageable pageable = PageRequest.of(0, 10);
+		LowStockProductResponse alert = LowStockProductResponse.builder()
+				.productId(productId).productName("Product Name").sku("SKU").price(new BigDecimal("9.99"))
+				.storeId("S1").quantity(1).minStock(2).build();
+		when(inventoryRepository.findLowStockAlerts("S1", null, pageable))
+				.thenReturn(new PageImpl<>(List.of(alert), pageable, 1));
 
-		List<LowStockProductResponse> list = service.listLowStockAlerts();
-		assertEquals(1, list.size());
-		assertEquals("Product Name", list.get(0).getProductName());
+		Page<LowStockProductResponse> page = service.listLowStockAlerts("S1", " ", pageable);
+		assertEquals(1, page.getTotalElements());
+		assertEquals("Product Name", page.getContent().get(0).getProductName());
+		verifyNoInteractions(productRepository, productService);
 	}
 
 	@Test
@@ -169,13 +295,100 @@ class InventoryServiceImplTest {
 				.type(Transaction.Type.TRANSFER)
 				.build();
 		Pageable pageable = PageRequest.of(0, 10);
-		when(transactionRepository.findHistory(eq(productId), eq("S1"), eq(pageable)))
+		OffsetDateTime from = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+		OffsetDateTime to = OffsetDateTime.parse("2025-02-01T00:00:00Z");
+		when(transactionRepository.findHistory(eq(productId), eq("S1"), eq(from), eq(to), eq(pageable)))
 				.thenReturn(new PageImpl<>(List.of(tx), pageable, 1));
 
-		Page<TransactionResponse> page = service.listHistory(productId, "S1", pageable);
+		Page<TransactionResponse> page = service.listHistory(productId, "S1", from, to, pageable);
 		assertEquals(1, page.getTotalElements());
 		assertEquals("S1", page.getContent().get(0).getSourceStoreId());
 	}
-}
 
+	@Test
+	void listHistoryByCursor_returnsTokenThatResumesAfterLastRow() {
+		UUID productId = UUID.randomUUID();
+		OffsetDateTime now = OffsetDateTime.parse("2025-01-10T10:15:30.123456Z");
+		List<Transaction> rows = List.of(movement(productId, now), movement(productId, now.minusSeconds(1)),
+				movement(productId, now.minusSeconds(2)));
+		when(transactionRepository.findHistoryAfter(productId, null, null, null, null, null, 3)).thenReturn(rows);
+
+		CursorPage<TransactionResponse> first = service.listHistoryByCursor(productId, "", null, null, "", 2);
+
+		assertEquals(2, first.getSize());
+		assertNotNull(first.getNextCursor());
+		Transaction last = rows.get(1);
+		when(transactionRepository.findHistoryAfter(productId, null, null, null, last.getTimestamp(), last.getId(), 3))
+				.thenReturn(List.of(rows.get(2)));
+
+		CursorPage<TransactionResponse> second = service.listHistoryByCursor(productId, null, null, null, first.getNextCursor(), 2);
+
+		assertEquals(rows.get(2).getId(), second.getContent().get(0).getId());
+		assertNull(second.getNextCursor());
+	}
+
+	@Test
+	void listHistoryByCursor_continuesIntoArchiveAfterLastDatabaseRow() {
+		UUID productId = UUID.randomUUID();
+		OffsetDateTime now = OffsetDateTime.parse("2025-01-10T10:15:30Z");
+		Transaction recent = movement(productId, now);
+		TransactionResponse archived = TransactionResponse.builder()
+				.id(UUID.randomUUID())
+				.productId(productId)
+				.targetStoreId("S1")
+				.quantity(1)
+				.type(Transaction.Type.IN)
+				.timestamp(now.minusMonths(13))
+				.build();
+		when(transactionRepository.findHistoryAfter(productId, null, null, null, null, null, 3)).thenReturn(List.of(recent));
+		when(historyArchive.find(productId, null, null, null, recent.getTimestamp(), recent.getId(), 0, 2))
+				.thenReturn(List.of(archived));
+
+		CursorPage<TransactionResponse> page = service.listHistoryByCursor(productId, null, null, null, null, 2);
 
+		assertEquals(List.of(recent.getId(), archived.getId()), page.getContent().stream().map(TransactionResponse::getId).toList());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void listHistory_pagePastDatabaseRowsReadsArchive() {
+		Pageable pageable = PageRequest.of(1, 10);
+		when(transactionRepository.findHistory(null, null, null, null, pageable))
+				.thenReturn(new PageImpl<>(List.of(), pageable, 4));
+		when(historyArchive.count(null, null, null, null)).thenReturn(20L);
+		TransactionResponse archived = TransactionResponse.builder().id(UUID.randomUUID()).build();
+		when(historyArchive.find(null, null, null, null, null, null, 6, 10)).thenReturn(List.of(archived));
+
+		Page<TransactionResponse> page = service.listHistory(null, null, null, null, pageable);
+
+		assertEquals(24, page.getTotalElements());
+		assertEquals(List.of(archived), page.getContent());
+	}
+
+	@Test
+	void listHistoryByCursor_invalidCursor_badRequest() {
+		assertThrows(BadRequestException.class, () -> service.listHistoryByCursor(null, null, null, null, "not-a-cursor", 20));
+		assertThrows(BadRequestException.class, () -> service.listHistoryByCursor(null, null, null, null, null, 0));
+		verifyNoInteractions(transactionRepository);
+	}
+
+	private static Transaction movement(UUID productId, OffsetDateTime timestamp) {
+		return Transaction.builder()
+				.id(UUID.randomUUID())
+				.productId(productId)
+				.targetStoreId("S1")
+				.quantity(1)
+				.type(Transaction.Type.IN)
+				.timestamp(timestamp)
+				.build();
+	}
+
+	private static StockLevel level(UUID productId, String storeId, int quantity, int minStock) {
+		return new StockLevel() {
+			public UUID getProductId() { return productId; }
+			public String getStoreId() { return storeId; }
+			public Integer getQuantity() { return quantity; }
+			public Integer getMinStock() { return minStock; }
+		};
+	}
+}
@@ -0,0 +1,141 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.models.InventoryItemResponse;
+import com.deacero.inventario.models.TransactionResponse;
+import com.deacero.inventario.repository.InventorySnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InventorySnapshotServiceImplTest {
+
+	private static final UUID A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+	private static final UUID B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+	private static final OffsetDateTime DAY_1 = OffsetDateTime.parse("2025-03-01T00:00:00Z");
+	private static final OffsetDateTime DAY_2 = OffsetDateTime.parse("2025-03-02T00:00:00Z");
+
+	@TempDir
+	Path archiveDir;
+
+	private InventorySnapshotRepository snapshotRepository;
+	private InventorySnapshotServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		snapshotRepository = Mockito.mock(InventorySnapshotRepository.class);
+		when(snapshotRepository.tryLock()).thenReturn(true);
+		service = new InventorySnapshotServiceImpl(snapshotRepository,
+				new HistoryArchiveStore(archiveDir.toString(), 2), true, Duration.ofDays(1), 1000,
+				Duration.ofMinutes(5), Duration.ZERO);
+	}
+
+	@Test
+	void asOf_closerToEarlierSnapshot_replaysForward() {
+		OffsetDateTime asOf = DAY_1.plusHours(6);
+		when(snapshotRepository.findLatestAtOrBefore(asOf)).thenReturn(DAY_1);
+		when(snapshotRepository.findEarliestAfter(asOf)).thenReturn(DAY_2);
+		when(snapshotRepository.findSnapshot("S1", DAY_1)).thenReturn(new HashMap<>(Map.of(A, 10, B, 3)));
+		when(snapshotRepository.sumMovements("S1", DAY_1, asOf)).thenReturn(Map.of(A, -4, B, -3));
+
+		List<InventoryItemResponse> items = service.getInventoryAsOf("S1", asOf);
+
+		assertEquals(1, items.size());
+		assertEquals(A, items.get(0).getProductId());
+		assertEquals(6, items.get(0).getQuantity());
+		verify(snapshotRepository, never()).findCurrent(any());
+	}
+
+	@Test
+	void asOf_closerToLaterSnapshot_replaysBackward() {
+		OffsetDateTime asOf = DAY_2.minusHours(2);
+		when(snapshotRepository.findLatestAtOrBefore(asOf)).thenReturn(DAY_1);
+		when(snapshotRepository.findEarliestAfter(asOf)).thenReturn(DAY_2);
+		when(snapshotRepository.findSnapshot("S1", DAY_2)).thenReturn(new HashMap<>(Map.of(A, 10)));
+		when(snapshotRepository.sumMovements("S1", asOf, DAY_2)).thenReturn(Map.of(A, 4, B, -2));
+
+		List<InventoryItemResponse> items = service.getInventoryAsOf("S1", asOf);
+
+		assertEquals(List.of(A, B), items.stream().map(InventoryItemResponse::getProductId).toList());
+		assertEquals(List.of(6, 2), items.stream().map(InventoryItemResponse::getQuantity).toList());
+		verify(snapshotRepository, never()).findSnapshot("S1", DAY_1);
+	}
+
+	@Test
+	void asOf_afterLastSnapshot_replaysBackFromLiveInventory() {
+		OffsetDateTime asOf = OffsetDateTime.now().minusMinutes(1);
+		when(snapshotRepository.findLatestAtOrBefore(asOf)).thenReturn(DAY_1);
+		when(snapshotRepository.findCurrent("S1")).thenReturn(new HashMap<>(Map.of(A, 5)));
+		when(snapshotRepository.sumMovements("S1", asOf, null)).thenReturn(Map.of(A, 2));
+
+		List<InventoryItemResponse> items = service.getInventoryAsOf("S1", asOf);
+
+		assertEquals(3, items.get(0).getQuantity());
+	}
+
+	@Test
+	void asOf_inFuture_badRequest() {
+		assertThrows(BadRequestException.class, () -> service.getInventoryAsOf("S1", OffsetDateTime.now().plusDays(1)));
+		verifyNoInteractions(snapshotRepository);
+	}
+
+	@Test
+	void maintain_takesSnapshotWhenIntervalElapsedOrEnoughMovements() {
+		OffsetDateTime now = DAY_2.plusHours(1);
+		when(snapshotRepository.findLatest()).thenReturn(DAY_1);
+
+		service.maintain(now);
+
+		verify(snapshotRepository).create(now.minusMinutes(5));
+
+		reset(snapshotRepository);
+		when(snapshotRepository.tryLock()).thenReturn(true);
+		when(snapshotRepository.findLatest()).thenReturn(DAY_2);
+		when(snapshotRepository.countMovementsSince(DAY_2)).thenReturn(999L, 1000L);
+
+		service.maintain(now);
+		verify(snapshotRepository, never()).create(any());
+		service.maintain(now);
+		verify(snapshotRepository).create(now.minusMinutes(5));
+	}
+
+	@Test
+	void maintain_skipsSnapshotWhileArchiveReachesPastItsDate() throws Exception {
+		new HistoryArchiveStore(archiveDir.toString(), 2).add("transaction_y2025m03-0", List.of(TransactionResponse.builder()
+				.id(UUID.randomUUID())
+				.productId(A)
+				.targetStoreId("S1")
+				.quantity(1)
+				.timestamp(DAY_2)
+				.type(Transaction.Type.IN)
+				.build()));
+
+		service.maintain(DAY_2);
+
+		verify(snapshotRepository, never()).create(any());
+	}
+
+	@Test
+	void maintain_skipsWhenAnotherReplicaHoldsTheLock() {
+		when(snapshotRepository.tryLock()).thenReturn(false);
+
+		service.maintain(DAY_2);
+
+		verify(snapshotRepository, never()).findLatest();
+		verify(snapshotRepository, never()).create(any());
+	}
+}
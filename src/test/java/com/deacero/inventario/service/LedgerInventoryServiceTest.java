@@ -0,0 +1,301 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Inventory;
+import com.deacero.inventario.entities.Transaction;
+import com.deacero.inventario.exception.ConflictException;
+import com.deacero.inventario.exception.InsufficientStockException;
+import com.deacero.inventario.exception.MovementPendingException;
+import com.deacero.inventario.exception.ServiceUnavailableException;
+import com.deacero.inventario.models.BatchMovementRequest;
+import com.deacero.inventario.models.BatchMovementResponse;
+import com.deacero.inventario.models.BatchMovementResult;
+import com.deacero.inventario.models.MovementRequest;
+import com.deacero.inventario.models.ProductResponse;
+import com.deacero.inventario.models.StockLoadRequest;
+import com.deacero.inventario.models.TransferRequest;
+import com.deacero.inventario.repository.InventoryRepository;
+import com.deacero.inventario.repository.LedgerRecord;
+import com.deacero.inventario.repository.LedgerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LedgerInventoryServiceTest {
+
+	@TempDir
+	Path walDir;
+
+	private InventoryServiceImpl delegate;
+	private InventoryRepository inventoryRepository;
+	private ProductService productService;
+	private LedgerRepository ledgerRepository;
+	private final List<LedgerRecord> appliedRecords = new ArrayList<>();
+	private final List<LedgerRecord> keyedRecords = new ArrayList<>();
+	// Swapped by tests while the applier runs, instead of re-stubbing the mock under it
+	private volatile Function<List<LedgerRecord>, RuntimeException> databaseFailure = records -> null;
+	private LedgerInventoryService engine;
+	private final UUID productId = UUID.randomUUID();
+
+	@BeforeEach
+	void setUp() {
+		delegate = Mockito.mock(InventoryServiceImpl.class);
+		inventoryRepository = Mockito.mock(InventoryRepository.class);
+		productService = Mockito.mock(ProductService.class);
+		ledgerRepository = Mockito.mock(LedgerRepository.class);
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder().id(productId).build()));
+		when(inventoryRepository.findByStoreIdAndProductId("S1", productId))
+				.thenReturn(Optional.of(Inventory.builder().storeId("S1").productId(productId).quantity(5).build()));
+		doAnswer(inv -> {
+			synchronized (keyedRecords) {
+				keyedRecords.addAll(inv.getArgument(0));
+			}
+			return null;
+		}).when(ledgerRepository).recordIdempotencyKeys(anyList());
+		when(ledgerRepository.apply(anyList())).thenAnswer(inv -> {
+			List<LedgerRecord> records = inv.getArgument(0);
+			RuntimeException failure = databaseFailure.apply(records);
+			if (failure != null) {
+				throw failure;
+			}
+			synchronized (appliedRecords) {
+				appliedRecords.addAll(records);
+			}
+			return List.of();
+		});
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (engine != null) {
+			engine.stop();
+		}
+	}
+
+	private LedgerInventoryService newEngine() throws Exception {
+		return newEngine(2000);
+	}
+
+	private LedgerInventoryService newEngine(long ackTimeoutMs) throws Exception {
+		return newEngine(ackTimeoutMs, 100_000);
+	}
+
+	private LedgerInventoryService newEngine(long ackTimeoutMs, long maxUnapplied) throws Exception {
+		LedgerInventoryService created = new LedgerInventoryService(delegate,
+				inventoryRepository, productService, ledgerRepository, Mockito.mock(PlatformTransactionManager.class),
+				Mockito.mock(ApplicationEventPublisher.class), new ObjectMapper().findAndRegisterModules(),
+				2, walDir.toString(), 1024 * 1024, true, 100, ackTimeoutMs, maxUnapplied);
+		created.start();
+		return created;
+	}
+
+	// Runs action as IdempotencyServiceImpl does once it claimed the key
+	private static void withClaim(IdempotencyClaim claim, Runnable action) {
+		TransactionSynchronizationManager.bindResource(IdempotencyClaim.class, claim);
+		try {
+			action.run();
+		} finally {
+			TransactionSynchronizationManager.unbindResource(IdempotencyClaim.class);
+		}
+	}
+
+	private void awaitAppliedRecords(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (true) {
+			synchronized (appliedRecords) {
+				if (appliedRecords.size() >= count) {
+					return;
+				}
+			}
+			assertTrue(System.nanoTime() < deadline, "records were not applied in time");
+			Thread.sleep(10);
+		}
+	}
+
+	private MovementRequest movement(String storeId, int quantity) {
+		return MovementRequest.builder().productId(productId).storeId(storeId).quantity(quantity).build();
+	}
+
+	@Test
+	void registerOut_decidesInMemory_andFeedsPostgresThroughTheWal() throws Exception {
+		engine = newEngine();
+
+		engine.registerOut(movement("S1", 3));
+		assertThrows(InsufficientStockException.class, () -> engine.registerOut(movement("S1", 3)));
+		engine.registerOut(movement("S1", 2));
+
+		verify(inventoryRepository, times(1)).findByStoreIdAndProductId("S1", productId);
+		verify(ledgerRepository, timeout(2000).atLeastOnce()).apply(anyList());
+		engine.stop();
+		engine = null;
+		assertEquals(2, appliedRecords.size());
+		assertTrue(appliedRecords.stream().allMatch(r -> r.type() == Transaction.Type.OUT && "S1".equals(r.sourceStoreId())));
+	}
+
+	@Test
+	void transfer_movesCountersOnTheProductShard() throws Exception {
+		engine = newEngine();
+
+		engine.transfer(TransferRequest.builder().productId(productId)
+				.sourceStoreId("S1").targetStoreId("S2").quantity(4).build());
+
+		assertThrows(InsufficientStockException.class, () -> engine.registerOut(movement("S1", 2)));
+		engine.registerOut(movement("S2", 4));
+	}
+
+	@Test
+	void registerMovements_decidesEachLineAgainstTheRunningCounter() throws Exception {
+		engine = newEngine();
+		UUID unknown = UUID.randomUUID();
+		when(productService.getProduct(unknown)).thenReturn(Optional.empty());
+
+		BatchMovementResponse response = engine.registerMovements(BatchMovementRequest.builder()
+				.type(Transaction.Type.OUT)
+				.movements(List.of(movement("S1", 4), movement("S1", 4),
+						MovementRequest.builder().productId(unknown).storeId("S1").quantity(1).build()))
+				.build());
+
+		assertEquals(1, response.getApplied());
+		assertEquals(1, response.getResults().get(0).getResultingQuantity());
+		assertEquals(BatchMovementResult.Status.REJECTED, response.getResults().get(1).getStatus());
+		assertEquals("Product not found", response.getResults().get(2).getMessage());
+		assertEquals(BatchMovementResult.Reason.PRODUCT_NOT_FOUND, response.getResults().get(2).getReason());
+	}
+
+	@Test
+	void restart_replaysRecordsThatNeverReachedPostgres() throws Exception {
+		doThrow(new DataAccessResourceFailureException("database down")).when(ledgerRepository).apply(anyList());
+		engine = newEngine();
+		engine.registerEntry(movement("S1", 7));
+		engine.stop();
+		engine = null;
+
+		reset(ledgerRepository);
+		ArgumentCaptor<List<LedgerRecord>> replayed = ArgumentCaptor.forClass(List.class);
+		when(ledgerRepository.apply(replayed.capture())).thenReturn(List.of());
+		engine = newEngine();
+
+		assertEquals(1, replayed.getValue().size());
+		assertEquals(Transaction.Type.IN, replayed.getValue().get(0).type());
+		assertEquals(7, replayed.getValue().get(0).quantity());
+		try (var files = Files.list(walDir)) {
+			assertEquals(1, files.count(), "only the new, empty segment is left");
+		}
+	}
+
+	@Test
+	void keyedRetry_whileFirstRecordIsNotInPostgres_isNotAppendedAgain() throws Exception {
+		databaseFailure = records -> new DataAccessResourceFailureException("database down");
+		engine = newEngine();
+
+		// The first attempt's record is durable but its key rolled back with the caller's transaction
+		withClaim(new IdempotencyClaim("key-1", "in", "hash"), () -> engine.registerEntry(movement("S1", 7)));
+		withClaim(new IdempotencyClaim("key-1", "in", "hash"), () -> engine.registerEntry(movement("S1", 7)));
+		assertThrows(ConflictException.class, () -> withClaim(new IdempotencyClaim("key-1", "in", "other"),
+				() -> engine.registerEntry(movement("S1", 7))));
+
+		databaseFailure = records -> null;
+		awaitAppliedRecords(1);
+		engine.stop();
+		engine = null;
+		assertEquals(1, appliedRecords.size());
+		assertEquals(new LedgerRecord.Idempotency("key-1", "in", "hash", "null"), appliedRecords.get(0).idempotency());
+		// Every failed attempt also recorded the key; the last one is the batch that was applied
+		assertEquals(appliedRecords, keyedRecords.subList(keyedRecords.size() - 1, keyedRecords.size()));
+	}
+
+	@Test
+	void rejectedRecord_isMovedToTheDeadLetterTable_andDoesNotBlockTheOthers() throws Exception {
+		UUID deleted = UUID.randomUUID();
+		when(productService.getProduct(deleted)).thenReturn(Optional.of(ProductResponse.builder().id(deleted).build()));
+		databaseFailure = records -> records.stream().anyMatch(r -> deleted.equals(r.productId()))
+				? new DataIntegrityViolationException("violates foreign key constraint") : null;
+		engine = newEngine();
+
+		BatchMovementResponse response = engine.registerMovements(BatchMovementRequest.builder()
+				.type(Transaction.Type.IN)
+				.movements(List.of(movement("S1", 1),
+						MovementRequest.builder().productId(deleted).storeId("S1").quantity(2).build(),
+						movement("S1", 3)))
+				.build());
+		assertEquals(3, response.getApplied());
+		engine.registerEntry(movement("S1", 4));
+
+		ArgumentCaptor<LedgerRecord> deadLettered = ArgumentCaptor.forClass(LedgerRecord.class);
+		verify(ledgerRepository, timeout(2000)).deadLetter(deadLettered.capture(), eq("violates foreign key constraint"));
+		engine.stop();
+		engine = null;
+		assertEquals(deleted, deadLettered.getValue().productId());
+		assertEquals(List.of(1, 3, 4), appliedRecords.stream().map(LedgerRecord::quantity).sorted().toList());
+	}
+
+	@Test
+	void newMovements_areRefusedWhileTooManyWaitForPostgres() throws Exception {
+		databaseFailure = records -> new DataAccessResourceFailureException("database down");
+		engine = newEngine(2000, 2);
+
+		engine.registerEntry(movement("S1", 1));
+		engine.registerEntry(movement("S1", 1));
+		assertThrows(ServiceUnavailableException.class, () -> engine.registerEntry(movement("S1", 1)));
+
+		databaseFailure = records -> null;
+		awaitAppliedRecords(2);
+		engine.registerEntry(movement("S1", 1));
+		engine.stop();
+		engine = null;
+		assertEquals(3, appliedRecords.size());
+	}
+
+	@Test
+	void unacknowledgedMovement_isReportedPendingWithItsId() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(inv -> {
+			loading.countDown();
+			release.await();
+			return null;
+		}).when(delegate).loadInitialStock(any());
+		engine = newEngine(200);
+		// An initial load occupies the product's shard
+		Thread load = new Thread(() -> assertThrows(IllegalStateException.class,
+				() -> engine.loadInitialStock(StockLoadRequest.builder().productId(productId).storeId("S1").quantity(1).build())));
+		load.start();
+		loading.await();
+
+		MovementPendingException pending;
+		try {
+			pending = assertThrows(MovementPendingException.class, () -> engine.registerEntry(movement("S1", 7)));
+		} finally {
+			release.countDown();
+			load.join();
+		}
+
+		assertEquals(1, pending.getMovementIds().size());
+		verify(ledgerRepository, timeout(2000).atLeastOnce()).apply(anyList());
+		engine.stop();
+		engine = null;
+		assertEquals(pending.getMovementIds(), appliedRecords.stream().map(LedgerRecord::id).toList());
+	}
+}
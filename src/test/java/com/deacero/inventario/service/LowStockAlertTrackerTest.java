@@ -0,0 +1,111 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.LowStockAlertEvent;
+import com.deacero.inventario.models.LowStockProductResponse;
+import com.deacero.inventario.models.ProductResponse;
+import com.deacero.inventario.repository.InventoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LowStockAlertTrackerTest {
+
+	private InventoryRepository inventoryRepository;
+	private ProductService productService;
+	private LowStockAlertTracker tracker;
+
+	@BeforeEach
+	void setUp() {
+		inventoryRepository = Mockito.mock(InventoryRepository.class);
+		productService = Mockito.mock(ProductService.class);
+		tracker = new LowStockAlertTracker(inventoryRepository, productService, 1000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		tracker.shutdown();
+	}
+
+	@Test
+	void crossingIntoAndOutOfThreshold_updatesAlertSet() {
+		UUID productId = UUID.randomUUID();
+		when(productService.getProduct(productId)).thenReturn(Optional.of(ProductResponse.builder()
+				.id(productId).name("Product Name").sku("SKU").price(new BigDecimal("1.00")).build()));
+
+		tracker.onStockChanged(new StockChangedEvent(productId, "S1", 2, 2));
+		tracker.onStockChanged(new StockChangedEvent(productId, "S1", 1, 2));
+
+		assertEquals(1, tracker.getActiveAlerts().size());
+		LowStockProductResponse alert = tracker.getActiveAlerts().iterator().next();
+		assertEquals("Product Name", alert.getProductName());
+		assertEquals(1, alert.getQuantity());
+		// Only the crossing needs product details
+		verify(productService, times(1)).getProduct(productId);
+
+		tracker.onStockChanged(new StockChangedEvent(productId, "S1", 5, 2));
+		assertTrue(tracker.getActiveAlerts().isEmpty());
+	}
+
+	@Test
+	void aboveThreshold_neverTouchesRepositories() {
+		tracker.onStockChanged(new StockChangedEvent(UUID.randomUUID(), "S1", 10, 2));
+
+		assertTrue(tracker.getActiveAlerts().isEmpty());
+		verifyNoInteractions(productService);
+	}
+
+	@Test
+	void reload_replacesAlertSetFromDatabase() {
+		UUID productId = UUID.randomUUID();
+		when(inventoryRepository.findAllLowStockAlerts()).thenReturn(List.of(LowStockProductResponse.builder()
+				.productId(productId).storeId("S1").quantity(0).minStock(1).build()));
+
+		tracker.reload();
+
+		assertEquals(1, tracker.getActiveAlerts().size());
+	}
+
+	@Test
+	void reload_broadcastsCorrections() {
+		UUID stale = UUID.randomUUID();
+		UUID missed = UUID.randomUUID();
+		UUID kept = UUID.randomUUID();
+		when(inventoryRepository.findAllLowStockAlerts())
+				.thenReturn(List.of(alert(stale), alert(kept)))
+				.thenReturn(List.of(alert(kept), alert(missed)));
+		tracker.reload();
+		LowStockAlertTracker spied = spy(tracker);
+
+		spied.reload();
+
+		verify(spied).broadcast(eq(LowStockAlertEvent.Type.CLEARED), argThat(a -> a.getProductId().equals(stale)));
+		verify(spied).broadcast(eq(LowStockAlertEvent.Type.RAISED), argThat(a -> a.getProductId().equals(missed)));
+		verify(spied, times(2)).broadcast(any(), any());
+	}
+
+	@Test
+	void clearing_leavesPreviouslyReturnedAlertUntouched() {
+		UUID productId = UUID.randomUUID();
+		when(inventoryRepository.findAllLowStockAlerts()).thenReturn(List.of(alert(productId)));
+		tracker.reload();
+		LowStockProductResponse before = tracker.getActiveAlerts().iterator().next();
+
+		tracker.onStockChanged(new StockChangedEvent(productId, "S1", 5, 1));
+
+		assertTrue(tracker.getActiveAlerts().isEmpty());
+		assertEquals(0, before.getQuantity());
+	}
+
+	private static LowStockProductResponse alert(UUID productId) {
+		return LowStockProductResponse.builder().productId(productId).storeId("S1").quantity(0).minStock(1).build();
+	}
+}
@@ -0,0 +1,81 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.exception.BadRequestException;
+import com.deacero.inventario.models.StatsGranularity;
+import com.deacero.inventario.repository.MovementRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MovementStatsServiceImplTest {
+
+	private static final OffsetDateTime DAY_1 = OffsetDateTime.parse("2025-03-01T00:00:00Z");
+
+	private MovementRollupRepository rollupRepository;
+	private MovementStatsServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		rollupRepository = Mockito.mock(MovementRollupRepository.class);
+		service = new MovementStatsServiceImpl(rollupRepository, Mockito.mock(PlatformTransactionManager.class),
+				new SimpleMeterRegistry(), true, Duration.ofMinutes(5), Duration.ofDays(1));
+	}
+
+	@Test
+	void rollUp_firstRun_backfillsFromEarliestMovementOneWindowAtATime() {
+		OffsetDateTime now = DAY_1.plusDays(1).plusHours(6);
+		when(rollupRepository.lockHighWaterMark()).thenReturn(null, DAY_1.plusDays(1));
+		when(rollupRepository.findEarliestMovement()).thenReturn(DAY_1);
+
+		service.rollUp(now);
+
+		InOrder inOrder = inOrder(rollupRepository);
+		inOrder.verify(rollupRepository).rollUp(DAY_1, DAY_1.plusDays(1));
+		inOrder.verify(rollupRepository).setHighWaterMark(DAY_1.plusDays(1));
+		inOrder.verify(rollupRepository).rollUp(DAY_1.plusDays(1), now.minusMinutes(5));
+		inOrder.verify(rollupRepository).setHighWaterMark(now.minusMinutes(5));
+		verify(rollupRepository, times(2)).rollUp(any(), any());
+	}
+
+	@Test
+	void rollUp_caughtUp_addsNothing() {
+		OffsetDateTime now = DAY_1.plusHours(1);
+		when(rollupRepository.lockHighWaterMark()).thenReturn(now.minusMinutes(5));
+
+		service.rollUp(now);
+
+		verify(rollupRepository, never()).rollUp(any(), any());
+		verify(rollupRepository, never()).setHighWaterMark(any());
+	}
+
+	@Test
+	void rollUp_failedWindow_keepsHighWaterMark() {
+		when(rollupRepository.lockHighWaterMark()).thenReturn(DAY_1);
+		when(rollupRepository.rollUp(any(), any())).thenThrow(new QueryTimeoutException("canceled"));
+
+		service.rollUp(DAY_1.plusHours(1));
+
+		verify(rollupRepository, never()).setHighWaterMark(any());
+	}
+
+	@Test
+	void stats_fromNotBeforeTo_badRequest() {
+		LocalDate day = LocalDate.parse("2025-03-01");
+		assertThrows(BadRequestException.class,
+				() -> service.getStats(null, null, day, day, StatsGranularity.DAY, PageRequest.of(0, 10)));
+		verifyNoInteractions(rollupRepository);
+	}
+}
@@ -0,0 +1,124 @@
+package com.deacero.inventario.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PgNotifyInvalidationTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private LowStockAlertTracker alertTracker;
+	private PgNotifyInvalidationPublisher publisher;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+		alertTracker = Mockito.mock(LowStockAlertTracker.class);
+		publisher = new PgNotifyInvalidationPublisher(jdbcTemplate, alertTracker, "inventory_invalidation", true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void publish_outsideTransaction_sendsImmediately() {
+		publisher.onProductChanged(new ProductChangedEvent(UUID.randomUUID()));
+
+		verify(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	void publish_insideTransaction_sendsOnceBeforeCommit() {
+		TransactionSynchronizationManager.initSynchronization();
+		publisher.onStockChanged(new StockChangedEvent(UUID.randomUUID(), "S1", 1, 5));
+		publisher.onStockChanged(new StockChangedEvent(UUID.randomUUID(), "S2", 2, 5));
+		verifyNoInteractions(jdbcTemplate);
+
+		assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+		for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+			sync.beforeCommit(false);
+			sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+
+		verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+		assertFalse(TransactionSynchronizationManager.hasResource(publisher));
+	}
+
+	@Test
+	void stockChange_isSentOnlyWhenItCanChangeAnAlert() {
+		UUID productId = UUID.randomUUID();
+		when(alertTracker.hasAlert("S2", productId)).thenReturn(true);
+
+		publisher.onStockChanged(new StockChangedEvent(productId, "S1", 50, 5));
+		verifyNoInteractions(jdbcTemplate);
+
+		publisher.onStockChanged(new StockChangedEvent(productId, "S1", 5, 5));
+		publisher.onStockChanged(new StockChangedEvent(productId, "S2", 50, 5));
+		verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	void stockChange_isNotSentWhenStockNotificationsAreOff() {
+		publisher = new PgNotifyInvalidationPublisher(jdbcTemplate, alertTracker, "inventory_invalidation", false);
+
+		publisher.onStockChanged(new StockChangedEvent(UUID.randomUUID(), "S1", 0, 5));
+		verifyNoInteractions(jdbcTemplate);
+
+		publisher.onProductChanged(new ProductChangedEvent(UUID.randomUUID()));
+		verify(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	void publish_emptyImport_sendsNothing() {
+		publisher.onStockImported(new StockImportedEvent(0));
+
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	void listener_appliesChangesFromOtherNodes_only() {
+		CacheManager cacheManager = new CaffeineCacheManager(ProductServiceImpl.PRODUCTS_CACHE);
+		LowStockAlertTracker tracker = Mockito.mock(LowStockAlertTracker.class);
+		PgNotifyInvalidationListener listener = new PgNotifyInvalidationListener(new DataSourceProperties(),
+				cacheManager, tracker, "inventory_invalidation", 1000);
+		UUID productId = UUID.randomUUID();
+		cacheManager.getCache(ProductServiceImpl.PRODUCTS_CACHE).put(productId, "cached");
+
+		listener.handle(CacheInvalidation.product(PgNotifyInvalidationPublisher.NODE_ID, productId).encode());
+		assertNotNull(cacheManager.getCache(ProductServiceImpl.PRODUCTS_CACHE).get(productId));
+
+		listener.handle(CacheInvalidation.product("other-node", productId).encode());
+		assertNull(cacheManager.getCache(ProductServiceImpl.PRODUCTS_CACHE).get(productId));
+
+		listener.handle(CacheInvalidation.stock("other-node", new StockChangedEvent(productId, "S1", 1, 5)).encode());
+		ArgumentCaptor<StockChangedEvent> event = ArgumentCaptor.forClass(StockChangedEvent.class);
+		verify(tracker).onStockChanged(event.capture());
+		assertEquals("S1", event.getValue().getStoreId());
+		assertEquals(1, event.getValue().getQuantity());
+
+		listener.handle(CacheInvalidation.reload("other-node").encode());
+		listener.handle("garbage");
+		listener.handle("other-node|S|" + productId);
+		verify(tracker, times(1)).reload();
+	}
+}
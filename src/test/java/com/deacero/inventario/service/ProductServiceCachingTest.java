@@ -0,0 +1,142 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Product;
+import com.deacero.inventario.mapper.ProductMapper;
+import com.deacero.inventario.models.ProductRequest;
+import com.deacero.inventario.models.ProductResponse;
+import com.deacero.inventario.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(ProductServiceCachingTest.Config.class)
+class ProductServiceCachingTest {
+
+	@Configuration
+	@EnableCaching
+	static class Config {
+		@Bean
+		ProductRepository productRepository() {
+			return Mockito.mock(ProductRepository.class);
+		}
+
+		@Bean
+		ProductMapper productMapper() {
+			return Mockito.mock(ProductMapper.class);
+		}
+
+		@Bean
+		CacheManager cacheManager() {
+			return new CaffeineCacheManager(ProductServiceImpl.PRODUCTS_CACHE);
+		}
+
+		@Bean
+		ProductService productService(ProductRepository productRepository, ProductMapper productMapper,
+				ApplicationEventPublisher eventPublisher) {
+			return new ProductServiceImpl(productRepository, productMapper, eventPublisher);
+		}
+	}
+
+	@Autowired
+	private ProductService productService;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private ProductMapper productMapper;
+	@Autowired
+	private CacheManager cacheManager;
+
+	@BeforeEach
+	void setUp() {
+		reset(productRepository, productMapper);
+		cacheManager.getCache(ProductServiceImpl.PRODUCTS_CACHE).clear();
+		when(productMapper.toResponse(any())).thenAnswer(inv -> {
+			Product p = inv.getArgument(0);
+			return ProductResponse.builder().id(p.getId()).name(p.getName()).build();
+		});
+	}
+
+	@Test
+	void getProduct_secondLookupIsServedFromCache() {
+		UUID id = UUID.randomUUID();
+		when(productRepository.findById(id)).thenReturn(Optional.of(Product.builder().id(id).name("A").build()));
+
+		assertEquals("A", productService.getProduct(id).orElseThrow().getName());
+		assertEquals("A", productService.getProduct(id).orElseThrow().getName());
+
+		verify(productRepository, times(1)).findById(id);
+	}
+
+	@Test
+	void getProduct_missIsNotCached() {
+		UUID id = UUID.randomUUID();
+		when(productRepository.findById(id)).thenReturn(Optional.empty());
+
+		assertTrue(productService.getProduct(id).isEmpty());
+		assertTrue(productService.getProduct(id).isEmpty());
+
+		verify(productRepository, times(2)).findById(id);
+	}
+
+	@Test
+	void updateProduct_refreshesCachedEntry() {
+		UUID id = UUID.randomUUID();
+		Product product = Product.builder().id(id).name("A").build();
+		when(productRepository.findById(id)).thenReturn(Optional.of(product));
+		when(productRepository.save(product)).thenAnswer(inv -> {
+			product.setName("B");
+			return product;
+		});
+		productService.getProduct(id);
+
+		productService.updateProduct(id, ProductRequest.builder().name("B").build());
+
+		assertEquals("B", productService.getProduct(id).orElseThrow().getName());
+		verify(productRepository, times(2)).findById(id);
+	}
+
+	@Test
+	void deleteProduct_evictsEntry() {
+		UUID id = UUID.randomUUID();
+		when(productRepository.findById(id)).thenReturn(Optional.of(Product.builder().id(id).name("A").build()));
+		productService.getProduct(id);
+
+		productService.deleteProduct(id);
+		when(productRepository.findById(id)).thenReturn(Optional.empty());
+
+		assertTrue(productService.getProduct(id).isEmpty());
+	}
+
+	@Test
+	void createProduct_populatesCache() {
+		UUID id = UUID.randomUUID();
+		when(productMapper.toEntity(any())).thenReturn(Product.builder().name("New").build());
+		when(productRepository.save(any())).thenAnswer(inv -> {
+			Product p = inv.getArgument(0);
+			p.setId(id);
+			return p;
+		});
+
+		productService.createProduct(ProductRequest.builder()
+				.name("New").category("c").sku("SKU-NEW").price(new BigDecimal("1.00")).build());
+
+		assertEquals("New", productService.getProduct(id).orElseThrow().getName());
+		verify(productRepository, never()).findById(id);
+	}
+}
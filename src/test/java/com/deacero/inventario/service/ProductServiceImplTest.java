@@ -6,12 +6,13 @@ import com.deacero.inventario.exception.ConflictException;
 import com.deacero.inventario.mapper.ProductMapper;
 import com.deacero.inventario.models.ProductRequest;
 import com.deacero.inventario.models.ProductResponse;
-import com.deacero.inventario.repository.InventoryRepository;
 import com.deacero.inventario.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 
@@ -31,17 +32,17 @@ import static org.mockito.Mockito.*;
 class ProductServiceImplTest {
 
 	private ProductRepository productRepository;
-	private InventoryRepository inventoryRepository;
 	private ProductMapper productMapper;
+	private ApplicationEventPublisher eventPublisher;
 
 	private ProductServiceImpl service;
 
 	@BeforeEach
 	void setUp() {
 		productRepository = Mockito.mock(ProductRepository.class);
-		inventoryRepository = Mockito.mock(InventoryRepository.class);
 		productMapper = Mappers.getMapper(ProductMapper.class);
-		service = new ProductServiceImpl(productRepository, inventoryRepository, productMapper);
+		eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+		service = new ProductServiceImpl(productRepository, productMapper, eventPublisher);
 	}
 
 	@Test
@@ -110,20 +111,19 @@ class ProductServiceImplTest {
 	}
 
 	@Test
-	void listProducts_withMinStock_filtersByInventory() {
+	void listProducts_withMinStock_filtersInsideThePagedQuery() {
 		Pageable pageable = PageRequest.of(0, 10);
-		UUID id1 = UUID.randomUUID();
 		UUID id2 = UUID.randomUUID();
-		Product p1 = Product.builder().id(id1).name("Product Name 1").category("Product Category 1").price(new BigDecimal("1.00")).sku("Sku1").build();
 		Product p2 = Product.builder().id(id2).name("Product Name 2").category("Product Category 2").price(new BigDecimal("2.00")).sku("Sku2").build();
 		when(productRepository.findAll(any(Specification.class), eq(pageable)))
-				.thenReturn(new PageImpl<>(List.of(p1, p2), pageable, 2));
-		when(inventoryRepository.findProductIdsWithTotalQuantityAtLeast(5)).thenReturn(List.of(id2));
+				.thenReturn(new PageImpl<>(List.of(p2), pageable, 1));
 
 		Page<ProductResponse> page = service.listProducts(null, null, null, 5, pageable);
 
 		assertEquals(1, page.getContent().size());
+		assertEquals(1, page.getTotalElements());
 		assertEquals("Product Name 2", page.getContent().get(0).getName());
+		verify(productRepository, times(1)).findAll(any(Specification.class), eq(pageable));
 	}
 
 	@Test
@@ -185,6 +185,9 @@ class ProductServiceImplTest {
 		assertTrue(resp.isPresent());
 		assertEquals("Product Name", resp.get().getName());
 		assertEquals("Sku2", resp.get().getSku());
+		ArgumentCaptor<ProductChangedEvent> event = ArgumentCaptor.forClass(ProductChangedEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertEquals(id, event.getValue().getProductId());
 	}
 
 	@Test
@@ -199,6 +202,16 @@ class ProductServiceImplTest {
 		ProductRequest req = ProductRequest.builder().sku("Sku2").build();
 		assertThrows(ConflictException.class, () -> service.updateProduct(id, req));
 	}
-}
 
+	@Test
+	void deleteProduct_publishesProductChanged() {
+		UUID id = UUID.randomUUID();
 
+		service.deleteProduct(id);
+
+		verify(productRepository).deleteById(id);
+		ArgumentCaptor<ProductChangedEvent> event = ArgumentCaptor.forClass(ProductChangedEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertEquals(id, event.getValue().getProductId());
+	}
+}
@@ -0,0 +1,84 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.entities.Product;
+import com.deacero.inventario.entities.ProductStock;
+import com.deacero.inventario.mapper.ProductMapper;
+import com.deacero.inventario.models.ProductResponse;
+import com.deacero.inventario.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the stock filter against an embedded database, seeded the way movements leave product_stock
+@DataJpaTest(properties = "spring.autoconfigure.exclude=")
+class ProductStockFilterTest {
+
+	@TestConfiguration
+	static class TestConfig {
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private ProductServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		service = new ProductServiceImpl(productRepository, Mappers.getMapper(ProductMapper.class),
+				Mockito.mock(ApplicationEventPublisher.class));
+		seed("A", "Tools", 10);
+		seed("B", "Tools", 5);
+		seed("C", "Tools", 4);
+		seed("D", "Paint", 50);
+		seed("E", "Tools", null);
+		entityManager.flush();
+	}
+
+	@Test
+	void listProducts_minStock_returnsOnlyProductsWithEnoughTotalStock() {
+		Page<ProductResponse> page = service.listProducts(null, null, null, 5, PageRequest.of(0, 10, Sort.by("sku")));
+
+		assertEquals(List.of("A", "B", "D"), page.map(ProductResponse::getSku).getContent());
+		assertEquals(3, page.getTotalElements());
+	}
+
+	@Test
+	void listProducts_minStockWithCategory_countsOnlyMatchingProducts() {
+		Page<ProductResponse> page = service.listProducts("Tools", null, null, 5, PageRequest.of(0, 1, Sort.by("sku")));
+
+		assertEquals(List.of("A"), page.map(ProductResponse::getSku).getContent());
+		assertEquals(2, page.getTotalElements());
+	}
+
+	private void seed(String sku, String category, Integer totalQuantity) {
+		Product product = entityManager.persist(Product.builder()
+				.name("Product " + sku).category(category).price(new BigDecimal("1.00")).sku(sku).build());
+		if (totalQuantity != null) {
+			entityManager.persist(ProductStock.builder().productId(product.getId()).totalQuantity(totalQuantity).build());
+		}
+	}
+}
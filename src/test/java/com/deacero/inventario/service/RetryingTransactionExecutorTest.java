@@ -0,0 +1,76 @@
+package com.deacero.inventario.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RetryingTransactionExecutorTest {
+
+	private PlatformTransactionManager transactionManager;
+	private RetryingTransactionExecutor executor;
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		transactionManager = Mockito.mock(PlatformTransactionManager.class);
+		meterRegistry = new SimpleMeterRegistry();
+		executor = new RetryingTransactionExecutor(transactionManager, 3, 0, 0, meterRegistry);
+	}
+
+	@Test
+	void execute_retriesDeadlockAndSucceeds() {
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = executor.execute("transfer", () -> {
+			if (calls.incrementAndGet() == 1) {
+				throw new CannotAcquireLockException("deadlock detected");
+			}
+			return "ok";
+		});
+
+		assertEquals("ok", result);
+		assertEquals(2, calls.get());
+		verify(transactionManager).rollback(any());
+		assertEquals(1, executor.getStats().get("transfer").getRetries());
+		assertEquals(0, executor.getStats().get("transfer").getExhausted());
+	}
+
+	@Test
+	void execute_givesUpAfterMaxAttempts() {
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThrows(CannotAcquireLockException.class, () -> executor.execute("transfer", () -> {
+			calls.incrementAndGet();
+			throw new CannotAcquireLockException("deadlock detected");
+		}));
+
+		assertEquals(3, calls.get());
+		assertEquals(2, executor.getStats().get("transfer").getRetries());
+		assertEquals(1, executor.getStats().get("transfer").getExhausted());
+		assertEquals(3.0, meterRegistry.get("inventory.retry.attempts").tag("operation", "transfer").functionCounter().count());
+		assertEquals(2.0, meterRegistry.get("inventory.retry.retries").tag("operation", "transfer").functionCounter().count());
+		assertEquals(1.0, meterRegistry.get("inventory.retry.exhausted").tag("operation", "transfer").functionCounter().count());
+	}
+
+	@Test
+	void execute_doesNotRetryBusinessErrors() {
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThrows(IllegalArgumentException.class, () -> executor.execute("transfer", () -> {
+			calls.incrementAndGet();
+			throw new IllegalArgumentException("bad request");
+		}));
+
+		assertEquals(1, calls.get());
+		assertEquals(0, executor.getStats().get("transfer").getRetries());
+	}
+}
@@ -0,0 +1,76 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.repository.StagedStockRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockImportParserTest {
+
+	private static final UUID PRODUCT = UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6");
+
+	@Test
+	void csv_skipsHeaderAndRejectsInvalidLines() {
+		StockImportParser parser = parser(StockImportFormat.CSV, """
+				productId,storeId,quantity,minStock
+				3fa85f64-5717-4562-b3fc-2c963f66afa6,S1,10,2
+				not-a-uuid,S1,10,2
+				3fa85f64-5717-4562-b3fc-2c963f66afa6,"S,2",5,
+
+				3fa85f64-5717-4562-b3fc-2c963f66afa6,S3,-1
+				""", 10);
+
+		List<StagedStockRow> rows = drain(parser);
+
+		assertEquals(2, rows.size());
+		assertEquals(new StagedStockRow(2, PRODUCT, "S1", 10, 2), rows.get(0));
+		assertEquals(new StagedStockRow(4, PRODUCT, "S,2", 5, null), rows.get(1));
+		assertEquals(4, parser.getReceived());
+		assertEquals(2, parser.getRejected());
+		assertEquals(3, parser.getRejections().get(0).getLine());
+		assertEquals("quantity must be zero or greater", parser.getRejections().get(1).getReason());
+	}
+
+	@Test
+	void ndjson_parsesStockLoadRequests() {
+		StockImportParser parser = parser(StockImportFormat.NDJSON, """
+				{"productId":"3fa85f64-5717-4562-b3fc-2c963f66afa6","storeId":"S1","quantity":7}
+				{"productId":"3fa85f64-5717-4562-b3fc-2c963f66afa6","quantity":7}
+				{broken
+				""", 10);
+
+		List<StagedStockRow> rows = drain(parser);
+
+		assertEquals(List.of(new StagedStockRow(1, PRODUCT, "S1", 7, null)), rows);
+		assertEquals(2, parser.getRejected());
+		assertEquals("storeId is required", parser.getRejections().get(0).getReason());
+	}
+
+	@Test
+	void rejections_areCappedButCounted() {
+		StockImportParser parser = parser(StockImportFormat.CSV, "x\ny\nz\n", 1);
+
+		assertTrue(drain(parser).isEmpty());
+		assertEquals(3, parser.getRejected());
+		assertEquals(1, parser.getRejections().size());
+	}
+
+	private static StockImportParser parser(StockImportFormat format, String content, int maxRejections) {
+		return new StockImportParser(new BufferedReader(new StringReader(content)), format, new ObjectMapper(),
+				maxRejections, 0);
+	}
+
+	private static List<StagedStockRow> drain(StockImportParser parser) {
+		List<StagedStockRow> rows = new ArrayList<>();
+		parser.forEachRemaining(rows::add);
+		return rows;
+	}
+}
@@ -0,0 +1,77 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.models.StockImportFormat;
+import com.deacero.inventario.models.StockImportRejection;
+import com.deacero.inventario.models.StockImportResult;
+import com.deacero.inventario.repository.StagedStockRow;
+import com.deacero.inventario.repository.StockImportRepository;
+import com.deacero.inventario.repository.StockMergeResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockImportServiceImplTest {
+
+	private StockImportRepository stockImportRepository;
+	private ApplicationEventPublisher eventPublisher;
+	private SimpleMeterRegistry meterRegistry;
+	private StockImportServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		stockImportRepository = Mockito.mock(StockImportRepository.class);
+		eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+		meterRegistry = new SimpleMeterRegistry();
+		service = new StockImportServiceImpl(stockImportRepository, new ObjectMapper(), eventPublisher,
+				new InventoryMetrics(meterRegistry), 10, 0);
+	}
+
+	@Test
+	void importStock_streamsRowsIntoStagingAndMerges() {
+		when(stockImportRepository.copyRows(any())).thenAnswer(inv -> {
+			Iterator<StagedStockRow> rows = inv.getArgument(0);
+			long count = 0;
+			while (rows.hasNext()) {
+				rows.next();
+				count++;
+			}
+			return count;
+		});
+		when(stockImportRepository.mergeStaged()).thenReturn(new StockMergeResult(1, 1, 10));
+		when(stockImportRepository.countRejections()).thenReturn(1L);
+		when(stockImportRepository.findRejections(9)).thenReturn(List.of(
+				StockImportRejection.builder().line(3).reason("Product not found").build()));
+		String csv = """
+				3fa85f64-5717-4562-b3fc-2c963f66afa6,S1,10,2
+				bad line
+				3fa85f64-5717-4562-b3fc-2c963f66afa7,S1,10
+				""";
+
+		StockImportResult result = service.importStock(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), StockImportFormat.CSV);
+
+		assertEquals(3, result.getReceived());
+		assertEquals(1, result.getLoaded());
+		assertEquals(2, result.getRejected());
+		assertEquals(List.of(2L, 3L), result.getRejections().stream().map(StockImportRejection::getLine).toList());
+		verify(stockImportRepository).createStaging();
+		ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertEquals(1, ((StockImportedEvent) event.getValue()).getLoaded());
+		assertEquals(1, meterRegistry.get("inventory.movements").tag("type", "IN").counter().count());
+		assertEquals(10, meterRegistry.get("inventory.movement.units").tag("type", "IN").counter().count());
+	}
+}
@@ -0,0 +1,52 @@
+package com.deacero.inventario.service;
+
+import com.deacero.inventario.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TransactionPartitionManagerTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2025, 5, 20);
+
+	private TransactionRepository transactionRepository;
+
+	@BeforeEach
+	void setUp() {
+		transactionRepository = Mockito.mock(TransactionRepository.class);
+	}
+
+	@Test
+	void maintain_createsMonthsAheadAndKeepsEverythingWithoutRetention() {
+		new TransactionPartitionManager(transactionRepository, 3, 0).maintain(TODAY);
+
+		verify(transactionRepository).createPartitions(LocalDate.of(2025, 5, 1), LocalDate.of(2025, 8, 1));
+		verify(transactionRepository, never()).detachPartitionsBefore(any());
+	}
+
+	@Test
+	void maintain_detachesPartitionsOlderThanRetention() {
+		when(transactionRepository.detachPartitionsBefore(LocalDate.of(2024, 5, 1)))
+				.thenReturn(List.of("transaction_y2024m04"));
+
+		new TransactionPartitionManager(transactionRepository, 3, 12).maintain(TODAY);
+
+		verify(transactionRepository).detachPartitionsBefore(LocalDate.of(2024, 5, 1));
+	}
+
+	@Test
+	void maintain_databaseErrorIsLoggedNotThrown() {
+		when(transactionRepository.createPartitions(any(), any()))
+				.thenThrow(new DataAccessResourceFailureException("down"));
+
+		assertDoesNotThrow(() -> new TransactionPartitionManager(transactionRepository, 3, 12).maintain(TODAY));
+	}
+}
@@ -0,0 +1,19 @@
+#!/usr/bin/env sh
+# Levanta Postgres sembrado + API, ejecuta mixed-workload.js con k6 y destruye el entorno.
+# Sale con el código de k6: distinto de 0 si algún umbral de latencia/errores/throughput falla.
+#
+#   src/test/perf/load-test.sh                 # dataset completo (10M transacciones)
+#   SEED_TRANSACTIONS=1000000 DURATION=1m src/test/perf/load-test.sh
+#   KEEP=1 src/test/perf/load-test.sh          # no destruir el entorno al terminar
+cd "$(dirname "$0")" || exit 1
+mkdir -p results
+
+docker compose up -d --build --wait postgres inventario-api || { docker compose logs; docker compose down -v; exit 1; }
+docker compose run --rm k6
+status=$?
+
+if [ -z "$KEEP" ]; then
+  docker compose down -v
+fi
+echo "Resultados en $(pwd)/results (endpoints.json, summary.json)"
+exit $status
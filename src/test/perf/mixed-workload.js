@@ -0,0 +1,211 @@
+import http from "k6/http";
+import crypto from "k6/crypto";
+import { check } from "k6";
+
+// Carga mixta contra la API local sembrada con seed.sql (ver load-test.sh y README).
+//
+//   k6 run -e BASE_URL=http://localhost:8080 src/test/perf/mixed-workload.js
+//
+// Variables: BASE_URL, DURATION (2m), RATE_SCALE (1.0, multiplica todas las tasas), RESULTS_DIR (results),
+// y las del dataset (PRODUCTS, STORES, PRODUCTS_PER_STORE, HOT_SKUS) si se sembró con otros valores.
+// Cada endpoint tiene umbrales de latencia p(99), de errores y de throughput (al menos el 95 % de la tasa
+// objetivo); si alguno no se cumple k6 termina con código distinto de 0.
+
+const BASE_URL = __ENV.BASE_URL || "http://localhost:8080";
+const API = `${BASE_URL}/deacero/api/v1`;
+const DURATION = __ENV.DURATION || "2m";
+const RATE_SCALE = parseFloat(__ENV.RATE_SCALE || "1");
+const RESULTS_DIR = __ENV.RESULTS_DIR || "results";
+const PRODUCTS = parseInt(__ENV.PRODUCTS || "100000");
+const STORES = parseInt(__ENV.STORES || "500");
+const PRODUCTS_PER_STORE = parseInt(__ENV.PRODUCTS_PER_STORE || "2000");
+const HOT_SKUS = parseInt(__ENV.HOT_SKUS || "20");
+const JSON_HEADERS = { "Content-Type": "application/json" };
+
+// endpoint -> [función, peticiones/s, p(99) máximo en ms]
+const ENDPOINTS = {
+  list_products: ["listProducts", 100, 300],
+  get_product: ["getProduct", 300, 100],
+  store_inventory: ["storeInventory", 20, 500],
+  out: ["registerOut", 100, 300],
+  transfer_hot: ["transferHot", 50, 500],
+  history_page: ["historyPages", 30, 300],
+  alerts: ["alerts", 20, 300],
+};
+
+function scenarios() {
+  const result = {};
+  for (const [endpoint, [exec, rate]] of Object.entries(ENDPOINTS)) {
+    result[endpoint] = {
+      executor: "constant-arrival-rate",
+      exec,
+      rate: Math.max(1, Math.round(rate * RATE_SCALE)),
+      timeUnit: "1s",
+      duration: DURATION,
+      preAllocatedVUs: 20,
+      maxVUs: 500,
+      tags: { endpoint },
+    };
+  }
+  return result;
+}
+
+function thresholds() {
+  const result = {};
+  for (const [endpoint, [, rate, p99]] of Object.entries(ENDPOINTS)) {
+    result[`http_req_duration{endpoint:${endpoint}}`] = [`p(99)<${p99}`];
+    result[`http_req_failed{endpoint:${endpoint}}`] = ["rate<0.01"];
+    // history_page hace varias peticiones por iteración, así que su tasa mínima es la de iteraciones
+    result[`http_reqs{endpoint:${endpoint}}`] = [`rate>=${0.95 * Math.max(1, Math.round(rate * RATE_SCALE))}`];
+  }
+  return result;
+}
+
+export const options = {
+  scenarios: scenarios(),
+  thresholds: thresholds(),
+  summaryTrendStats: ["avg", "p(50)", "p(99)", "p(99.9)", "max"],
+  discardResponseBodies: false,
+};
+
+// Una salida sin stock (400) es una respuesta válida del servicio, no un error del sistema
+http.setResponseCallback(http.expectedStatuses({ min: 200, max: 299 }, 400));
+
+// Mismos identificadores que seed.sql: md5('product-' || i)::uuid y tiendas LT-001 ... LT-500
+function productId(i) {
+  const h = crypto.md5(`product-${i}`, "hex");
+  return `${h.slice(0, 8)}-${h.slice(8, 12)}-${h.slice(12, 16)}-${h.slice(16, 20)}-${h.slice(20)}`;
+}
+
+function storeId(s) {
+  return `LT-${String(s).padStart(3, "0")}`;
+}
+
+function randomInt(min, max) {
+  return min + Math.floor(Math.random() * (max - min + 1));
+}
+
+// Sesgo hacia los productos bajos, como un catálogo con artículos más consultados que otros
+function skewedProduct() {
+  return 1 + Math.floor(Math.pow(Math.random(), 3) * PRODUCTS);
+}
+
+function stockedProduct(s) {
+  const k = randomInt(1, Math.min(PRODUCTS_PER_STORE, PRODUCTS));
+  return (((s - 1) * 200 + k) % PRODUCTS) + 1;
+}
+
+export function listProducts() {
+  const category = `categoria-${randomInt(0, 49)}`;
+  const res = http.get(`${API}/products?category=${category}&page=${randomInt(0, 9)}&size=20`,
+    { tags: { name: "GET /products" } });
+  check(res, { "list 200": (r) => r.status === 200 });
+}
+
+export function getProduct() {
+  const res = http.get(`${API}/products/${productId(skewedProduct())}`, { tags: { name: "GET /products/{id}" } });
+  check(res, { "product 200": (r) => r.status === 200 });
+}
+
+export function storeInventory() {
+  const res = http.get(`${API}/stores/${storeId(randomInt(1, STORES))}/inventory`,
+    { tags: { name: "GET /stores/{id}/inventory" } });
+  check(res, { "inventory 200": (r) => r.status === 200 });
+}
+
+export function registerOut() {
+  const s = randomInt(1, STORES);
+  const body = JSON.stringify({ productId: productId(stockedProduct(s)), storeId: storeId(s), quantity: 1 });
+  const res = http.post(`${API}/inventory/out`, body, { headers: JSON_HEADERS, tags: { name: "POST /inventory/out" } });
+  check(res, { "out 201/400": (r) => r.status === 201 || r.status === 400 });
+}
+
+// Pocos SKU con existencias en todas las tiendas: las transferencias compiten por las mismas filas
+export function transferHot() {
+  const source = randomInt(1, STORES);
+  let target = randomInt(1, STORES - 1);
+  if (target >= source) {
+    target++;
+  }
+  const body = JSON.stringify({
+    productId: productId(randomInt(1, HOT_SKUS)),
+    sourceStoreId: storeId(source),
+    targetStoreId: storeId(target),
+    quantity: 1,
+  });
+  const res = http.post(`${API}/inventory/transfer`, body,
+    { headers: JSON_HEADERS, tags: { name: "POST /inventory/transfer" } });
+  check(res, { "transfer 2xx": (r) => r.status >= 200 && r.status < 300 });
+}
+
+// Hasta 3 páginas del historial por cursor, de un producto o de una tienda
+export function historyPages() {
+  const filter = Math.random() < 0.5
+    ? `productId=${productId(skewedProduct())}`
+    : `storeId=${storeId(randomInt(1, STORES))}`;
+  let cursor = "";
+  for (let page = 0; page < 3; page++) {
+    const res = http.get(`${API}/inventory/history?${filter}&size=50&cursor=${encodeURIComponent(cursor)}`,
+      { tags: { name: "GET /inventory/history?cursor" } });
+    if (!check(res, { "history 200": (r) => r.status === 200 })) {
+      return;
+    }
+    cursor = res.json("data.nextCursor");
+    if (!cursor) {
+      return;
+    }
+  }
+}
+
+export function alerts() {
+  const res = http.get(`${API}/inventory/alerts?storeId=${storeId(randomInt(1, STORES))}&size=20`,
+    { tags: { name: "GET /inventory/alerts" } });
+  check(res, { "alerts 200": (r) => r.status === 200 });
+}
+
+function value(metric, stat) {
+  return metric && metric.values[stat] !== undefined ? metric.values[stat] : NaN;
+}
+
+function failed(metric) {
+  return metric && metric.thresholds && Object.values(metric.thresholds).some((t) => !t.ok);
+}
+
+export function handleSummary(data) {
+  const rows = [];
+  for (const endpoint of Object.keys(ENDPOINTS)) {
+    const duration = data.metrics[`http_req_duration{endpoint:${endpoint}}`];
+    const reqs = data.metrics[`http_reqs{endpoint:${endpoint}}`];
+    const errors = data.metrics[`http_req_failed{endpoint:${endpoint}}`];
+    rows.push({
+      endpoint,
+      rps: value(reqs, "rate"),
+      p50: value(duration, "p(50)"),
+      p99: value(duration, "p(99)"),
+      p999: value(duration, "p(99.9)"),
+      errorRate: value(errors, "rate"),
+      passed: !(failed(duration) || failed(reqs) || failed(errors)),
+    });
+  }
+  const fmt = (n, digits) => (Number.isNaN(n) ? "-" : n.toFixed(digits));
+  const lines = [
+    "",
+    "endpoint           req/s     p50 ms    p99 ms   p99.9 ms   errores  umbrales",
+    ...rows.map((r) => [
+      r.endpoint.padEnd(16),
+      fmt(r.rps, 1).padStart(7),
+      fmt(r.p50, 1).padStart(10),
+      fmt(r.p99, 1).padStart(9),
+      fmt(r.p999, 1).padStart(10),
+      fmt(r.errorRate * 100, 2).padStart(8) + "%",
+      r.passed ? "  ok" : "  FALLA",
+    ].join(" ")),
+    `iteraciones descartadas: ${value(data.metrics.dropped_iterations, "count") || 0}`,
+    "",
+  ];
+  return {
+    stdout: lines.join("\n"),
+    [`${RESULTS_DIR}/endpoints.json`]: JSON.stringify(rows, null, 2),
+    [`${RESULTS_DIR}/summary.json`]: JSON.stringify(data, null, 2),
+  };
+}
@@ -0,0 +1,54 @@
+import http from "k6/http";
+import { check } from "k6";
+
+// Comparación hilos de plataforma vs hilos virtuales: ejecutar una vez con
+// SPRING_THREADS_VIRTUAL_ENABLED=false y otra con true (imagen Java 21) y comparar
+// http_reqs/s, http_req_duration p(95) y dropped_iterations.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e PRODUCT_ID=<uuid> src/test/perf/movements-throughput.js
+export const options = {
+  scenarios: {
+    movements: {
+      executor: "ramping-arrival-rate",
+      startRate: 100,
+      timeUnit: "1s",
+      preAllocatedVUs: 200,
+      maxVUs: 5000,          // suficientes VUs para mantener miles de peticiones en vuelo
+      stages: [
+        { target: 500, duration: "30s" },
+        { target: 2000, duration: "60s" },
+        { target: 2000, duration: "60s" },
+      ],
+    },
+  },
+  thresholds: {
+    http_req_failed: ["rate<0.01"],
+  },
+};
+
+const BASE_URL = __ENV.BASE_URL || "http://localhost:8080";
+const PRODUCT_ID = __ENV.PRODUCT_ID;
+const STORES = parseInt(__ENV.STORES || "50");
+const HEADERS = { headers: { "Content-Type": "application/json" } };
+
+// una salida sin stock (400) es una respuesta válida del servicio
+http.setResponseCallback(http.expectedStatuses({ min: 200, max: 299 }, 400));
+
+export default function () {
+  const storeId = `K6-${Math.floor(Math.random() * STORES)}`;
+  const roll = Math.random();
+  let res;
+  if (roll < 0.5) {
+    res = http.post(`${BASE_URL}/deacero/api/v1/inventory/in`,
+      JSON.stringify({ productId: PRODUCT_ID, storeId, quantity: 1 }), HEADERS);
+  } else if (roll < 0.8) {
+    res = http.post(`${BASE_URL}/deacero/api/v1/inventory/out`,
+      JSON.stringify({ productId: PRODUCT_ID, storeId, quantity: 1 }), HEADERS);
+  } else {
+    res = http.get(`${BASE_URL}/deacero/api/v1/stores/${storeId}/inventory`);
+  }
+
+  check(res, {
+    "status 2xx/400": (r) => (r.status >= 200 && r.status < 300) || r.status === 400,
+  });
+}
@@ -0,0 +1,62 @@
+-- Datos de carga para las pruebas de rendimiento (se ejecuta después de init.sql).
+-- Tamaño por defecto: 100 000 productos, 500 tiendas, 10 000 000 transacciones. Se puede cambiar con
+-- PGOPTIONS, p. ej. PGOPTIONS="-c seed.products=1000 -c seed.transactions=100000" psql -f seed.sql
+--
+-- Los identificadores son deterministas para que los scripts de k6 puedan calcularlos sin consultar:
+--   producto i -> md5('product-' || i)::uuid, sku LT-0000001 ... ; tienda s -> LT-001 ... LT-500
+-- Los productos 1..seed.hot_skus están en todas las tiendas con existencias altas (transferencias en conflicto).
+
+SELECT set_config('seed.products', coalesce(nullif(current_setting('seed.products', true), ''), '100000'), false);
+SELECT set_config('seed.stores', coalesce(nullif(current_setting('seed.stores', true), ''), '500'), false);
+SELECT set_config('seed.products_per_store', coalesce(nullif(current_setting('seed.products_per_store', true), ''), '2000'), false);
+SELECT set_config('seed.hot_skus', coalesce(nullif(current_setting('seed.hot_skus', true), ''), '20'), false);
+SELECT set_config('seed.transactions', coalesce(nullif(current_setting('seed.transactions', true), ''), '10000000'), false);
+
+INSERT INTO product (id, name, description, category, price, sku)
+SELECT md5('product-' || i)::uuid,
+       'Producto ' || i,
+       'Producto de prueba de carga ' || i,
+       'categoria-' || (i % 50),
+       round((5 + (i % 1000) * 0.37)::numeric, 2),
+       'LT-' || lpad(i::text, 7, '0')
+FROM generate_series(1, current_setting('seed.products')::int) AS i
+ON CONFLICT DO NOTHING;
+
+-- Cada tienda tiene un bloque distinto de productos; ~2 % de las filas quedan en alerta (quantity <= min_stock)
+INSERT INTO inventory (product_id, store_id, quantity, min_stock)
+SELECT md5('product-' || (((s - 1) * 200 + k) % current_setting('seed.products')::int + 1))::uuid,
+       'LT-' || lpad(s::text, 3, '0'),
+       CASE WHEN (s + k) % 50 = 0 THEN (s + k) % 10 ELSE 20 + (s * 31 + k * 17) % 500 END,
+       10
+FROM generate_series(1, current_setting('seed.stores')::int) AS s,
+     generate_series(1, least(current_setting('seed.products_per_store')::int, current_setting('seed.products')::int)) AS k
+ON CONFLICT (store_id, product_id) DO NOTHING;
+
+INSERT INTO inventory (product_id, store_id, quantity, min_stock)
+SELECT md5('product-' || h)::uuid, 'LT-' || lpad(s::text, 3, '0'), 1000000, 10
+FROM generate_series(1, current_setting('seed.hot_skus')::int) AS h,
+     generate_series(1, current_setting('seed.stores')::int) AS s
+ON CONFLICT (store_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity;
+
+INSERT INTO product_stock (product_id, total_quantity)
+SELECT product_id, SUM(quantity)
+FROM inventory
+GROUP BY product_id
+ON CONFLICT (product_id) DO UPDATE SET total_quantity = EXCLUDED.total_quantity;
+
+-- Historial de un año: 60 % entradas, 30 % salidas, 10 % transferencias, en sus particiones mensuales
+SELECT ensure_transaction_partitions((now() - INTERVAL '1 year')::date, CURRENT_DATE);
+INSERT INTO transaction (product_id, source_store_id, target_store_id, quantity, "timestamp", type)
+SELECT md5('product-' || (1 + (g::bigint * 7919) % current_setting('seed.products')::int))::uuid,
+       CASE WHEN g % 10 >= 6 THEN 'LT-' || lpad((1 + g % current_setting('seed.stores')::int)::text, 3, '0') END,
+       CASE WHEN g % 10 < 6 OR g % 10 = 9
+            THEN 'LT-' || lpad((1 + (g / 7) % current_setting('seed.stores')::int)::text, 3, '0') END,
+       1 + g % 25,
+       now() - make_interval(secs => (g::bigint * 31536000 / current_setting('seed.transactions')::bigint)),
+       (CASE WHEN g % 10 < 6 THEN 'IN' WHEN g % 10 < 9 THEN 'OUT' ELSE 'TRANSFER' END)::transaction_type
+FROM generate_series(1, current_setting('seed.transactions')::int) AS g;
+
+ANALYZE product;
+ANALYZE inventory;
+ANALYZE product_stock;
+ANALYZE transaction;